@@ -0,0 +1,91 @@
+package com.example.demo.app.benchmark;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.cfg.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+
+/**
+ * Embedded H2 databases standing in for the MySQL source and the PostgreSQL target.
+ */
+final class H2Databases {
+    static final int BATCH = 1000;
+
+    private H2Databases() {
+    }
+
+    /**
+     * @return an in-memory H2 database in MySQL mode.
+     */
+    static HikariDataSource source(String name) {
+        return dataSource("jdbc:h2:mem:" + name + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+    }
+
+    /**
+     * @return an in-memory H2 database in PostgreSQL mode.
+     */
+    static HikariDataSource target(String name) {
+        return dataSource("jdbc:h2:mem:" + name + ";MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH;DB_CLOSE_DELAY=-1");
+    }
+
+    /**
+     * Creates the source {@code user} table and fills it with {@code rows} users numbered from 1.
+     */
+    static void createSourceUsers(DataSource source, int rows) {
+        var jdbcTemplate = new JdbcTemplate(source);
+        jdbcTemplate.execute("DROP TABLE IF EXISTS `user`");
+        jdbcTemplate.execute("""
+                CREATE TABLE `user` (id INT PRIMARY KEY, version VARCHAR(20), birth_date DATE, phone_number VARCHAR(50),
+                first_name VARCHAR(100), last_name VARCHAR(100), city VARCHAR(100), job VARCHAR(100), email VARCHAR(200))
+                """);
+        var batch = new ArrayList<Object[]>(BATCH);
+        for (int id = 1; id <= rows; id++) {
+            batch.add(new Object[]{id, null, Date.valueOf(LocalDate.of(1990, 1, 1).plusDays(id % 10_000)),
+                    "+33 6 " + id, "first" + id, "last" + id, "city" + id % 100, "job" + id % 50, "user" + id + "@example.com"});
+            if (batch.size() == BATCH || id == rows) {
+                jdbcTemplate.batchUpdate("INSERT INTO `user` VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)", batch);
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Creates an empty target {@code users} table, shaped like the {@code Users} entity.
+     */
+    static void createTargetUsers(DataSource target) {
+        var jdbcTemplate = new JdbcTemplate(target);
+        jdbcTemplate.execute("DROP TABLE IF EXISTS users");
+        jdbcTemplate.execute("""
+                CREATE TABLE users (id INT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, version VARCHAR(20),
+                birth_date DATE, phone_number VARCHAR(50), first_name VARCHAR(100), last_name VARCHAR(100),
+                city VARCHAR(100), job VARCHAR(100), email VARCHAR(200))
+                """);
+    }
+
+    /**
+     * @return a Hibernate session factory of the given entities on the target, as the repositories use it.
+     */
+    static SessionFactory sessionFactory(DataSource target, Class<?>... entities) {
+        var configuration = new Configuration();
+        for (var entity : entities) {
+            configuration.addAnnotatedClass(entity);
+        }
+        configuration.getProperties().put(AvailableSettings.DATASOURCE, target);
+        configuration.setProperty(AvailableSettings.HBM2DDL_AUTO, "none");
+        return configuration.buildSessionFactory();
+    }
+
+    private static HikariDataSource dataSource(String url) {
+        var dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(url);
+        dataSource.setUsername("sa");
+        dataSource.setMaximumPoolSize(4);
+        return dataSource;
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.demo.app.benchmark;
+
+import com.example.demo.app.domain.postgres.Users;
+import com.example.demo.app.migration.writer.BatchInsertWriter;
+import com.example.demo.app.migration.writer.PostgresTables;
+import com.zaxxer.hikari.HikariDataSource;
+import org.hibernate.SessionFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Enriching one page of existing users with a phone number: {@code findByEmail} then {@code save()} per row, as the
+ * original 1.1.0 {@code UserJob} did, against one batched set-based UPDATE keyed on the email.
+ *
+ * <p>{@code EnrichWriter} itself stages the page in a temporary table and joins with {@code UPDATE ... FROM}, which
+ * H2 does not support; the batched UPDATE measures the same one-round-trip-per-page pattern.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LookupThenSaveBenchmark {
+    private static final int EXISTING = 100_000;
+
+    private HikariDataSource target;
+    private SessionFactory sessionFactory;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private List<Object[]> page;
+
+    @Setup
+    public void setUp() {
+        target = H2Databases.target("lookup");
+        H2Databases.createTargetUsers(target);
+        jdbcTemplate = new JdbcTemplate(target);
+        jdbcTemplate.execute("CREATE INDEX users_email_idx ON users (email)");
+        var writer = new BatchInsertWriter(jdbcTemplate);
+        var users = new ArrayList<Users>(H2Databases.BATCH);
+        for (int id = 1; id <= EXISTING; id++) {
+            users.add(Users.builder().email("user" + id + "@example.com").version("1.0.0").build());
+            if (users.size() == H2Databases.BATCH) {
+                writer.insert(PostgresTables.USERS, users);
+                users.clear();
+            }
+        }
+        sessionFactory = H2Databases.sessionFactory(target, Users.class);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(target));
+        page = new ArrayList<>(H2Databases.BATCH);
+        for (int id = 1; id <= H2Databases.BATCH; id++) {
+            var email = "user" + (id * (EXISTING / H2Databases.BATCH)) + "@example.com";
+            page.add(new Object[]{"+33 6 " + id, "1.1.0", email});
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        sessionFactory.close();
+        target.close();
+    }
+
+    @Benchmark
+    public void lookupThenSave() {
+        for (var row : page) {
+            sessionFactory.inTransaction(session -> {
+                var user = session.createSelectionQuery("from Users where email = :email", Users.class)
+                        .setParameter("email", row[2])
+                        .uniqueResultOptional()
+                        .orElse(new Users());
+                user.setPhoneNumber((String) row[0]);
+                user.setVersion((String) row[1]);
+                session.merge(user);
+            });
+        }
+    }
+
+    @Benchmark
+    public int[] batchedUpdate() {
+        return transactionTemplate.execute(status ->
+                jdbcTemplate.batchUpdate("UPDATE users SET phone_number = ?, version = ? WHERE email = ?", page));
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.demo.app.benchmark;
+
+import com.example.demo.app.domain.postgres.Users;
+import com.example.demo.app.migration.reader.SourceMapping;
+import com.example.demo.app.migration.writer.PostgresTables;
+import org.h2.tools.SimpleResultSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mapping of one page of source rows onto {@code Users}: by position from native query {@code Object[]} rows, as
+ * the 1.0.0 {@code UserJob} originally did, by name through a {@link SourceMapping}, and back to JDBC parameters
+ * through {@link PostgresTables#USERS}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MappingBenchmark {
+    private static final SourceMapping<Users> SOURCE = SourceMapping.of("user", Users::new)
+            .string("first_name", Users::setFirstName)
+            .string("last_name", Users::setLastName)
+            .string("city", Users::setCity)
+            .string("job", Users::setJob)
+            .string("email", Users::setEmail)
+            .build();
+
+    private List<Object[]> nativeRows;
+    private SimpleResultSet resultSet;
+    private List<Users> users;
+
+    @Setup
+    public void setUp() {
+        nativeRows = new ArrayList<>(H2Databases.BATCH);
+        resultSet = new SimpleResultSet();
+        resultSet.setAutoClose(false);
+        for (var column : SOURCE.columns()) {
+            resultSet.addColumn(column, Types.VARCHAR, 100, 0);
+        }
+        users = new ArrayList<>(H2Databases.BATCH);
+        for (int id = 1; id <= H2Databases.BATCH; id++) {
+            nativeRows.add(new Object[]{id, null, LocalDate.of(1990, 1, 1), "+33 6 " + id, "first" + id, "last" + id,
+                    "city", "job", "user" + id + "@example.com"});
+            resultSet.addRow("first" + id, "last" + id, "city", "job", "user" + id + "@example.com");
+            users.add(Users.builder().firstName("first" + id).lastName("last" + id).city("city").job("job")
+                    .email("user" + id + "@example.com").version("1.0.0").build());
+        }
+    }
+
+    @Benchmark
+    public void objectArrayByPosition(Blackhole blackhole) {
+        var userBuilder = Users.builder();
+        for (var recordRows : nativeRows) {
+            userBuilder.firstName((String) recordRows[4]);
+            userBuilder.lastName((String) recordRows[5]);
+            userBuilder.city((String) recordRows[6]);
+            userBuilder.job((String) recordRows[7]);
+            userBuilder.email((String) recordRows[8]);
+            userBuilder.version("1.0.0");
+            blackhole.consume(userBuilder.build());
+        }
+    }
+
+    @Benchmark
+    public void sourceMappingByName(Blackhole blackhole) throws SQLException {
+        resultSet.beforeFirst();
+        while (resultSet.next()) {
+            var user = SOURCE.map(resultSet, 0);
+            user.setVersion("1.0.0");
+            blackhole.consume(user);
+        }
+    }
+
+    @Benchmark
+    public void entityTableValues(Blackhole blackhole) {
+        for (var user : users) {
+            blackhole.consume(PostgresTables.USERS.values().apply(user));
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.demo.app.benchmark;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading one page of the source {@code user} table at increasing depths, with LIMIT/OFFSET as the original jobs
+ * did and by seeking on the primary key as {@code KeysetPageReader} does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PagingBenchmark {
+    private static final int ROWS = 500_000;
+    private static final String COLUMNS = "`first_name`, `last_name`, `city`, `job`, `email`";
+
+    @Param({"0", "100", "499"})
+    public int page;
+
+    private HikariDataSource source;
+    private JdbcTemplate jdbcTemplate;
+
+    @Setup
+    public void setUp() {
+        source = H2Databases.source("paging");
+        H2Databases.createSourceUsers(source, ROWS);
+        jdbcTemplate = new JdbcTemplate(source);
+    }
+
+    @TearDown
+    public void tearDown() {
+        source.close();
+    }
+
+    @Benchmark
+    public void offset(Blackhole blackhole) {
+        jdbcTemplate.query("SELECT " + COLUMNS + " FROM `user` ORDER BY `id` LIMIT ? OFFSET ?",
+                resultSet -> {
+                    blackhole.consume(resultSet.getString(5));
+                }, H2Databases.BATCH, page * H2Databases.BATCH);
+    }
+
+    @Benchmark
+    public void keyset(Blackhole blackhole) {
+        jdbcTemplate.query("SELECT `id`, " + COLUMNS + " FROM `user` WHERE `id` > ? ORDER BY `id` LIMIT ?",
+                resultSet -> {
+                    blackhole.consume(resultSet.getString(6));
+                }, page * H2Databases.BATCH, H2Databases.BATCH);
+    }
+}
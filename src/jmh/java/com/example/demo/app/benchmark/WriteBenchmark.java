@@ -0,0 +1,87 @@
+package com.example.demo.app.benchmark;
+
+import com.example.demo.app.domain.postgres.Users;
+import com.example.demo.app.migration.writer.BatchInsertWriter;
+import com.example.demo.app.migration.writer.PostgresTables;
+import com.zaxxer.hikari.HikariDataSource;
+import org.hibernate.SessionFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writing one page of users into the target: a JPA {@code save()} per row, each in its own transaction as the
+ * original jobs did, against one {@link BatchInsertWriter} batch in a single transaction.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WriteBenchmark {
+    private HikariDataSource target;
+    private SessionFactory sessionFactory;
+    private JdbcTemplate jdbcTemplate;
+    private BatchInsertWriter batchInsertWriter;
+    private TransactionTemplate transactionTemplate;
+
+    @Setup
+    public void setUp() {
+        target = H2Databases.target("write");
+        H2Databases.createTargetUsers(target);
+        sessionFactory = H2Databases.sessionFactory(target, Users.class);
+        jdbcTemplate = new JdbcTemplate(target);
+        batchInsertWriter = new BatchInsertWriter(jdbcTemplate);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(target));
+    }
+
+    @Setup(Level.Iteration)
+    public void truncate() {
+        jdbcTemplate.execute("TRUNCATE TABLE users");
+    }
+
+    @TearDown
+    public void tearDown() {
+        sessionFactory.close();
+        target.close();
+    }
+
+    @Benchmark
+    public void saveEachRow() {
+        for (var user : page()) {
+            sessionFactory.inTransaction(session -> session.persist(user));
+        }
+    }
+
+    @Benchmark
+    public int batchInsert() {
+        var users = page();
+        return transactionTemplate.execute(status -> batchInsertWriter.insert(PostgresTables.USERS, users));
+    }
+
+    private static List<Users> page() {
+        var users = new ArrayList<Users>(H2Databases.BATCH);
+        for (int id = 1; id <= H2Databases.BATCH; id++) {
+            users.add(Users.builder().firstName("first" + id).lastName("last" + id).city("city").job("job")
+                    .email("user" + id + "@example.com").version("1.0.0").build());
+        }
+        return users;
+    }
+}
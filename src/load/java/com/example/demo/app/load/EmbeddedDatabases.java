@@ -0,0 +1,70 @@
+package com.example.demo.app.load;
+
+import ch.vorburger.mariadb4j.DB;
+import ch.vorburger.mariadb4j.DBConfigurationBuilder;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+
+/**
+ * A local MariaDB standing in for the MySQL source and a local PostgreSQL for the target, both started from the
+ * binaries bundled in their artifacts, so nothing is downloaded or reached over the network at run time.
+ */
+public class EmbeddedDatabases implements AutoCloseable {
+    private static final String SOURCE_PARAMETERS =
+            "?allowPublicKeyRetrieval=true&useSSL=false&useCursorFetch=true&rewriteBatchedStatements=true";
+
+    private final DB mariaDb;
+    private final EmbeddedPostgres postgres;
+
+    public EmbeddedDatabases() throws Exception {
+        var configuration = DBConfigurationBuilder.newBuilder();
+        configuration.setPort(0);
+        configuration.addArg("--innodb-buffer-pool-size=512M");
+        mariaDb = DB.newEmbeddedDB(configuration.build());
+        mariaDb.start();
+        mariaDb.createDB("migration");
+        postgres = EmbeddedPostgres.builder().start();
+    }
+
+    public String sourceUrl() {
+        return "jdbc:mysql://localhost:" + mariaDb.getConfiguration().getPort() + "/migration" + SOURCE_PARAMETERS;
+    }
+
+    public DataSource source() {
+        return new DriverManagerDataSource(sourceUrl(), "root", "");
+    }
+
+    public String targetUrl(String database) {
+        return postgres.getJdbcUrl("postgres", database);
+    }
+
+    /**
+     * Drops and recreates a target database.
+     */
+    public void recreateTarget(String database) {
+        var jdbcTemplate = new JdbcTemplate(postgres.getPostgresDatabase());
+        jdbcTemplate.execute("DROP DATABASE IF EXISTS " + database + " WITH (FORCE)");
+        jdbcTemplate.execute("CREATE DATABASE " + database);
+    }
+
+    public DataSource target(String database) {
+        return postgres.getDatabase("postgres", database);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            postgres.close();
+        } finally {
+            try {
+                mariaDb.stop();
+            } catch (Exception e) {
+                throw new IOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.demo.app.load;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Date;
+import java.sql.Time;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.IntFunction;
+
+/**
+ * Fills the MySQL source tables {@code user}, {@code course} and {@code contact} with deterministic synthetic rows.
+ *
+ * <p>Keys used by the enrich jobs ({@code email}, {@code first_name} of contacts, {@code name} of courses) are unique,
+ * so every version of the job chain touches every row. Values come from a seeded {@link Random}, so two runs with
+ * the same row count produce the same tables.
+ */
+@Slf4j
+public class SyntheticDataGenerator {
+    private static final int BATCH = 5_000;
+    private static final String[] CITIES = {"Paris", "Lyon", "Casablanca", "Rabat", "Berlin", "Madrid", "Lisbon"};
+    private static final String[] JOBS = {"engineer", "designer", "teacher", "nurse", "driver", "accountant"};
+    private static final String[] COMPANIES = {"Acme", "Globex", "Initech", "Umbrella", "Hooli", "Vandelay"};
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Random random = new Random(42);
+
+    public SyntheticDataGenerator(DataSource source) {
+        this.jdbcTemplate = new JdbcTemplate(source);
+    }
+
+    /**
+     * Recreates the source tables with {@code rows} rows each.
+     */
+    public void generate(int rows) {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS `user`, `course`, `contact`");
+        jdbcTemplate.execute("""
+                CREATE TABLE `user` (id INT PRIMARY KEY, version VARCHAR(20), birth_date DATE, phone_number VARCHAR(50),
+                first_name VARCHAR(100), last_name VARCHAR(100), city VARCHAR(100), job VARCHAR(100), email VARCHAR(200))
+                """);
+        jdbcTemplate.execute("""
+                CREATE TABLE `course` (id INT PRIMARY KEY, name VARCHAR(100), version VARCHAR(20), date DATE, time TIME,
+                location VARCHAR(100))
+                """);
+        jdbcTemplate.execute("""
+                CREATE TABLE `contact` (id INT PRIMARY KEY, first_name VARCHAR(100), version VARCHAR(20),
+                last_name VARCHAR(100), company VARCHAR(100))
+                """);
+
+        insert("user", 9, rows, id -> new Object[]{id, null,
+                Date.valueOf(LocalDate.of(1950, 1, 1).plusDays(random.nextInt(20_000))),
+                String.format("+212 6%08d", random.nextInt(100_000_000)), "first" + id, "last" + random.nextInt(100_000),
+                pick(CITIES), pick(JOBS), "user" + id + "@example.com"});
+        insert("course", 6, rows, id -> new Object[]{id, "course" + id, null,
+                Date.valueOf(LocalDate.of(2020, 1, 1).plusDays(random.nextInt(2_000))),
+                Time.valueOf(LocalTime.of(8 + random.nextInt(10), 15 * random.nextInt(4))), pick(CITIES)});
+        insert("contact", 5, rows, id -> new Object[]{id, "contact" + id, null, "last" + random.nextInt(100_000),
+                pick(COMPANIES)});
+        jdbcTemplate.execute("ANALYZE TABLE `user`, `course`, `contact`");
+    }
+
+    private void insert(String table, int columns, int rows, IntFunction<Object[]> row) {
+        var sql = "INSERT INTO `" + table + "` VALUES (" + "?, ".repeat(columns - 1) + "?)";
+        List<Object[]> batch = new ArrayList<>(BATCH);
+        for (int id = 1; id <= rows; id++) {
+            batch.add(row.apply(id));
+            if (batch.size() == BATCH || id == rows) {
+                jdbcTemplate.batchUpdate(sql, batch);
+                batch.clear();
+            }
+            if (id % 1_000_000 == 0) {
+                log.info("########### generated {} {} rows", id, table);
+            }
+        }
+        log.info("########### generated {} rows in {}", rows, table);
+    }
+
+    private String pick(String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.demo.app.load;
+
+import com.example.demo.app.AppApplication;
+import com.example.demo.app.config.MigratorProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Runs the real job chain 1.0.0 → 1.1.0 → 2.0.0 against local databases for every combination of executor and
+ * batch size, and reports rows per second, peak heap and wall time.
+ *
+ * <p>Settings are system properties:
+ * <ul>
+ *     <li>{@code load.rows}: rows generated in each source table, default 1000000.</li>
+ *     <li>{@code load.executors}: comma-separated {@code migrator.executor} values, default all of them.</li>
+ *     <li>{@code load.batch-sizes}: comma-separated {@code migration.batch-size} values, default 1000,5000.</li>
+ *     <li>{@code load.report}: CSV file the results are appended to, default {@code target/throughput.csv}.</li>
+ * </ul>
+ *
+ * <p>Each run gets an empty target database, used as history database too, and its own application context.
+ * Rows are counted as source rows processed by all jobs of the chain, the {@code migrator.rows.read} counters of the
+ * run, so jobs an executor skips or reads twice are accounted for. Peak heap is the sum of the peaks of the heap
+ * memory pools during the run, after a GC before it.
+ */
+@Slf4j
+public class ThroughputHarness {
+    private static final List<String> VERSIONS = List.of("1.0.0", "1.1.0", "2.0.0");
+
+    public static void main(String[] args) throws Exception {
+        var rows = Integer.getInteger("load.rows", 1_000_000);
+        var executors = list(System.getProperty("load.executors", ""));
+        if (executors.isEmpty()) {
+            executors = Arrays.stream(MigratorProperties.Executor.values()).map(Enum::name).toList();
+        }
+        var batchSizes = list(System.getProperty("load.batch-sizes", "1000,5000"));
+        var report = Path.of(System.getProperty("load.report", "target/throughput.csv"));
+
+        try (var databases = new EmbeddedDatabases()) {
+            log.info("########### generating {} rows per source table", rows);
+            new SyntheticDataGenerator(databases.source()).generate(rows);
+
+            var results = new ArrayList<Result>();
+            var run = 0;
+            for (var executor : executors) {
+                for (var batchSize : batchSizes) {
+                    results.add(run(databases, "run_" + run++, executor, Integer.parseInt(batchSize)));
+                }
+            }
+            print(results);
+            write(report, results);
+        }
+    }
+
+    private static Result run(EmbeddedDatabases databases, String database, String executor, int batchSize) {
+        databases.recreateTarget(database);
+        createTargetTables(new JdbcTemplate(databases.target(database)));
+        var targetUrl = databases.targetUrl(database);
+
+        var properties = new HashMap<String, Object>();
+        properties.put("spring.datasource.mysql.url", databases.sourceUrl());
+        properties.put("spring.datasource.mysql.username", "root");
+        properties.put("spring.datasource.mysql.password", "");
+        properties.put("spring.datasource.postgres.url", targetUrl);
+        properties.put("spring.datasource.postgres.username", "postgres");
+        properties.put("spring.datasource.postgres.password", "postgres");
+        properties.put("migration.datasource.url", targetUrl);
+        properties.put("migration.datasource.username", "postgres");
+        properties.put("migration.datasource.password", "postgres");
+        properties.put("migration.batch-size", batchSize);
+        properties.put("migration.versions", String.join(",", VERSIONS));
+        properties.put("migration.enabled", "SEQUENTIAL".equals(executor));
+        properties.put("migrator.executor", executor);
+        properties.put("migrator.spool.directory", Path.of("target", "spool", database).toString());
+        properties.put("spring.jpa.show-sql", false);
+        properties.put("logging.level.org.hibernate.SQL", "info");
+        properties.put("logging.level.org.hibernate.type.descriptor.sql.BasicBinder", "info");
+
+        log.info("########### run {}: executor {}, batch size {}", database, executor, batchSize);
+        System.gc();
+        var heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .toList();
+        heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+        var start = System.nanoTime();
+        var context = new SpringApplicationBuilder(AppApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(properties)
+                .run();
+        var processed = (long) context.getBean(MeterRegistry.class).find("migrator.rows.read").counters().stream()
+                .mapToDouble(Counter::count)
+                .sum();
+        context.close();
+        var seconds = (System.nanoTime() - start) / 1e9;
+        var peakHeap = heapPools.stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+
+        var result = new Result(executor, batchSize, processed, seconds, processed / seconds, peakHeap / (1024 * 1024));
+        log.info("########### {}", result);
+        return result;
+    }
+
+    private static void createTargetTables(JdbcTemplate target) {
+        target.execute("""
+                CREATE TABLE users (id SERIAL PRIMARY KEY, version VARCHAR(20), birth_date DATE, phone_number VARCHAR(50),
+                first_name VARCHAR(100), last_name VARCHAR(100), city VARCHAR(100), job VARCHAR(100), email VARCHAR(200))
+                """);
+        target.execute("""
+                CREATE TABLE course (id SERIAL PRIMARY KEY, name VARCHAR(100), version VARCHAR(20), date DATE, time TIME,
+                location VARCHAR(100))
+                """);
+        target.execute("""
+                CREATE TABLE contact (id SERIAL PRIMARY KEY, first_name VARCHAR(100), version VARCHAR(20),
+                last_name VARCHAR(100), company VARCHAR(100))
+                """);
+    }
+
+    private static void print(List<Result> results) {
+        var table = new StringBuilder(String.format("%n%-12s %10s %14s %10s %12s %14s%n",
+                "executor", "batch-size", "rows", "seconds", "rows/s", "peak heap MB"));
+        for (var result : results) {
+            table.append(String.format("%-12s %10d %14d %10.1f %12.0f %14d%n", result.executor(), result.batchSize(),
+                    result.rows(), result.seconds(), result.rowsPerSecond(), result.peakHeapMb()));
+        }
+        log.info("########### throughput{}", table);
+    }
+
+    private static void write(Path report, List<Result> results) throws IOException {
+        var lines = new ArrayList<String>();
+        if (!Files.exists(report)) {
+            lines.add("executor,batch_size,rows,seconds,rows_per_second,peak_heap_mb");
+        }
+        results.forEach(result -> lines.add(String.format("%s,%d,%d,%.3f,%.0f,%d", result.executor(),
+                result.batchSize(), result.rows(), result.seconds(), result.rowsPerSecond(), result.peakHeapMb())));
+        Files.createDirectories(report.toAbsolutePath().getParent());
+        Files.write(report, lines, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    private static List<String> list(String value) {
+        return Arrays.stream(value.split(",")).map(String::trim).filter(item -> !item.isEmpty()).toList();
+    }
+
+    record Result(String executor, int batchSize, long rows, double seconds, double rowsPerSecond, long peakHeapMb) {
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.demo.app.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+
+/**
+ * Configuration class for accessing the migration history database from the application.
+ *
+ * <p>The history database is the one db-migrator records its operations in ("migration.datasource"). The
+ * application stores its own execution state there, next to db-migrator's tables: job checkpoints and the other
+ * bookkeeping needed to resume an interrupted run.
+ *
+ * <p>Key features:
+ * <ul>
+ *     <li>Binds the connection settings from the "migration.datasource" prefix shared with db-migrator.</li>
+ *     <li>Exposes a {@link JdbcTemplate} for the application's bookkeeping tables.</li>
+ * </ul>
+ *
+ * Dependencies:
+ * <ul>
+ *     <li>{@link DataSourceProperties}: Used to configure the data source properties for the history database.</li>
+ *     <li>{@link HikariDataSource}: The pooled data source of the history database.</li>
+ * </ul>
+ */
+@Configuration
+public class HistoryDatasourceConfig {
+
+    /**
+     * Bean that provides the configuration properties for the history data source.
+     *
+     * <p>Uses the prefix "migration.datasource" from the application properties to bind the data source configuration.
+     *
+     * @return a {@link DataSourceProperties} object that contains the history database connection details.
+     */
+    @Bean
+    @ConfigurationProperties(prefix = "migration.datasource")
+    public DataSourceProperties historyDataSourceProperties() {
+        return new DataSourceProperties();
+    }
+
+    /**
+     * Bean that creates the history data source for the application.
+     *
+     * @return a {@link DataSource} configured for the history database.
+     */
+    @Bean
+    public HikariDataSource historyDataSource() {
+        return historyDataSourceProperties()
+                .initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+    }
+
+    /**
+     * Bean that provides a {@link JdbcTemplate} on the history data source.
+     *
+     * @param dataSource the history data source bean.
+     * @return a {@link JdbcTemplate} for the history database.
+     */
+    @Bean
+    public JdbcTemplate historyJdbcTemplate(@Qualifier("historyDataSource") DataSource dataSource) {
+        return new JdbcTemplate(dataSource);
+    }
+}
@@ -0,0 +1,405 @@
+package com.example.demo.app.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Settings of the read/write strategies used by the jobs of this application.
+ *
+ * <p>They are bound from the "migrator" prefix and sit next to the "migration" section owned by db-migrator,
+ * which keeps its own datasource, versions and executor settings.
+ *
+ * <pre>
+ * migrator:
+ *   write-mode: BATCH
+ *   source-id-column: ""
+ *   size-mode: KEY_RANGE
+ *   commit-interval: 1000
+ *   executor: PARALLEL
+ *   parallel:
+ *     max-concurrency: 0
+ *     max-attempts: 3
+ *     retry-backoff: 1s
+ *   dag:
+ *     max-concurrency: 1
+ *   adaptive:
+ *     target-latency: 2s
+ *     min-size: 100
+ *     max-size: 50000
+ *     max-heap-usage: 0.75
+ *   streaming:
+ *     fetch-size: 1000
+ *     chunk-size: 1000
+ *     queue-capacity: 10000
+ *   spool:
+ *     directory: spool
+ *     phase: ALL
+ *     segment-size: 64MB
+ *     block-rows: 1000
+ *   throttle:
+ *     enabled: false
+ *     target-latency: 500ms
+ *     min-concurrency: 1
+ *     max-concurrency: 16
+ *     min-rate: 1
+ *     max-rate: 0
+ *     decrease-factor: 0.5
+ *     max-threads-running: 0
+ *     status-interval: 5s
+ *   staging:
+ *     enabled: false
+ *   deferred-indexes:
+ *     enabled: false
+ *     max-concurrency: 0
+ *   incremental:
+ *     enabled: false
+ *     poll-interval: 1m
+ *     page-size: 5000
+ *     overlap: 0s
+ *     change-column: updated_at
+ *     change-columns: {}
+ *   rollback:
+ *     chunk-size: 10000
+ *     max-concurrency: 0
+ *     versions: []
+ * </pre>
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "migrator")
+public class MigratorProperties {
+
+    /**
+     * How insert jobs write a page to PostgreSQL.
+     */
+    private WriteMode writeMode = WriteMode.BATCH;
+
+    /**
+     * Target column receiving the id of the source row each inserted row comes from, e.g. {@code source_id}. It must
+     * be added to the target tables beforehand; the {@code BATCH}, {@code COPY} and {@code UPSERT} write modes fill
+     * it, and upserts match rows on it, so {@code UPSERT} requires it and {@code STATELESS} is refused with it. Empty by default: source ids are not kept.
+     */
+    private String sourceIdColumn = "";
+
+    /**
+     * How jobs size their source table for page planning.
+     */
+    private SizeMode sizeMode = SizeMode.KEY_RANGE;
+
+    /**
+     * Rows written per postgres transaction within a page, independently of {@code migration.batch-size}.
+     */
+    private int commitInterval = 1000;
+
+    /**
+     * Which executor runs the configured versions. {@code SEQUENTIAL} leaves execution to db-migrator.
+     */
+    private Executor executor = Executor.SEQUENTIAL;
+
+    private Parallel parallel = new Parallel();
+
+    private Dag dag = new Dag();
+
+    private Adaptive adaptive = new Adaptive();
+
+    private Streaming streaming = new Streaming();
+
+    private Spool spool = new Spool();
+
+    private Throttle throttle = new Throttle();
+
+    private Staging staging = new Staging();
+
+    private DeferredIndexes deferredIndexes = new DeferredIndexes();
+
+    private Incremental incremental = new Incremental();
+
+    private Rollback rollback = new Rollback();
+
+    public enum WriteMode {
+        /**
+         * One multi-row JDBC batch per page.
+         */
+        BATCH,
+        /**
+         * {@code COPY ... FROM STDIN (FORMAT binary)} per page, for initial full loads.
+         */
+        COPY,
+        /**
+         * Hibernate {@code StatelessSession} inserts and updates, without persistence context or dirty-checking. One
+         * statement and generated key fetch per row, unbatched: much slower than {@code BATCH}. Cannot fill
+         * {@code source-id-column}, so it is refused with it or with {@code incremental}.
+         */
+        STATELESS,
+        /**
+         * One {@code INSERT ... ON CONFLICT (source id) DO UPDATE} JDBC batch per page, so pages and versions can
+         * be re-run without rollback, see {@code UpsertWriter}. Requires {@code source-id-column}.
+         */
+        UPSERT
+    }
+
+    public enum SizeMode {
+        /**
+         * {@code count(*)} on the source table.
+         */
+        EXACT,
+        /**
+         * {@code MAX(id) - MIN(id) + 1} on a single numeric primary key whose keys are dense, exact count otherwise.
+         */
+        KEY_RANGE
+    }
+
+    public enum Executor {
+        /**
+         * Pages run one after another by the db-migrator executor.
+         */
+        SEQUENTIAL,
+        /**
+         * Pages of a job run concurrently on virtual threads, see {@code ParallelPageExecutor}.
+         */
+        PARALLEL,
+        /**
+         * Each job streams its whole source table through a reader/transform/writer pipeline, see
+         * {@code StreamingPipeline}. Jobs that do not implement {@code PipelineJob} run as with {@code PARALLEL}.
+         */
+        STREAMING,
+        /**
+         * Pages of a job run one after another with a size adapted to the observed page latency and heap use, see
+         * {@code AdaptivePageExecutor}. Jobs that do not implement {@code PipelineJob} run as with {@code PARALLEL}.
+         */
+        ADAPTIVE,
+        /**
+         * Pending jobs of all versions that read the same source table share one scan of it, see
+         * {@code FusedScanExecutor}. Jobs that do not implement {@code PipelineJob}, or read a table without primary
+         * key, run on their own as with {@code PARALLEL}.
+         */
+        FUSED,
+        /**
+         * Source tables are extracted once to local segment files that jobs load from, see {@code SourceSpool}.
+         * Jobs that do not implement {@code PipelineJob} run as with {@code PARALLEL}.
+         */
+        SPOOLED
+    }
+
+    public enum SpoolPhase {
+        /**
+         * Tables are extracted in the background while the jobs load what is already spooled.
+         */
+        ALL,
+        /**
+         * Tables are extracted and nothing is loaded, e.g. while the target is not available yet.
+         */
+        EXTRACT,
+        /**
+         * Jobs load from complete spools only and MySQL is not read.
+         */
+        LOAD
+    }
+
+    @Getter
+    @Setter
+    public static class Parallel {
+        /**
+         * Upper bound of concurrently running pages; 0 means the smaller of the mysql and postgres pool sizes.
+         */
+        private int maxConcurrency = 0;
+        /**
+         * Attempts per page before the page is reported as failed.
+         */
+        private int maxAttempts = 3;
+        /**
+         * Pause before a failed page is retried, multiplied by the attempt number.
+         */
+        private Duration retryBackoff = Duration.ofSeconds(1);
+    }
+
+    @Getter
+    @Setter
+    public static class Dag {
+        /**
+         * Upper bound of jobs of a version running at once, see {@code JobScheduler}; 1 runs them one after another,
+         * 0 means the page concurrency allowed by the connection pools.
+         */
+        private int maxConcurrency = 1;
+    }
+
+    @Getter
+    @Setter
+    public static class Adaptive {
+        /**
+         * Page latency the page size is steered towards, read, transform, write and commit included.
+         */
+        private Duration targetLatency = Duration.ofSeconds(2);
+        /**
+         * Smallest page size.
+         */
+        private int minSize = 100;
+        /**
+         * Largest page size.
+         */
+        private int maxSize = 50_000;
+        /**
+         * Fraction of the maximum heap in use after a page above which the page size is halved.
+         */
+        private double maxHeapUsage = 0.75;
+    }
+
+    @Getter
+    @Setter
+    public static class Streaming {
+        /**
+         * Rows fetched per round-trip from the MySQL server-side cursor.
+         */
+        private int fetchSize = 1000;
+        /**
+         * Rows written per postgres transaction.
+         */
+        private int chunkSize = 1000;
+        /**
+         * Rows buffered between the reader and the transform stage; also bounds the buffered chunks.
+         */
+        private int queueCapacity = 10_000;
+    }
+
+    @Getter
+    @Setter
+    public static class Spool {
+        /**
+         * Directory holding one sub-directory of segment files per spooled source table.
+         */
+        private String directory = "spool";
+        /**
+         * Which stages a run with the {@code SPOOLED} executor performs.
+         */
+        private SpoolPhase phase = SpoolPhase.ALL;
+        /**
+         * Size from which a segment file is sealed and the next one started.
+         */
+        private DataSize segmentSize = DataSize.ofMegabytes(64);
+        /**
+         * Rows compressed together in a block; a load commits one block per postgres transaction.
+         */
+        private int blockRows = 1000;
+    }
+
+    @Getter
+    @Setter
+    public static class Throttle {
+        /**
+         * Whether paged source reads are paced by {@code SourceThrottle}, for a MySQL source still serving traffic.
+         */
+        private boolean enabled = false;
+        /**
+         * Read latency above which the source is considered congested.
+         */
+        private Duration targetLatency = Duration.ofMillis(500);
+        /**
+         * Floor of the concurrent source reads, and their starting point.
+         */
+        private int minConcurrency = 1;
+        /**
+         * Ceiling of the concurrent source reads.
+         */
+        private int maxConcurrency = 16;
+        /**
+         * Floor of the reads started per second, and their starting point; only used with a max rate.
+         */
+        private double minRate = 1;
+        /**
+         * Ceiling of the reads started per second; 0 leaves the rate unbounded.
+         */
+        private double maxRate = 0;
+        /**
+         * Factor applied to the concurrency and rate when the source is congested.
+         */
+        private double decreaseFactor = 0.5;
+        /**
+         * MySQL {@code Threads_running} above which the source is considered congested; 0 disables the check.
+         */
+        private int maxThreadsRunning = 0;
+        /**
+         * How often {@code Threads_running} is sampled.
+         */
+        private Duration statusInterval = Duration.ofSeconds(5);
+    }
+
+    @Getter
+    @Setter
+    public static class Staging {
+        /**
+         * Whether insert jobs loading an empty table write to an unlogged staging copy swapped in on completion, see
+         * {@code StagingTableManager}. Ignored with the {@code STATELESS} and {@code UPSERT} write modes.
+         */
+        private boolean enabled = false;
+    }
+
+    @Getter
+    @Setter
+    public static class DeferredIndexes {
+        /**
+         * Whether secondary indexes and foreign keys of loaded tables are dropped during a version and rebuilt after it,
+         * see {@code DeferredIndexManager}.
+         */
+        private boolean enabled = false;
+        /**
+         * Upper bound of indexes rebuilt at once; 0 means the postgres pool size.
+         */
+        private int maxConcurrency = 0;
+    }
+
+    @Getter
+    @Setter
+    public static class Incremental {
+        /**
+         * Whether incremental jobs are polled for changed source rows after their bulk run, see {@code DeltaSync}.
+         */
+        private boolean enabled = false;
+        /**
+         * Pause between the end of a poll and the start of the next one.
+         */
+        private Duration pollInterval = Duration.ofMinutes(1);
+        /**
+         * Changed rows read and upserted per postgres transaction.
+         */
+        private int pageSize = 5_000;
+        /**
+         * How far before its watermark a timestamp-tracked job is re-read, to catch rows committed late.
+         */
+        private Duration overlap = Duration.ZERO;
+        /**
+         * Source column that grows whenever a row is inserted or changed, either an updated-at timestamp or a
+         * monotonic id. It must exist and lead an index of every synced source table, which is checked on startup;
+         * rows where it is null are never synced.
+         */
+        private String changeColumn = "updated_at";
+        /**
+         * Change column of specific source tables, by table name, overriding {@code change-column}.
+         */
+        private Map<String, String> changeColumns = new LinkedHashMap<>();
+    }
+
+    @Getter
+    @Setter
+    public static class Rollback {
+        /**
+         * Rows deleted or reset per postgres transaction.
+         */
+        private int chunkSize = 10_000;
+        /**
+         * Upper bound of jobs rolled back concurrently; 0 means the postgres pool size.
+         */
+        private int maxConcurrency = 0;
+        /**
+         * Versions rolled back on startup, in this order, by {@code RollbackRunner}; needs {@code migration.enabled: false}.
+         */
+        private List<String> versions = new ArrayList<>();
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.demo.app.config;
 
+import com.zaxxer.hikari.HikariDataSource;
 import jakarta.persistence.EntityManagerFactory;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
@@ -7,6 +8,7 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.orm.jpa.JpaTransactionManager;
 import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
 import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
@@ -31,6 +33,7 @@ import java.util.Properties;
  *     <li>Sets up the EntityManagerFactory and configures it with the appropriate MySQL dialect for Hibernate.</li>
  *     <li>Enables transaction management with the JpaTransactionManager for the MySQL data source.</li>
  *     <li>Allows Spring Data JPA repositories for MySQL entities to function correctly.</li>
+ *     <li>Exposes a {@link JdbcTemplate} for the source readers.</li>
  * </ul>
  *
  * <p>Usage:
@@ -83,16 +86,32 @@ public class MysqlDatasourceConfig {
      * Bean that creates the MySQL data source for the application.
      *
      * <p>The data source is configured using properties defined in the {@link DataSourceProperties} bean.
+     * Pool settings are bound from "spring.datasource.mysql.hikari".
      *
      * @return a {@link DataSource} configured for MySQL.
      */
     @Bean
-    public DataSource mysqlDataSource() {
+    @ConfigurationProperties(prefix = "spring.datasource.mysql.hikari")
+    public HikariDataSource mysqlDataSource() {
         return mysqlDataSourceProperties()
                 .initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
                 .build();
     }
 
+    /**
+     * Bean that provides a {@link JdbcTemplate} on the MySQL data source.
+     *
+     * <p>Used by the source readers, which map rows straight from the JDBC result set.
+     *
+     * @param dataSource the MySQL data source bean.
+     * @return a {@link JdbcTemplate} for MySQL.
+     */
+    @Bean
+    public JdbcTemplate mysqlJdbcTemplate(@Qualifier("mysqlDataSource") DataSource dataSource) {
+        return new JdbcTemplate(dataSource);
+    }
+
     /**
      * Bean that sets up the entity manager factory for the MySQL data source.
      *
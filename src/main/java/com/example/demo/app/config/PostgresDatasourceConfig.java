@@ -1,11 +1,13 @@
 package com.example.demo.app.config;
 
+import com.zaxxer.hikari.HikariDataSource;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.orm.jpa.JpaTransactionManager;
 import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
 import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
@@ -30,6 +32,7 @@ import java.util.Properties;
  *     <li>Sets up the EntityManagerFactory and configures it with the appropriate PostgreSQL dialect for Hibernate.</li>
  *     <li>Enables transaction management with the JpaTransactionManager for the PostgreSQL data source.</li>
  *     <li>Allows Spring Data JPA repositories for PostgreSQL entities to function correctly.</li>
+ *     <li>Exposes a {@link JdbcTemplate} for batched writes that do not go through JPA.</li>
  * </ul>
  *
  * <p>Usage:
@@ -82,16 +85,33 @@ public class PostgresDatasourceConfig {
      * Bean that creates the PostgreSQL data source for the application.
      *
      * <p>The data source is configured using properties defined in the {@link DataSourceProperties} bean.
+     * Pool settings and driver properties are bound from "spring.datasource.postgres.hikari", which is where
+     * {@code reWriteBatchedInserts} is enabled so that JDBC batches are sent as multi-row INSERT statements.
      *
      * @return a {@link DataSource} configured for PostgreSQL.
      */
     @Bean
-    public DataSource postgresDataSource() {
+    @ConfigurationProperties(prefix = "spring.datasource.postgres.hikari")
+    public HikariDataSource postgresDataSource() {
         return postgresDataSourceProperties()
                 .initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
                 .build();
     }
 
+    /**
+     * Bean that provides a {@link JdbcTemplate} on the PostgreSQL data source.
+     *
+     * <p>Used by the batch writers that bypass JPA. It joins transactions opened by the postgresTransactionManager.
+     *
+     * @param dataSource the PostgreSQL data source bean.
+     * @return a {@link JdbcTemplate} for PostgreSQL.
+     */
+    @Bean
+    public JdbcTemplate postgresJdbcTemplate(@Qualifier("postgresDataSource") DataSource dataSource) {
+        return new JdbcTemplate(dataSource);
+    }
+
     /**
      * Bean that sets up the entity manager factory for the PostgreSQL data source.
      *
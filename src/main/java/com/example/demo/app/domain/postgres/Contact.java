@@ -26,5 +26,7 @@ public class Contact implements Migrable {
     @Column(name = "last_name")
     private String lastName;
     private String company;
+    @Transient
+    private Integer sourceId;
 }
 
@@ -27,4 +27,6 @@ public class Course implements Migrable {
     private LocalDate date;
     private LocalTime time;
     private String location;
+    @Transient
+    private Integer sourceId;
 }
\ No newline at end of file
@@ -34,4 +34,6 @@ public class Users implements Migrable {
     private String city;
     private String job;
     private String email;
+    @Transient
+    private Integer sourceId;
 }
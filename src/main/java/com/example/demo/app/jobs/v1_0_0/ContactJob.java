@@ -3,58 +3,81 @@ package com.example.demo.app.jobs.v1_0_0;
 import com.avx.migration.annotations.Executable;
 import com.avx.migration.jobs.spec.Job;
 import com.example.demo.app.domain.postgres.Contact;
-import com.example.demo.app.repository.postgres.ContactRepository;
-import jakarta.persistence.EntityManager;
-import jakarta.persistence.PersistenceContext;
+import com.example.demo.app.migration.incremental.IncrementalJob;
+import com.example.demo.app.migration.pipeline.PageMigrator;
+import com.example.demo.app.migration.reader.SourceMapping;
+import com.example.demo.app.migration.reader.SourceSizeEstimator;
+import com.example.demo.app.migration.rollback.RollbackEngine;
+import com.example.demo.app.migration.rollback.RollbackJob;
+import com.example.demo.app.migration.rollback.RollbackStep;
+import com.example.demo.app.migration.writer.EntityTable;
+import com.example.demo.app.migration.writer.PageWriter;
+import com.example.demo.app.migration.writer.PostgresTables;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
 
 @Executable(version = "1.0.0", order = "3")
 @Component("ContactJobV1.0.0")
 @Slf4j
 @RequiredArgsConstructor
-public class ContactJob implements Job<Contact> {
-    private final ContactRepository contactRepository;
-    @PersistenceContext(unitName = "mysql")
-    private EntityManager mysqlEntityManager;
+public class ContactJob implements Job<Contact>, IncrementalJob<Contact, Contact>, RollbackJob {
+    private static final SourceMapping<Contact> SOURCE = SourceMapping.of("contact", Contact::new)
+            .integer("id", Contact::setSourceId)
+            .string("first_name", Contact::setFirstName)
+            .string("last_name", Contact::setLastName)
+            .build();
+    private static final EntityTable<Contact> TARGET = PostgresTables.CONTACT.owning("first_name", "last_name");
+
+    private final SourceSizeEstimator sourceSizeEstimator;
+    private final RollbackEngine rollbackEngine;
+    private final PageMigrator pageMigrator;
+    private final PageWriter pageWriter;
 
     @Override
     public void migrate(int page, int size, String version) {
         log.info("########### migrate ContactJobV1.0.0");
-        var offset = page * size;
-        var contactBuilder = Contact.builder();
-        var sql = String.format("SELECT * FROM contact LIMIT %d OFFSET %d", size, offset);
-        var query = mysqlEntityManager.createNativeQuery(sql);
-        var results = query.getResultList();
-        for (var record : results) {
-            var recordRows = (Object[]) record;
+        pageMigrator.migrate("ContactJobV1.0.0", this, page, size, version);
+    }
 
-            contactBuilder.firstName((String) recordRows[1]);
-            contactBuilder.lastName((String) recordRows[3]);
+    @Override
+    public SourceMapping<Contact> source() {
+        return SOURCE;
+    }
 
+    @Override
+    public Contact transform(Contact contact, String version) {
+        contact.setVersion(version);
+        return contact;
+    }
 
-            contactBuilder.version(version);
+    @Override
+    public void write(List<Contact> contacts, String version) {
+        pageWriter.insert(TARGET, contacts);
+    }
 
-            contactRepository.save(contactBuilder.build());
-        }
+    @Override
+    public void upsert(List<Contact> contacts, String version) {
+        pageWriter.upsert(TARGET, contacts);
     }
 
     @Override
     public Long getSize() {
         log.info("########### getSize ContactJobV1.0.0");
-        var sql = "SELECT count(*) FROM contact";
-        var query = mysqlEntityManager.createNativeQuery(sql);
-        var results = query.getResultList();
-        return (results != null && !results.isEmpty()) ? (Long) results.getFirst() : 0L;
+        return sourceSizeEstimator.size(SOURCE.table());
     }
 
 
     @Override
-    @Transactional(transactionManager = "postgresTransactionManager")
     public void rollback(String version) {
         log.info("########### rollback ContactJobV1.0.0");
-        contactRepository.deleteContactsByVersion(version);
+        rollbackEngine.rollback("ContactJobV1.0.0", this, version);
+    }
+
+    @Override
+    public List<RollbackStep> rollbackSteps(String version) {
+        return List.of(RollbackStep.delete("contact"));
     }
 }
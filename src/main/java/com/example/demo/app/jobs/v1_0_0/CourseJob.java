@@ -3,56 +3,80 @@ package com.example.demo.app.jobs.v1_0_0;
 import com.avx.migration.annotations.Executable;
 import com.avx.migration.jobs.spec.Job;
 import com.example.demo.app.domain.postgres.Course;
-import com.example.demo.app.repository.postgres.CourseRepository;
-import jakarta.persistence.EntityManager;
-import jakarta.persistence.PersistenceContext;
+import com.example.demo.app.migration.incremental.IncrementalJob;
+import com.example.demo.app.migration.pipeline.PageMigrator;
+import com.example.demo.app.migration.reader.SourceMapping;
+import com.example.demo.app.migration.reader.SourceSizeEstimator;
+import com.example.demo.app.migration.rollback.RollbackEngine;
+import com.example.demo.app.migration.rollback.RollbackJob;
+import com.example.demo.app.migration.rollback.RollbackStep;
+import com.example.demo.app.migration.writer.EntityTable;
+import com.example.demo.app.migration.writer.PageWriter;
+import com.example.demo.app.migration.writer.PostgresTables;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
 
 @Executable(version = "1.0.0", order = "2")
 @Component("CourseJobV1.0.0")
 @Slf4j
 @RequiredArgsConstructor
-public class CourseJob implements Job<Course> {
-    private final CourseRepository courseRepository;
-    @PersistenceContext(unitName = "mysql")
-    private EntityManager mysqlEntityManager;
+public class CourseJob implements Job<Course>, IncrementalJob<Course, Course>, RollbackJob {
+    private static final SourceMapping<Course> SOURCE = SourceMapping.of("course", Course::new)
+            .integer("id", Course::setSourceId)
+            .string("name", Course::setName)
+            .build();
+    private static final EntityTable<Course> TARGET = PostgresTables.COURSE.owning("name");
+
+    private final SourceSizeEstimator sourceSizeEstimator;
+    private final RollbackEngine rollbackEngine;
+    private final PageMigrator pageMigrator;
+    private final PageWriter pageWriter;
 
 
     @Override
     public void migrate(int page, int size, String version) {
         log.info("########### migrate CourseJobV1.0.0");
-        var offset = page * size;
-        var courseBuilder = Course.builder();
-        var sql = String.format("SELECT * FROM course LIMIT %d OFFSET %d", size, offset);
-        var query = mysqlEntityManager.createNativeQuery(sql);
-        var results = query.getResultList();
-        for (var record : results) {
-            var recordRows = (Object[]) record;
+        pageMigrator.migrate("CourseJobV1.0.0", this, page, size, version);
+    }
 
-            courseBuilder.name((String) recordRows[1]);
+    @Override
+    public SourceMapping<Course> source() {
+        return SOURCE;
+    }
+
+    @Override
+    public Course transform(Course course, String version) {
+        course.setVersion(version);
+        return course;
+    }
 
-            courseBuilder.version(version);
+    @Override
+    public void write(List<Course> courses, String version) {
+        pageWriter.insert(TARGET, courses);
+    }
 
-            courseRepository.save(courseBuilder.build());
-        }
+    @Override
+    public void upsert(List<Course> courses, String version) {
+        pageWriter.upsert(TARGET, courses);
     }
 
     @Override
     public Long getSize() {
         log.info("########### getSize CourseJobV1.0.0");
-        var sql = "SELECT count(*) FROM course";
-        var query = mysqlEntityManager.createNativeQuery(sql);
-        var results = query.getResultList();
-        return (results != null && !results.isEmpty()) ? (Long) results.getFirst() : 0L;
+        return sourceSizeEstimator.size(SOURCE.table());
     }
 
     @Override
-    @Transactional(transactionManager = "postgresTransactionManager")
     public void rollback(String version) {
         log.info("########### rollback CourseJobV1.0.0");
-        courseRepository.deleteCoursesByVersion(version);
+        rollbackEngine.rollback("CourseJobV1.0.0", this, version);
+    }
+
+    @Override
+    public List<RollbackStep> rollbackSteps(String version) {
+        return List.of(RollbackStep.delete("course"));
     }
 }
@@ -3,60 +3,84 @@ package com.example.demo.app.jobs.v1_0_0;
 import com.avx.migration.annotations.Executable;
 import com.avx.migration.jobs.spec.Job;
 import com.example.demo.app.domain.postgres.Users;
-import com.example.demo.app.repository.postgres.UserRepository;
-import jakarta.persistence.EntityManager;
-import jakarta.persistence.PersistenceContext;
+import com.example.demo.app.migration.incremental.IncrementalJob;
+import com.example.demo.app.migration.pipeline.PageMigrator;
+import com.example.demo.app.migration.reader.SourceMapping;
+import com.example.demo.app.migration.reader.SourceSizeEstimator;
+import com.example.demo.app.migration.rollback.RollbackEngine;
+import com.example.demo.app.migration.rollback.RollbackJob;
+import com.example.demo.app.migration.rollback.RollbackStep;
+import com.example.demo.app.migration.writer.EntityTable;
+import com.example.demo.app.migration.writer.PageWriter;
+import com.example.demo.app.migration.writer.PostgresTables;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
 
 @Executable(version = "1.0.0", order = "1")
 @Component("UserJobV1.0.0")
 @Slf4j
 @RequiredArgsConstructor
-public class UserJob implements Job<Users> {
-    private final UserRepository userRepository;
-    @PersistenceContext(unitName = "mysql")
-    private EntityManager mysqlEntityManager;
+public class UserJob implements Job<Users>, IncrementalJob<Users, Users>, RollbackJob {
+    private static final SourceMapping<Users> SOURCE = SourceMapping.of("user", Users::new)
+            .integer("id", Users::setSourceId)
+            .string("first_name", Users::setFirstName)
+            .string("last_name", Users::setLastName)
+            .string("city", Users::setCity)
+            .string("job", Users::setJob)
+            .string("email", Users::setEmail)
+            .build();
+    private static final EntityTable<Users> TARGET = PostgresTables.USERS.owning("first_name", "last_name", "city", "job", "email");
+
+    private final SourceSizeEstimator sourceSizeEstimator;
+    private final RollbackEngine rollbackEngine;
+    private final PageMigrator pageMigrator;
+    private final PageWriter pageWriter;
 
 
     @Override
     public void migrate(int page, int size, String version) {
         log.info("########### migrate UserJobV1.0.0");
-        var offset = page * size;
-        var userBuilder = Users.builder();
-        var sql = String.format("SELECT * FROM user LIMIT %d OFFSET %d", size, offset);
-        var query = mysqlEntityManager.createNativeQuery(sql);
-        var results = query.getResultList();
-        for (var record : results) {
-            var recordRows = (Object[]) record;
+        pageMigrator.migrate("UserJobV1.0.0", this, page, size, version);
+    }
 
-            userBuilder.firstName((String) recordRows[4]);
-            userBuilder.lastName((String) recordRows[5]);
-            userBuilder.city((String) recordRows[6]);
-            userBuilder.job((String) recordRows[7]);
-            userBuilder.email((String) recordRows[8]);
+    @Override
+    public SourceMapping<Users> source() {
+        return SOURCE;
+    }
+
+    @Override
+    public Users transform(Users user, String version) {
+        user.setVersion(version);
+        return user;
+    }
 
-            userBuilder.version(version);
+    @Override
+    public void write(List<Users> users, String version) {
+        pageWriter.insert(TARGET, users);
+    }
 
-            userRepository.save(userBuilder.build());
-        }
+    @Override
+    public void upsert(List<Users> users, String version) {
+        pageWriter.upsert(TARGET, users);
     }
 
     @Override
     public Long getSize() {
         log.info("########### getSize UserJobV1.0.0");
-        var sql = "SELECT count(*) FROM user";
-        var query = mysqlEntityManager.createNativeQuery(sql);
-        var results = query.getResultList();
-        return (results != null && !results.isEmpty()) ? (Long) results.getFirst() : 0L;
+        return sourceSizeEstimator.size(SOURCE.table());
     }
 
     @Override
-    @Transactional(transactionManager = "postgresTransactionManager")
     public void rollback(String version) {
         log.info("########### rollback UserJobV1.0.0");
-        userRepository.deleteUsersByVersion(version);
+        rollbackEngine.rollback("UserJobV1.0.0", this, version);
+    }
+
+    @Override
+    public List<RollbackStep> rollbackSteps(String version) {
+        return List.of(RollbackStep.delete("users"));
     }
 }
@@ -3,57 +3,92 @@ package com.example.demo.app.jobs.v1_1_0;
 import com.avx.migration.annotations.Executable;
 import com.avx.migration.jobs.spec.Job;
 import com.example.demo.app.domain.postgres.Users;
-import com.example.demo.app.repository.postgres.UserRepository;
-import jakarta.persistence.EntityManager;
-import jakarta.persistence.PersistenceContext;
+import com.example.demo.app.migration.incremental.IncrementalJob;
+import com.example.demo.app.migration.pipeline.FoldingJob;
+import com.example.demo.app.migration.pipeline.PageMigrator;
+import com.example.demo.app.migration.reader.SourceMapping;
+import com.example.demo.app.migration.reader.SourceSizeEstimator;
+import com.example.demo.app.migration.rollback.RollbackEngine;
+import com.example.demo.app.migration.rollback.RollbackJob;
+import com.example.demo.app.migration.rollback.RollbackStep;
+import com.example.demo.app.migration.writer.EnrichJob;
+import com.example.demo.app.migration.writer.EnrichSpec;
+import com.example.demo.app.migration.writer.PageWriter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
 
 @Executable(version = "1.1.0")
 @Component("UserJobV1.1.0")
 @Slf4j
 @RequiredArgsConstructor
-public class UserJob implements Job<Users> {
-    private final UserRepository userRepository;
-    @PersistenceContext(unitName = "mysql")
-    private EntityManager mysqlEntityManager;
+public class UserJob implements Job<Users>, IncrementalJob<Users, Object[]>, FoldingJob<Users, Users>, EnrichJob,
+        RollbackJob {
+    private static final SourceMapping<Users> SOURCE = SourceMapping.of("user", Users::new)
+            .string("email", Users::setEmail)
+            .string("phone_number", Users::setPhoneNumber)
+            .build();
+    private static final EnrichSpec PHONE_NUMBER = new EnrichSpec("users", "email", List.of("phone_number"), true);
+
+    private final SourceSizeEstimator sourceSizeEstimator;
+    private final RollbackEngine rollbackEngine;
+    private final PageMigrator pageMigrator;
+    private final PageWriter pageWriter;
 
 
     @Override
     public void migrate(int page, int size, String version) {
         log.info("########### migrate UserJobV1.1.0");
-        var offset = page * size;
-        var sql = String.format("SELECT * FROM user LIMIT %d OFFSET %d", size, offset);
-        var query = mysqlEntityManager.createNativeQuery(sql);
-        var results = query.getResultList();
-        for (var record : results) {
+        pageMigrator.migrate("UserJobV1.1.0", this, page, size, version);
+    }
+
+    @Override
+    public SourceMapping<Users> source() {
+        return SOURCE;
+    }
+
+    @Override
+    public Object[] transform(Users user, String version) {
+        return new Object[]{user.getEmail(), user.getPhoneNumber()};
+    }
+
+    @Override
+    public void write(List<Object[]> rows, String version) {
+        pageWriter.enrich(PHONE_NUMBER, rows, version);
+    }
 
-            var recordRows = (Object[]) record;
+    @Override
+    public EnrichSpec enrichSpec() {
+        return PHONE_NUMBER;
+    }
 
-            var user = userRepository.findByEmail((String) recordRows[8]).orElse(new Users());
-            user.setPhoneNumber((String) recordRows[3]);
-            user.setVersion(version);
+    @Override
+    public Class<Users> entityType() {
+        return Users.class;
+    }
 
-            userRepository.save(user);
-        }
+    @Override
+    public void fold(Users source, Users user, String version) {
+        user.setPhoneNumber(source.getPhoneNumber());
+        user.setVersion(version);
     }
 
     @Override
     public Long getSize() {
         log.info("########### getSize UserJobV1.1.0");
-        var sql = "SELECT count(*) FROM user";
-        var query = mysqlEntityManager.createNativeQuery(sql);
-        var results = query.getResultList();
-        return (results != null && !results.isEmpty()) ? (Long) results.getFirst() : 0L;
+        return sourceSizeEstimator.size(SOURCE.table());
     }
 
     @Override
-    @Transactional(transactionManager = "postgresTransactionManager")
     public void rollback(String version) {
         log.info("########### rollback UserJobV1.1.0");
-        userRepository.resetPhoneNumber(version);
-        userRepository.resetVersion(version, "1.0.0");
+        rollbackEngine.rollback("UserJobV1.1.0", this, version);
+    }
+
+    @Override
+    public List<RollbackStep> rollbackSteps(String version) {
+        return List.of(RollbackStep.update("users").setNull("phone_number").set("version", "1.0.0"));
     }
 }
@@ -3,56 +3,80 @@ package com.example.demo.app.jobs.v2_0_0;
 import com.avx.migration.annotations.Executable;
 import com.avx.migration.jobs.spec.Job;
 import com.example.demo.app.domain.postgres.Contact;
-import com.example.demo.app.repository.postgres.ContactRepository;
-import jakarta.persistence.EntityManager;
-import jakarta.persistence.PersistenceContext;
+import com.example.demo.app.migration.declarative.SqlJob;
+import com.example.demo.app.migration.declarative.SqlJobWriter;
+import com.example.demo.app.migration.declarative.SqlMapping;
+import com.example.demo.app.migration.incremental.IncrementalJob;
+import com.example.demo.app.migration.pipeline.FoldingJob;
+import com.example.demo.app.migration.pipeline.PageMigrator;
+import com.example.demo.app.migration.reader.SourceSizeEstimator;
+import com.example.demo.app.migration.rollback.RollbackEngine;
+import com.example.demo.app.migration.rollback.RollbackJob;
+import com.example.demo.app.migration.rollback.RollbackStep;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
 
 @Executable(version = "2.0.0", order = "1")
 @Component("ContactJobV2.0.0")
 @Slf4j
 @RequiredArgsConstructor
-public class ContactJob implements Job<Contact> {
-    private final ContactRepository contactRepository;
-    @PersistenceContext(unitName = "mysql")
-    private EntityManager mysqlEntityManager;
+public class ContactJob implements Job<Contact>, SqlJob, IncrementalJob<Object[], Object[]>, FoldingJob<Object[], Contact>, RollbackJob {
+    private static final SqlMapping MAPPING = SqlMapping.from("contact")
+            .enrich("contact", "first_name")
+            .column("first_name")
+            .expression("company", "CONCAT(IFNULL(company, 'null'), ', Inc')")
+            .build();
+
+    private final SourceSizeEstimator sourceSizeEstimator;
+    private final RollbackEngine rollbackEngine;
+    private final PageMigrator pageMigrator;
+    private final SqlJobWriter sqlJobWriter;
 
     @Override
     public void migrate(int page, int size, String version) {
         log.info("########### migrate ContactJobV2.0.0");
-        var offset = page * size;
-        var sql = String.format("SELECT * FROM contact LIMIT %d OFFSET %d", size, offset);
-        var query = mysqlEntityManager.createNativeQuery(sql);
-        var results = query.getResultList();
-        for (var record : results) {
-            var recordRows = (Object[]) record;
+        pageMigrator.migrate("ContactJobV2.0.0", this, page, size, version);
+    }
 
-            var contact = contactRepository.findByFirstName((String) recordRows[1]).orElse(new Contact());
-            contact.setCompany(recordRows[4] + ", Inc");
-            contact.setVersion(version);
+    @Override
+    public SqlMapping mapping() {
+        return MAPPING;
+    }
 
-            contactRepository.save(contact);
-        }
+    @Override
+    public void write(List<Object[]> rows, String version) {
+        sqlJobWriter.write(MAPPING, rows, version);
+    }
+
+    @Override
+    public Class<Contact> entityType() {
+        return Contact.class;
+    }
+
+    @Override
+    public void fold(Object[] source, Contact contact, String version) {
+        contact.setCompany((String) MAPPING.value(source, "company"));
+        contact.setVersion(version);
     }
 
     @Override
     public Long getSize() {
         log.info("########### getSize ContactJobV2.0.0");
-        var sql = "SELECT count(*) FROM contact";
-        var query = mysqlEntityManager.createNativeQuery(sql);
-        var results = query.getResultList();
-        return (results != null && !results.isEmpty()) ? (Long) results.getFirst() : 0L;
+        return sourceSizeEstimator.size(MAPPING.source().table());
     }
 
 
     @Override
-    @Transactional(transactionManager = "postgresTransactionManager")
     public void rollback(String version) {
         log.info("########### rollback ContactJobV2.0.0");
-        contactRepository.resetCompany(version);
-        contactRepository.resetVersion(version, "1.0.0");
+        rollbackEngine.rollback("ContactJobV2.0.0", this, version);
+    }
+
+    @Override
+    public List<RollbackStep> rollbackSteps(String version) {
+        return List.of(RollbackStep.update("contact").setNull("company").set("version", "1.0.0"));
     }
 }
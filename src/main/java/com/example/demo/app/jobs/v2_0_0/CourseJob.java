@@ -3,57 +3,80 @@ package com.example.demo.app.jobs.v2_0_0;
 import com.avx.migration.annotations.Executable;
 import com.avx.migration.jobs.spec.Job;
 import com.example.demo.app.domain.postgres.Course;
-import com.example.demo.app.repository.postgres.CourseRepository;
-import jakarta.persistence.EntityManager;
-import jakarta.persistence.PersistenceContext;
+import com.example.demo.app.migration.declarative.SqlJob;
+import com.example.demo.app.migration.declarative.SqlJobWriter;
+import com.example.demo.app.migration.declarative.SqlMapping;
+import com.example.demo.app.migration.incremental.IncrementalJob;
+import com.example.demo.app.migration.pipeline.FoldingJob;
+import com.example.demo.app.migration.pipeline.PageMigrator;
+import com.example.demo.app.migration.reader.SourceSizeEstimator;
+import com.example.demo.app.migration.rollback.RollbackEngine;
+import com.example.demo.app.migration.rollback.RollbackJob;
+import com.example.demo.app.migration.rollback.RollbackStep;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
 
 @Executable(version = "2.0.0", order = "2")
 @Component("CourseJobV2.0.0")
 @Slf4j
 @RequiredArgsConstructor
-public class CourseJob implements Job<Course> {
-    private final CourseRepository courseRepository;
-    @PersistenceContext(unitName = "mysql")
-    private EntityManager mysqlEntityManager;
+public class CourseJob implements Job<Course>, SqlJob, IncrementalJob<Object[], Object[]>, FoldingJob<Object[], Course>, RollbackJob {
+    private static final SqlMapping MAPPING = SqlMapping.from("course")
+            .enrich("course", "name")
+            .column("name")
+            .column("location")
+            .build();
+
+    private final SourceSizeEstimator sourceSizeEstimator;
+    private final RollbackEngine rollbackEngine;
+    private final PageMigrator pageMigrator;
+    private final SqlJobWriter sqlJobWriter;
 
 
     @Override
     public void migrate(int page, int size, String version) {
         log.info("########### migrate CourseJobV2.0.0");
-        var offset = page * size;
-        var sql = String.format("SELECT * FROM course LIMIT %d OFFSET %d", size, offset);
-        var query = mysqlEntityManager.createNativeQuery(sql);
-        var results = query.getResultList();
-        for (var record : results) {
-            var recordRows = (Object[]) record;
+        pageMigrator.migrate("CourseJobV2.0.0", this, page, size, version);
+    }
+
+    @Override
+    public SqlMapping mapping() {
+        return MAPPING;
+    }
+
+    @Override
+    public void write(List<Object[]> rows, String version) {
+        sqlJobWriter.write(MAPPING, rows, version);
+    }
 
-            var course = courseRepository.findByName((String) recordRows[1]).orElse(new Course());
-            course.setLocation((String) recordRows[5]);
-            course.setVersion(version);
+    @Override
+    public Class<Course> entityType() {
+        return Course.class;
+    }
 
-            courseRepository.save(course);
-        }
+    @Override
+    public void fold(Object[] source, Course course, String version) {
+        course.setLocation((String) MAPPING.value(source, "location"));
+        course.setVersion(version);
     }
 
     @Override
     public Long getSize() {
         log.info("########### getSize CourseJobV2.0.0");
-        var sql = "SELECT count(*) FROM course";
-        var query = mysqlEntityManager.createNativeQuery(sql);
-        var results = query.getResultList();
-        return (results != null && !results.isEmpty()) ? (Long) results.getFirst() : 0L;
+        return sourceSizeEstimator.size(MAPPING.source().table());
     }
 
     @Override
-    @Transactional(transactionManager = "postgresTransactionManager")
     public void rollback(String version) {
         log.info("########### rollback CourseJobV2.0.0");
-        courseRepository.resetLocation(version);
-        courseRepository.resetVersion(version, "1.0.0");
+        rollbackEngine.rollback("CourseJobV2.0.0", this, version);
+    }
 
+    @Override
+    public List<RollbackStep> rollbackSteps(String version) {
+        return List.of(RollbackStep.update("course").setNull("location").set("version", "1.0.0"));
     }
 }
@@ -0,0 +1,425 @@
+package com.example.demo.app.migration.checkpoint;
+
+import com.example.demo.app.migration.reader.KeyRange;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Records how far each job got, in the migration history database, so an interrupted run resumes where it stopped.
+ *
+ * <p>These tables are kept:
+ * <ul>
+ *     <li>{@code migrator_checkpoint}: one row per committed page (or streamed chunk) of a job and version, with
+ *     the rows written, the last source key of streamed chunks and the commit time; or one row per key range read
+ *     by the parallel executor, moved forward with every page of the range.</li>
+ *     <li>{@code migrator_range}: the key ranges a job read by the parallel executor was split into, kept until it
+ *     completes so that a resumed run reads the same ranges whatever the source, batch size or concurrency.</li>
+ *     <li>{@code migrator_job}: one row per job and version once the job has completed.</li>
+ *     <li>{@code migrator_watermark}: one row per incrementally synced job and version, with the change column
+ *     value and source key of the last synced row.</li>
+ * </ul>
+ *
+ * <p>When the history database is the postgres target database (same URL), checkpoints are written through the
+ * postgres connection and therefore commit atomically with the chunk they describe. Otherwise they are written to
+ * the history database right after the chunk's transaction commits; a crash between the two commits replays that
+ * one chunk.
+ */
+@Slf4j
+@Component
+public class CheckpointStore {
+    private static final String KEY_SEPARATOR = "\u001F";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean atomic;
+
+    public CheckpointStore(Environment environment,
+                           @Qualifier("postgresJdbcTemplate") JdbcTemplate postgresJdbcTemplate,
+                           @Qualifier("historyJdbcTemplate") JdbcTemplate historyJdbcTemplate) {
+        var binder = Binder.get(environment);
+        var historyUrl = binder.bind("migration.datasource.url", String.class).orElse(null);
+        var postgresUrl = binder.bind("spring.datasource.postgres.url", String.class).orElse(null);
+        this.atomic = historyUrl != null && Objects.equals(historyUrl, postgresUrl);
+        this.jdbcTemplate = atomic ? postgresJdbcTemplate : historyJdbcTemplate;
+        if (!atomic) {
+            log.warn("########### history database differs from the postgres target, checkpoints commit after each chunk");
+        }
+        createTables();
+    }
+
+    /**
+     * @return whether checkpoints commit in the same transaction as the chunk they describe.
+     */
+    public boolean isAtomic() {
+        return atomic;
+    }
+
+    /**
+     * @param job     the job name.
+     * @param version the migration version.
+     * @return the pages of the job already committed.
+     */
+    public Set<Integer> committedPages(String job, String version) {
+        return new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT page FROM migrator_checkpoint WHERE job = ? AND version = ?", Integer.class, job, version));
+    }
+
+    /**
+     * @param job     the job name.
+     * @param version the migration version.
+     * @return the last committed streamed chunk of the job, if any.
+     */
+    public Optional<Checkpoint> lastChunk(String job, String version) {
+        return jdbcTemplate.query("""
+                        SELECT page, last_key, rows_written, committed_at FROM migrator_checkpoint
+                        WHERE job = ? AND version = ? AND last_key IS NOT NULL
+                        ORDER BY page DESC LIMIT 1
+                        """,
+                (resultSet, rowNum) -> new Checkpoint(resultSet.getInt(1), decodeKey(resultSet.getString(2)),
+                        resultSet.getLong(3), resultSet.getTimestamp(4).toInstant()),
+                job, version).stream().findFirst();
+    }
+
+    /**
+     * Records a committed page. Call it inside the transaction of the page so that both commit together.
+     *
+     * @param job     the job name.
+     * @param version the migration version.
+     * @param page    the page number.
+     * @param rows    the rows written by the page.
+     */
+    public void pageCommitted(String job, String version, int page, long rows) {
+        insert(job, version, page, null, rows);
+    }
+
+    /**
+     * Records a committed streamed chunk. Call it inside the transaction of the chunk so that both commit together.
+     *
+     * @param job     the job name.
+     * @param version the migration version.
+     * @param chunk   the chunk number.
+     * @param lastKey the source key of the last row of the chunk.
+     * @param rows    the rows written by the chunk.
+     */
+    public void chunkCommitted(String job, String version, int chunk, Object[] lastKey, long rows) {
+        insert(job, version, chunk, encodeKey(lastKey), rows);
+    }
+
+    /**
+     * @param job     the job name.
+     * @param version the migration version.
+     * @return the key of the last committed row of every key range of the job started so far, by range number.
+     */
+    public Map<Integer, Object[]> rangePositions(String job, String version) {
+        var positions = new HashMap<Integer, Object[]>();
+        jdbcTemplate.query("SELECT page, last_key FROM migrator_checkpoint WHERE job = ? AND version = ? AND last_key IS NOT NULL",
+                resultSet -> {
+                    positions.put(resultSet.getInt(1), decodeKey(resultSet.getString(2)));
+                }, job, version);
+        return positions;
+    }
+
+    /**
+     * @param job     the job name.
+     * @param version the migration version.
+     * @return the key ranges recorded for the job by {@link #rangesPlanned}, in order; empty when none were.
+     */
+    public List<KeyRange> plannedRanges(String job, String version) {
+        return jdbcTemplate.query("SELECT from_key, to_key FROM migrator_range WHERE job = ? AND version = ? ORDER BY range_number",
+                (resultSet, rowNum) -> new KeyRange(decodeNullableKey(resultSet.getString(1)),
+                        decodeNullableKey(resultSet.getString(2))),
+                job, version);
+    }
+
+    /**
+     * Records the key ranges a job is split into, before any of them is read.
+     *
+     * @param job     the job name.
+     * @param version the migration version.
+     * @param ranges  the ranges, in order; they are numbered from 0.
+     */
+    public void rangesPlanned(String job, String version, List<KeyRange> ranges) {
+        var rows = new ArrayList<Object[]>(ranges.size());
+        for (int i = 0; i < ranges.size(); i++) {
+            var range = ranges.get(i);
+            rows.add(new Object[]{job, version, i, range.from() == null ? null : encodeKey(range.from()),
+                    range.to() == null ? null : encodeKey(range.to())});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO migrator_range (job, version, range_number, from_key, to_key) VALUES (?, ?, ?, ?, ?)", rows);
+    }
+
+    /**
+     * Moves the position of a key range forward after a committed page. Call it inside the transaction of the page so
+     * that both commit together; only one thread may write a given range.
+     *
+     * @param job     the job name.
+     * @param version the migration version.
+     * @param range   the range number.
+     * @param lastKey the source key of the last row of the page.
+     * @param rows    the rows written by the page.
+     */
+    public void rangeCommitted(String job, String version, int range, Object[] lastKey, long rows) {
+        var encoded = encodeKey(lastKey);
+        afterCommit(() -> {
+            var now = Timestamp.from(Instant.now());
+            var updated = jdbcTemplate.update("""
+                            UPDATE migrator_checkpoint SET last_key = ?, rows_written = rows_written + ?, committed_at = ?
+                            WHERE job = ? AND version = ? AND page = ?
+                            """,
+                    encoded, rows, now, job, version, range);
+            if (updated == 0) {
+                write(job, version, range, encoded, rows);
+            }
+        });
+    }
+
+    /**
+     * @param job     the job name.
+     * @param version the migration version.
+     * @return whether the job already completed for the version.
+     */
+    public boolean isCompleted(String job, String version) {
+        var count = jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM migrator_job WHERE job = ? AND version = ?", Long.class, job, version);
+        return count != null && count > 0;
+    }
+
+    /**
+     * Marks a job as completed and drops its page checkpoints. Marking a completed job again changes nothing. Within a
+     * postgres transaction, e.g. the one swapping a staging table in, the mark is recorded with it or once it commits.
+     *
+     * @param job     the job name.
+     * @param version the migration version.
+     */
+    public void completed(String job, String version) {
+        afterCommit(() -> {
+            var rows = jdbcTemplate.queryForObject("SELECT coalesce(sum(rows_written), 0) FROM migrator_checkpoint WHERE job = ? AND version = ?",
+                    Long.class, job, version);
+            var inserted = jdbcTemplate.update("""
+                            INSERT INTO migrator_job (job, version, rows_written, completed_at)
+                            SELECT ?, ?, ?, ? WHERE NOT EXISTS (SELECT 1 FROM migrator_job WHERE job = ? AND version = ?)
+                            """,
+                    job, version, rows, Timestamp.from(Instant.now()), job, version);
+            jdbcTemplate.update("DELETE FROM migrator_checkpoint WHERE job = ? AND version = ?", job, version);
+            jdbcTemplate.update("DELETE FROM migrator_range WHERE job = ? AND version = ?", job, version);
+            if (inserted > 0) {
+                log.info("########### {} completed for version {} ({} rows)", job, version, rows);
+            }
+        });
+    }
+
+    /**
+     * Forgets everything recorded for a job and version, e.g. when the version is rolled back.
+     *
+     * @param job     the job name.
+     * @param version the migration version.
+     */
+    public void clear(String job, String version) {
+        jdbcTemplate.update("DELETE FROM migrator_checkpoint WHERE job = ? AND version = ?", job, version);
+        jdbcTemplate.update("DELETE FROM migrator_range WHERE job = ? AND version = ?", job, version);
+        jdbcTemplate.update("DELETE FROM migrator_job WHERE job = ? AND version = ?", job, version);
+        jdbcTemplate.update("DELETE FROM migrator_watermark WHERE job = ? AND version = ?", job, version);
+    }
+
+    /**
+     * @param job     the job name.
+     * @param version the migration version.
+     * @return the position of the last synced row of an incremental job: its change column value followed by its
+     * source key. Empty when the job was never synced.
+     */
+    public Optional<Object[]> watermark(String job, String version) {
+        return jdbcTemplate.queryForList("SELECT last_position FROM migrator_watermark WHERE job = ? AND version = ?",
+                String.class, job, version).stream().findFirst().map(CheckpointStore::decodeKey);
+    }
+
+    /**
+     * Moves the watermark of an incremental job forward. Call it inside the transaction that wrote the synced rows so
+     * that both commit together.
+     *
+     * @param job      the job name.
+     * @param version  the migration version.
+     * @param position the change column value of the last synced row followed by its source key.
+     */
+    public void watermarkAdvanced(String job, String version, Object[] position) {
+        var encoded = encodeKey(position);
+        afterCommit(() -> {
+            var now = Timestamp.from(Instant.now());
+            var updated = jdbcTemplate.update("UPDATE migrator_watermark SET last_position = ?, synced_at = ? WHERE job = ? AND version = ?",
+                    encoded, now, job, version);
+            if (updated == 0) {
+                jdbcTemplate.update("INSERT INTO migrator_watermark (job, version, last_position, synced_at) VALUES (?, ?, ?, ?)",
+                        job, version, encoded, now);
+            }
+        });
+    }
+
+    private void insert(String job, String version, int page, String lastKey, long rows) {
+        afterCommit(() -> write(job, version, page, lastKey, rows));
+    }
+
+    /**
+     * Runs a history write now when it shares the chunk's transaction, otherwise once that transaction commits.
+     */
+    private void afterCommit(Runnable write) {
+        if (!atomic && TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    write.run();
+                }
+            });
+            return;
+        }
+        write.run();
+    }
+
+    private void write(String job, String version, int page, String lastKey, long rows) {
+        jdbcTemplate.update("""
+                        INSERT INTO migrator_checkpoint (job, version, page, last_key, rows_written, committed_at)
+                        VALUES (?, ?, ?, ?, ?, ?)
+                        """,
+                job, version, page, lastKey, rows, Timestamp.from(Instant.now()));
+    }
+
+    private void createTables() {
+        jdbcTemplate.execute("""
+                CREATE TABLE IF NOT EXISTS migrator_checkpoint (
+                    job VARCHAR(255) NOT NULL,
+                    version VARCHAR(64) NOT NULL,
+                    page INTEGER NOT NULL,
+                    last_key VARCHAR(1024),
+                    rows_written BIGINT NOT NULL,
+                    committed_at TIMESTAMP NOT NULL,
+                    PRIMARY KEY (job, version, page)
+                )
+                """);
+        jdbcTemplate.execute("""
+                CREATE TABLE IF NOT EXISTS migrator_range (
+                    job VARCHAR(255) NOT NULL,
+                    version VARCHAR(64) NOT NULL,
+                    range_number INTEGER NOT NULL,
+                    from_key VARCHAR(1024),
+                    to_key VARCHAR(1024),
+                    PRIMARY KEY (job, version, range_number)
+                )
+                """);
+        jdbcTemplate.execute("""
+                CREATE TABLE IF NOT EXISTS migrator_job (
+                    job VARCHAR(255) NOT NULL,
+                    version VARCHAR(64) NOT NULL,
+                    rows_written BIGINT NOT NULL,
+                    completed_at TIMESTAMP NOT NULL,
+                    PRIMARY KEY (job, version)
+                )
+                """);
+        jdbcTemplate.execute("""
+                CREATE TABLE IF NOT EXISTS migrator_watermark (
+                    job VARCHAR(255) NOT NULL,
+                    version VARCHAR(64) NOT NULL,
+                    last_position VARCHAR(1024) NOT NULL,
+                    synced_at TIMESTAMP NOT NULL,
+                    PRIMARY KEY (job, version)
+                )
+                """);
+    }
+
+    /**
+     * Writes every key component as a type tag and its text, so that a resumed read binds the same types the source
+     * returned: {@code N} for null, {@code I:40}, {@code T:2024-01-31T10:15:30.5}...
+     */
+    private static String encodeKey(Object[] key) {
+        return Arrays.stream(key).map(CheckpointStore::encodeKeyPart).collect(Collectors.joining(KEY_SEPARATOR));
+    }
+
+    private static Object[] decodeKey(String key) {
+        if (key.isEmpty()) {
+            return new Object[0];
+        }
+        return Arrays.stream(key.split(KEY_SEPARATOR, -1)).map(CheckpointStore::decodeKeyPart).toArray();
+    }
+
+    private static String encodeKeyPart(Object part) {
+        return switch (part) {
+            case null -> "N";
+            case Integer value -> "I:" + value;
+            case Long value -> "L:" + value;
+            case Short value -> "H:" + value;
+            case Byte value -> "Y:" + value;
+            case BigInteger value -> "G:" + value;
+            case BigDecimal value -> "D:" + value.toPlainString();
+            case Double value -> "F:" + value;
+            case Float value -> "E:" + value;
+            case Boolean value -> "Z:" + value;
+            case String value -> "S:" + value;
+            case Timestamp value -> "P:" + value.toLocalDateTime();
+            case java.sql.Date value -> "A:" + value.toLocalDate();
+            case LocalDateTime value -> "T:" + value;
+            case LocalDate value -> "Q:" + value;
+            case byte[] value -> "B:" + Base64.getEncoder().encodeToString(value);
+            default -> throw new IllegalArgumentException("Cannot checkpoint a key of type " + part.getClass().getName());
+        };
+    }
+
+    private static Object decodeKeyPart(String part) {
+        if (part.equals("N")) {
+            return null;
+        }
+        var text = part.substring(2);
+        return switch (part.charAt(0)) {
+            case 'I' -> Integer.valueOf(text);
+            case 'L' -> Long.valueOf(text);
+            case 'H' -> Short.valueOf(text);
+            case 'Y' -> Byte.valueOf(text);
+            case 'G' -> new BigInteger(text);
+            case 'D' -> new BigDecimal(text);
+            case 'F' -> Double.valueOf(text);
+            case 'E' -> Float.valueOf(text);
+            case 'Z' -> Boolean.valueOf(text);
+            case 'S' -> text;
+            case 'P' -> Timestamp.valueOf(LocalDateTime.parse(text));
+            case 'A' -> java.sql.Date.valueOf(LocalDate.parse(text));
+            case 'T' -> LocalDateTime.parse(text);
+            case 'Q' -> LocalDate.parse(text);
+            case 'B' -> Base64.getDecoder().decode(text);
+            default -> throw new IllegalStateException("Unknown checkpointed key part " + part);
+        };
+    }
+
+    private static Object[] decodeNullableKey(String key) {
+        return key == null ? null : decodeKey(key);
+    }
+
+    /**
+     * A committed chunk.
+     *
+     * @param page        the page or chunk number.
+     * @param lastKey     the source key of its last row.
+     * @param rowsWritten the rows it wrote.
+     * @param committedAt when it committed.
+     */
+    public record Checkpoint(int page, Object[] lastKey, long rowsWritten, Instant committedAt) {
+    }
+}
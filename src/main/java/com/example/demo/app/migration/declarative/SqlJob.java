@@ -0,0 +1,28 @@
+package com.example.demo.app.migration.declarative;
+
+import com.example.demo.app.migration.pipeline.PipelineJob;
+import com.example.demo.app.migration.reader.SourceMapping;
+
+/**
+ * A job declared as a {@link SqlMapping} instead of Java mapping code. It is registered with {@code @Executable}
+ * like any other job and runs through the same executors as a {@link PipelineJob}: its reads carry the pushed down
+ * expressions and its rows stay plain value arrays. Implementations delegate {@code write} to the
+ * {@link SqlJobWriter}.
+ */
+public interface SqlJob extends PipelineJob<Object[], Object[]> {
+
+    /**
+     * @return the mapping of the job.
+     */
+    SqlMapping mapping();
+
+    @Override
+    default SourceMapping<Object[]> source() {
+        return mapping().source();
+    }
+
+    @Override
+    default Object[] transform(Object[] row, String version) {
+        return mapping().transform(row);
+    }
+}
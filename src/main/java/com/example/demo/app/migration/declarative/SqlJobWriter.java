@@ -0,0 +1,82 @@
+package com.example.demo.app.migration.declarative;
+
+import com.example.demo.app.config.MigratorProperties;
+import com.example.demo.app.migration.staging.StagingTableManager;
+import com.example.demo.app.migration.writer.BatchInsertWriter;
+import com.example.demo.app.migration.writer.EnrichWriter;
+import com.example.demo.app.migration.writer.PageWriter;
+import com.example.demo.app.migration.writer.UpsertWriter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Writes the rows of a {@link SqlJob} with set-based statements.
+ *
+ * <p>Insert mappings go through the {@link PageWriter}, so {@code migrator.write-mode} applies, except
+ * {@code STATELESS}: value arrays have no JPA mapping and are batched as with {@code BATCH}. Enrich mappings go
+ * through the {@link PageWriter} too, which applies them with the {@link EnrichWriter} or, under {@code STATELESS},
+ * through the entities of their table.
+ */
+@Component
+@RequiredArgsConstructor
+public class SqlJobWriter {
+    private final MigratorProperties migratorProperties;
+    private final PageWriter pageWriter;
+    private final BatchInsertWriter batchInsertWriter;
+    private final EnrichWriter enrichWriter;
+    private final UpsertWriter upsertWriter;
+    private final StagingTableManager stagingTableManager;
+
+    /**
+     * Writes a chunk of rows.
+     *
+     * @param mapping the mapping of the job.
+     * @param rows    the transformed rows, in target column order.
+     * @param version the migration version written on every row.
+     * @return the number of written rows.
+     */
+    public long write(SqlMapping mapping, List<Object[]> rows, String version) {
+        if (mapping.enrichSpec() != null) {
+            var result = pageWriter.enrich(mapping.enrichSpec(), rows, version);
+            return result.matched() + result.unmatched();
+        }
+        var versioned = new ArrayList<Object[]>(rows.size());
+        for (var row : rows) {
+            var values = Arrays.copyOf(row, row.length + 1);
+            values[row.length] = version;
+            versioned.add(values);
+        }
+        var table = mapping.insertTable();
+        if (migratorProperties.getWriteMode() == MigratorProperties.WriteMode.STATELESS) {
+            return batchInsertWriter.insert(table.withTable(stagingTableManager.resolve(table.table())), versioned);
+        }
+        return pageWriter.insert(table, versioned);
+    }
+
+    /**
+     * Creates the unique index the upserts of an insert mapping conflict on, see {@link UpsertWriter#prepare}.
+     *
+     * @param mapping the mapping of the job; nothing is done for an enrich mapping or one without natural key.
+     */
+    public void prepareUpsert(SqlMapping mapping) {
+        var table = mapping.insertTable();
+        if (table != null && table.naturalKey() != null) {
+            upsertWriter.prepare(table.table(), table.naturalKey());
+        }
+    }
+
+    /**
+     * Creates the key index of the table an enrich mapping writes, see {@link EnrichWriter#prepare}.
+     *
+     * @param mapping the mapping of the job; nothing is done for an insert mapping.
+     */
+    public void prepareEnrich(SqlMapping mapping) {
+        if (mapping.enrichSpec() != null) {
+            enrichWriter.prepare(mapping.enrichSpec());
+        }
+    }
+}
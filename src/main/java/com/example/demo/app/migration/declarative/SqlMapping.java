@@ -0,0 +1,240 @@
+package com.example.demo.app.migration.declarative;
+
+import com.example.demo.app.migration.reader.SourceMapping;
+import com.example.demo.app.migration.writer.EnrichSpec;
+import com.example.demo.app.migration.writer.EntityTable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.UnaryOperator;
+import java.util.stream.IntStream;
+
+/**
+ * Declares a job as a mapping from source columns to target columns, compiled into SQL instead of Java code.
+ *
+ * <pre>
+ * SqlMapping.from("contact")
+ *         .enrich("contact", "first_name")
+ *         .column("first_name")
+ *         .expression("company", "CONCAT(IFNULL(company, 'null'), ', Inc')")
+ *         .build();
+ * </pre>
+ *
+ * <p>Each target column is filled by one of:
+ * <ul>
+ *     <li>{@link Builder#column}: a source column, copied as it is;</li>
+ *     <li>{@link Builder#expression}: a MySQL expression over the source columns, evaluated by the source in the
+ *     SELECT of every read;</li>
+ *     <li>{@link Builder#java}: a source column passed through a Java function, row by row, for transforms SQL
+ *     cannot express.</li>
+ * </ul>
+ * Rows are read as plain value arrays in target column order, without entity mapping, and written set-based: an
+ * insert mapping through the {@code migrator.write-mode} writers, an enrich mapping through one
+ * {@code UPDATE ... FROM} per page, see {@code EnrichWriter}.
+ */
+public final class SqlMapping {
+    private final SourceMapping<Object[]> source;
+    private final List<String> targetColumns;
+    private final UnaryOperator<Object>[] transforms;
+    private final int[] transformed;
+    private final EntityTable<Object[]> insertTable;
+    private final EnrichSpec enrichSpec;
+
+    private SqlMapping(SourceMapping<Object[]> source, List<String> targetColumns, UnaryOperator<Object>[] transforms,
+                       EntityTable<Object[]> insertTable, EnrichSpec enrichSpec) {
+        this.source = source;
+        this.targetColumns = targetColumns;
+        this.transforms = transforms;
+        this.transformed = IntStream.range(0, transforms.length).filter(i -> transforms[i] != null).toArray();
+        this.insertTable = insertTable;
+        this.enrichSpec = enrichSpec;
+    }
+
+    public static Builder from(String sourceTable) {
+        return new Builder(sourceTable);
+    }
+
+    /**
+     * @return what is read from the source, the pushed down expressions included.
+     */
+    public SourceMapping<Object[]> source() {
+        return source;
+    }
+
+    /**
+     * @return the target columns, in the order of the row values.
+     */
+    public List<String> targetColumns() {
+        return targetColumns;
+    }
+
+    /**
+     * @param row    a row read by {@link #source()}.
+     * @param column a target column.
+     * @return the value of that column in the row.
+     */
+    public Object value(Object[] row, String column) {
+        return row[targetColumns.indexOf(column)];
+    }
+
+    /**
+     * Applies the Java transforms to a row, in place; rows of mappings without any are returned untouched.
+     *
+     * @param row a row read by {@link #source()}.
+     * @return the row, ready to be written.
+     */
+    public Object[] transform(Object[] row) {
+        for (var i : transformed) {
+            row[i] = transforms[i].apply(row[i]);
+        }
+        return row;
+    }
+
+    /**
+     * @return the target table and columns of an insert mapping, the version column last; null for an enrich one.
+     */
+    EntityTable<Object[]> insertTable() {
+        return insertTable;
+    }
+
+    /**
+     * @return the enrichment of an enrich mapping, its key column first; null for an insert one.
+     */
+    EnrichSpec enrichSpec() {
+        return enrichSpec;
+    }
+
+    public static final class Builder {
+        private final String sourceTable;
+        private final List<Target> targets = new ArrayList<>();
+        private String targetTable;
+        private String keyColumn;
+        private String naturalKey;
+        private boolean insertUnmatched;
+
+        private Builder(String sourceTable) {
+            this.sourceTable = sourceTable;
+        }
+
+        /**
+         * Makes the mapping insert a row per source row.
+         */
+        public Builder insertInto(String table) {
+            this.targetTable = table;
+            this.keyColumn = null;
+            return this;
+        }
+
+        /**
+         * Declares the column identifying an inserted row across runs, for the {@code UPSERT} write mode. It must be
+         * unique per source row, e.g. the source id mapped with {@code column("source_id", "id")}.
+         */
+        public Builder naturalKey(String column) {
+            this.naturalKey = column;
+            return this;
+        }
+
+        /**
+         * Makes the mapping update the target rows matching the source rows on a key, inserting the unmatched ones
+         * with their mapped columns except the key, as the enrich jobs do.
+         *
+         * @param table     the target table.
+         * @param keyColumn the target column matched on; it must be mapped.
+         */
+        public Builder enrich(String table, String keyColumn) {
+            return enrich(table, keyColumn, true);
+        }
+
+        /**
+         * Makes the mapping update the target rows matching the source rows on a key.
+         *
+         * @param table           the target table.
+         * @param keyColumn       the target column matched on; it must be mapped.
+         * @param insertUnmatched whether source rows matching no target row are inserted.
+         */
+        public Builder enrich(String table, String keyColumn, boolean insertUnmatched) {
+            this.targetTable = table;
+            this.keyColumn = keyColumn;
+            this.insertUnmatched = insertUnmatched;
+            return this;
+        }
+
+        /**
+         * Copies a source column into the target column of the same name.
+         */
+        public Builder column(String column) {
+            return column(column, column);
+        }
+
+        /**
+         * Copies a source column into a target column.
+         */
+        public Builder column(String targetColumn, String sourceColumn) {
+            targets.add(new Target(targetColumn, sourceColumn, null, null));
+            return this;
+        }
+
+        /**
+         * Fills a target column with a MySQL expression over the source columns.
+         */
+        public Builder expression(String targetColumn, String expression) {
+            targets.add(new Target(targetColumn, null, expression, null));
+            return this;
+        }
+
+        /**
+         * Fills a target column with a Java function of a source column, applied row by row.
+         */
+        public Builder java(String targetColumn, String sourceColumn, UnaryOperator<Object> transform) {
+            targets.add(new Target(targetColumn, sourceColumn, null, transform));
+            return this;
+        }
+
+        @SuppressWarnings("unchecked")
+        public SqlMapping build() {
+            if (targetTable == null || targets.isEmpty()) {
+                throw new IllegalStateException("Mapping of " + sourceTable + " declares no target table or no column");
+            }
+            var ordered = new ArrayList<>(targets);
+            if (keyColumn != null) {
+                var key = ordered.stream().filter(target -> target.column().equals(keyColumn)).findFirst()
+                        .orElseThrow(() -> new IllegalStateException("Key column " + keyColumn + " of " + targetTable + " is not mapped"));
+                ordered.remove(key);
+                ordered.addFirst(key);
+            }
+
+            var width = ordered.size();
+            var source = SourceMapping.<Object[]>of(sourceTable, () -> new Object[width]);
+            var transforms = new UnaryOperator[width];
+            for (int i = 0; i < width; i++) {
+                var target = ordered.get(i);
+                var index = i;
+                if (target.expression() != null) {
+                    source.expression(target.column(), target.expression(), Object.class, (row, value) -> row[index] = value);
+                } else {
+                    source.object(target.sourceColumn(), (row, value) -> row[index] = value);
+                }
+                transforms[i] = target.transform();
+            }
+
+            var columns = ordered.stream().map(Target::column).toList();
+            EntityTable<Object[]> insertTable = null;
+            EnrichSpec enrichSpec = null;
+            if (keyColumn == null) {
+                var written = new ArrayList<>(columns);
+                written.add("version");
+                insertTable = new EntityTable<>(targetTable, List.copyOf(written), row -> row, naturalKey);
+            } else {
+                enrichSpec = new EnrichSpec(targetTable, keyColumn, List.copyOf(columns.subList(1, width)), insertUnmatched);
+            }
+            return new SqlMapping(source.build(), columns, transforms, insertTable, enrichSpec);
+        }
+    }
+
+    /**
+     * How one target column is filled: from a source column, possibly through a Java transform, or from an
+     * expression.
+     */
+    private record Target(String column, String sourceColumn, String expression, UnaryOperator<Object> transform) {
+    }
+}
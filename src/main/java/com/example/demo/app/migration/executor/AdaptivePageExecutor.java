@@ -0,0 +1,155 @@
+package com.example.demo.app.migration.executor;
+
+import com.example.demo.app.config.MigratorProperties;
+import com.example.demo.app.migration.checkpoint.CheckpointStore;
+import com.example.demo.app.migration.metrics.MigrationMetrics;
+import com.example.demo.app.migration.pipeline.PageMigrator;
+import com.example.demo.app.migration.pipeline.PipelineJob;
+import com.example.demo.app.migration.reader.KeysetPageReader;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Runs the pages of a job one after another with a page size adapted at runtime by a {@link BatchSizeController}.
+ *
+ * <p>Pages follow each other on the source primary key, so their sizes may differ: each page is read right after
+ * the last key of the previous one, and the job ends with the first page shorter than requested. Tables without a
+ * primary key are paged by offset and keep the initial size.
+ *
+ * <p>Every attempt of a page runs in its own postgres transaction, together with a {@link CheckpointStore} entry
+ * holding the last key of the page. A failed attempt rewinds the reader to the last committed key, halves the size
+ * and is retried up to {@code migrator.parallel.max-attempts} times. An interrupted run resumes after the last
+ * checkpointed key, or after the last committed page for tables paged by offset.
+ */
+@Slf4j
+@Component
+public class AdaptivePageExecutor implements JobExecutor {
+    private final MigratorProperties migratorProperties;
+    private final TransactionTemplate transactionTemplate;
+    private final CheckpointStore checkpointStore;
+    private final KeysetPageReader keysetPageReader;
+    private final PageMigrator pageMigrator;
+    private final MigrationMetrics migrationMetrics;
+
+    public AdaptivePageExecutor(MigratorProperties migratorProperties,
+                                @Qualifier("postgresTransactionManager") PlatformTransactionManager postgresTransactionManager,
+                                CheckpointStore checkpointStore,
+                                KeysetPageReader keysetPageReader,
+                                PageMigrator pageMigrator,
+                                MigrationMetrics migrationMetrics) {
+        this.migratorProperties = migratorProperties;
+        this.transactionTemplate = new TransactionTemplate(postgresTransactionManager);
+        this.checkpointStore = checkpointStore;
+        this.keysetPageReader = keysetPageReader;
+        this.pageMigrator = pageMigrator;
+        this.migrationMetrics = migrationMetrics;
+    }
+
+    @Override
+    public MigratorProperties.Executor type() {
+        return MigratorProperties.Executor.ADAPTIVE;
+    }
+
+    @Override
+    public void execute(RegisteredJob job, int batchSize) {
+        execute(job.name(), (PipelineJob<?, ?>) job.job(), job.version(), batchSize);
+    }
+
+    /**
+     * Migrates all pages of a job.
+     *
+     * @param name        the job name.
+     * @param job         the job.
+     * @param version     the migration version.
+     * @param initialSize the size of the first page, usually {@code migration.batch-size}.
+     * @throws PageMigrationException if a page still fails after all its attempts.
+     */
+    public <S, T> void execute(String name, PipelineJob<S, T> job, String version, int initialSize) {
+        var controller = new BatchSizeController(name, initialSize, migratorProperties.getAdaptive());
+        var keyed = !keysetPageReader.primaryKeyColumns(job.source().table()).isEmpty();
+        if (!keyed) {
+            log.warn("########### {} has no primary key, keeping page size {}", name, initialSize);
+        }
+
+        var page = 0;
+        Object[] committedKey = null;
+        if (keyed) {
+            var resumeFrom = checkpointStore.lastChunk(name, version);
+            if (resumeFrom.isPresent()) {
+                page = resumeFrom.get().page() + 1;
+                committedKey = resumeFrom.get().lastKey();
+            }
+        } else {
+            page = checkpointStore.committedPages(name, version).stream().max(Integer::compare).map(last -> last + 1).orElse(0);
+        }
+        if (page > 0) {
+            log.info("########### resuming {} at page {}", name, page);
+        }
+        rewind(name, page, committedKey);
+
+        var observation = migrationMetrics.job(name, version).start();
+        try (var scope = observation.openScope()) {
+            for (var attempt = 1; ; ) {
+                var current = page;
+                var size = keyed ? controller.size() : initialSize;
+                var start = System.nanoTime();
+                long rows;
+                try {
+                    rows = transactionTemplate.execute(status -> {
+                        var written = pageMigrator.migrate(name, job, current, size, version);
+                        var lastKey = keysetPageReader.lastKey(name);
+                        if (lastKey.isPresent() && written > 0) {
+                            checkpointStore.chunkCommitted(name, version, current, lastKey.get(), written);
+                        } else {
+                            checkpointStore.pageCommitted(name, version, current, written);
+                        }
+                        return written;
+                    });
+                } catch (RuntimeException e) {
+                    rewind(name, page, committedKey);
+                    if (attempt >= migratorProperties.getParallel().getMaxAttempts()) {
+                        observation.error(e);
+                        throw new PageMigrationException(name, List.of(page), e);
+                    }
+                    log.warn("########### {} page {} failed on attempt {}, retrying", name, page, attempt, e);
+                    controller.failed();
+                    sleep(migratorProperties.getParallel().getRetryBackoff().multipliedBy(attempt).toMillis());
+                    attempt++;
+                    continue;
+                }
+
+                controller.succeeded(rows, System.nanoTime() - start);
+                if (rows < size) {
+                    break;
+                }
+                committedKey = keysetPageReader.lastKey(name).orElse(committedKey);
+                page++;
+                attempt = 1;
+            }
+        } finally {
+            observation.stop();
+        }
+    }
+
+    private void rewind(String name, int page, Object[] committedKey) {
+        if (committedKey == null) {
+            keysetPageReader.reset(name);
+        } else {
+            keysetPageReader.resume(name, page - 1, committedKey);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while backing off", e);
+        }
+    }
+}
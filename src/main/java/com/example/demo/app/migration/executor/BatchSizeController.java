@@ -0,0 +1,83 @@
+package com.example.demo.app.migration.executor;
+
+import com.example.demo.app.config.MigratorProperties;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Chooses the page size of one job from the latency of its previous pages and the heap left after them.
+ *
+ * <ul>
+ *     <li>A page slower or faster than {@code migrator.adaptive.target-latency} by more than 20% scales the next
+ *     size by {@code target / latency}, at most halving or doubling it at once.</li>
+ *     <li>A page after which more than {@code migrator.adaptive.max-heap-usage} of the heap is in use halves the
+ *     next size, whatever its latency.</li>
+ *     <li>A failed page halves the next size before it is retried.</li>
+ * </ul>
+ *
+ * <p>Sizes stay within {@code migrator.adaptive.min-size} and {@code max-size}; every change is logged.
+ */
+@Slf4j
+class BatchSizeController {
+    private static final double DEADBAND = 0.2;
+
+    private final String job;
+    private final MigratorProperties.Adaptive settings;
+    private int size;
+
+    BatchSizeController(String job, int initialSize, MigratorProperties.Adaptive settings) {
+        this.job = job;
+        this.settings = settings;
+        this.size = clamp(initialSize);
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Adapts the size after a committed page.
+     *
+     * @param rows  the rows of the page.
+     * @param nanos the time the page took, read, transform, write and commit included.
+     */
+    void succeeded(long rows, long nanos) {
+        if (rows < size) {
+            // short last page, its latency says nothing about full pages
+            return;
+        }
+        var runtime = Runtime.getRuntime();
+        var heapUsage = (double) (runtime.totalMemory() - runtime.freeMemory()) / runtime.maxMemory();
+        var latency = nanos / 1e9;
+        var target = settings.getTargetLatency().toNanos() / 1e9;
+
+        int next;
+        if (heapUsage > settings.getMaxHeapUsage()) {
+            next = size / 2;
+        } else if (Math.abs(latency - target) > DEADBAND * target) {
+            var factor = Math.max(0.5, Math.min(2.0, target / Math.max(latency, 1e-3)));
+            next = (int) (size * factor);
+        } else {
+            return;
+        }
+        resize(next, String.format("page took %d ms, heap %.0f%% used", nanos / 1_000_000, heapUsage * 100));
+    }
+
+    /**
+     * Backs off after a failed page.
+     */
+    void failed() {
+        resize(size / 2, "page failed");
+    }
+
+    private void resize(int next, String reason) {
+        next = clamp(next);
+        if (next != size) {
+            log.info("########### {}: page size {} -> {} ({})", job, size, next, reason);
+            size = next;
+        }
+    }
+
+    private int clamp(int value) {
+        return Math.max(settings.getMinSize(), Math.min(settings.getMaxSize(), value));
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.demo.app.migration.executor;
+
+import java.util.List;
+
+/**
+ * Adds behaviour around the jobs run by the {@link MigrationRunner}, whatever the {@link JobExecutor}: deferred
+ * indexes, staging tables, incremental watermarks. Every method defaults to doing nothing more.
+ */
+public interface ExecutionDecorator {
+
+    /**
+     * Called once before any job runs, ahead of {@link JobExecutor#start}.
+     *
+     * @param pending the jobs still to run, of all versions, in the order they run.
+     */
+    default void prepare(List<RegisteredJob> pending) {
+    }
+
+    /**
+     * Runs a group of jobs: the pending jobs of a version, or of all versions for an executor that
+     * {@link JobExecutor#spansVersions() spans versions}.
+     *
+     * @param jobs the jobs of the group.
+     * @param run  runs them.
+     */
+    default void aroundJobs(List<RegisteredJob> jobs, Runnable run) {
+        run.run();
+    }
+
+    /**
+     * Runs one job.
+     *
+     * @param job the job.
+     * @param run runs it with the selected executor.
+     */
+    default void aroundJob(RegisteredJob job, Runnable run) {
+        run.run();
+    }
+}
@@ -0,0 +1,248 @@
+package com.example.demo.app.migration.executor;
+
+import com.example.demo.app.config.MigratorProperties;
+import com.example.demo.app.migration.checkpoint.CheckpointStore;
+import com.example.demo.app.migration.metrics.MigrationMetrics;
+import com.example.demo.app.migration.metrics.MigrationMetrics.Stage;
+import com.example.demo.app.migration.pipeline.FoldingJob;
+import com.example.demo.app.migration.pipeline.PipelineJob;
+import com.example.demo.app.migration.reader.KeysetPageReader;
+import com.example.demo.app.migration.reader.SourceMapping;
+import com.example.demo.app.migration.reader.SourceThrottle;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Runs the pending jobs of several versions that read the same source table with a single scan of that table.
+ *
+ * <p>Every page is read once, seeking on the primary key, with the columns of all jobs side by side:
+ * <pre>
+ * SELECT id, first_name, ..., email, email, phone_number FROM user WHERE id > ? ORDER BY id LIMIT 1000
+ * </pre>
+ * Each job maps its own slice of the row and transforms it in version order. A {@link FoldingJob} applies its change
+ * to the entity an earlier job of the scan produced for the same row, which is then written once in its final state;
+ * other jobs write their own output. All writes of a page commit in one postgres transaction, together with a
+ * checkpoint per job, so an interrupted scan resumes after the last committed key.
+ *
+ * <p>The groups are formed when the run starts, from the pending jobs of all versions. A group's table is scanned
+ * when its first job is executed; executing its later jobs does nothing more, they only get marked completed. Jobs
+ * that cannot be fused run on their own as with {@code PARALLEL}, in their version order.
+ *
+ * <p>The target rows end up as if the jobs had run one version after the other, version column included, so each
+ * job's {@code rollback(version)} applies unchanged. This holds as long as the natural keys the enrich jobs match on
+ * are unique in the source, and jobs only depend on earlier versions' jobs of the same table.
+ */
+@Slf4j
+@Component
+public class FusedScanExecutor implements JobExecutor {
+    private final JdbcTemplate mysqlJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final CheckpointStore checkpointStore;
+    private final KeysetPageReader keysetPageReader;
+    private final MigrationMetrics migrationMetrics;
+    private final SourceThrottle sourceThrottle;
+    private final Map<String, List<RegisteredJob>> groups = new ConcurrentHashMap<>();
+
+    public FusedScanExecutor(@Qualifier("mysqlJdbcTemplate") JdbcTemplate mysqlJdbcTemplate,
+                             @Qualifier("postgresTransactionManager") PlatformTransactionManager postgresTransactionManager,
+                             CheckpointStore checkpointStore,
+                             KeysetPageReader keysetPageReader,
+                             MigrationMetrics migrationMetrics,
+                             SourceThrottle sourceThrottle) {
+        this.mysqlJdbcTemplate = mysqlJdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(postgresTransactionManager);
+        this.checkpointStore = checkpointStore;
+        this.keysetPageReader = keysetPageReader;
+        this.migrationMetrics = migrationMetrics;
+        this.sourceThrottle = sourceThrottle;
+    }
+
+    @Override
+    public MigratorProperties.Executor type() {
+        return MigratorProperties.Executor.FUSED;
+    }
+
+    @Override
+    public boolean spansVersions() {
+        return true;
+    }
+
+    /**
+     * Groups the pending pipeline jobs by source table, for the tables that can be fused.
+     */
+    @Override
+    public boolean start(List<RegisteredJob> pending) {
+        groups.clear();
+        var scans = new LinkedHashMap<String, List<RegisteredJob>>();
+        for (var job : pending) {
+            if (job.job() instanceof PipelineJob<?, ?> pipelineJob && canFuse(pipelineJob.source().table())) {
+                var group = scans.computeIfAbsent(pipelineJob.source().table(), table -> new ArrayList<>());
+                group.add(job);
+                groups.put(job.name(), group);
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean supports(RegisteredJob job) {
+        return groups.containsKey(job.name());
+    }
+
+    /**
+     * Scans the source table of a group when executing its first job; does nothing for its later jobs, which the scan
+     * already ran.
+     */
+    @Override
+    public void execute(RegisteredJob job, int batchSize) {
+        var group = groups.get(job.name());
+        if (group.getFirst().equals(job)) {
+            scan(pipeline(job.job()).source().table(), group, batchSize);
+        }
+    }
+
+    /**
+     * @param table the source table.
+     * @return whether the table can be scanned once for several jobs, i.e. it has a primary key to seek on.
+     */
+    public boolean canFuse(String table) {
+        return !keysetPageReader.primaryKeyColumns(table).isEmpty();
+    }
+
+    /**
+     * Runs jobs reading the same source table with one scan.
+     *
+     * @param table   the source table.
+     * @param members the jobs reading it, in version order, each with its version.
+     * @param size    the page size.
+     * @return the source rows scanned.
+     */
+    public long scan(String table, List<RegisteredJob> members, int size) {
+        var key = keysetPageReader.primaryKeyColumns(table);
+        var keyWidth = key.size();
+        var jobs = members.stream().map(member -> pipeline(member.job())).toList();
+        var offsets = new int[jobs.size()];
+        var select = new StringBuilder("SELECT ").append(key.stream().map(SourceMapping::quote).collect(Collectors.joining(", ")));
+        var offset = keyWidth;
+        for (int i = 0; i < jobs.size(); i++) {
+            offsets[i] = offset;
+            offset += jobs.get(i).source().columns().size();
+            select.append(", ").append(jobs.get(i).source().quotedColumns());
+        }
+        select.append(" FROM ").append(SourceMapping.quote(table));
+        var orderBy = key.stream().map(SourceMapping::quote).collect(Collectors.joining(", "));
+        var afterKey = keyWidth == 1 ? SourceMapping.quote(key.getFirst()) + " > ?"
+                : "(" + orderBy + ") > (" + key.stream().map(column -> "?").collect(Collectors.joining(", ")) + ")";
+        var first = members.getFirst();
+        log.info("########### scanning {} once for {}", table, members.stream().map(RegisteredJob::name).toList());
+
+        var resumeFrom = checkpointStore.lastChunk(first.name(), first.version());
+        var page = resumeFrom.map(checkpoint -> checkpoint.page() + 1).orElse(0);
+        var lastKey = resumeFrom.map(CheckpointStore.Checkpoint::lastKey).orElse(null);
+        if (lastKey != null) {
+            log.info("########### resuming scan of {} at page {}", table, page);
+        }
+
+        var observation = migrationMetrics.job(first.name(), first.version()).start();
+        long scanned = 0;
+        try (var scope = observation.openScope()) {
+            while (true) {
+                var from = lastKey;
+                var sql = select + (from == null ? "" : " WHERE " + afterKey) + " ORDER BY " + orderBy + " LIMIT " + size;
+                var outputs = new ArrayList<List<Object>>();
+                jobs.forEach(job -> outputs.add(new ArrayList<>(size)));
+                var last = new Object[keyWidth];
+                var rows = migrationMetrics.stage(Stage.READ, first.name(), first.version(), () -> sourceThrottle.read(() -> {
+                    var count = new int[1];
+                    mysqlJdbcTemplate.query(sql, resultSet -> {
+                        var produced = new Object[jobs.size()];
+                        for (int i = 0; i < jobs.size(); i++) {
+                            var mapped = jobs.get(i).source().map(resultSet, offsets[i]);
+                            if (!foldIntoEarlier(jobs.get(i), mapped, produced, i, members.get(i).version())) {
+                                produced[i] = jobs.get(i).transform(mapped, members.get(i).version());
+                                outputs.get(i).add(produced[i]);
+                            }
+                        }
+                        for (int i = 0; i < keyWidth; i++) {
+                            last[i] = resultSet.getObject(i + 1);
+                        }
+                        count[0]++;
+                    }, from == null ? new Object[0] : from);
+                    return count[0];
+                }));
+                if (rows == 0) {
+                    break;
+                }
+
+                var current = page;
+                migrationMetrics.page(first.name(), first.version(), current, () -> migrationMetrics.stage(Stage.WRITE,
+                        first.name(), first.version(), () -> transactionTemplate.execute(status -> {
+                            for (int i = 0; i < jobs.size(); i++) {
+                                var member = members.get(i);
+                                if (!outputs.get(i).isEmpty()) {
+                                    jobs.get(i).write(outputs.get(i), member.version());
+                                }
+                                checkpointStore.chunkCommitted(member.name(), member.version(), current, last,
+                                        outputs.get(i).size());
+                            }
+                            return null;
+                        })));
+                for (int i = 0; i < members.size(); i++) {
+                    var member = members.get(i);
+                    migrationMetrics.rowsRead(member.name(), member.version(), rows);
+                    // rows folded into an earlier member's entity are written by that member
+                    migrationMetrics.rowsWritten(member.name(), member.version(), outputs.get(i).size());
+                }
+                scanned += rows;
+                lastKey = last;
+                page++;
+                if (rows < size) {
+                    break;
+                }
+            }
+        } catch (RuntimeException e) {
+            observation.error(e);
+            throw e;
+        } finally {
+            observation.stop();
+        }
+        log.info("########### scanned {} rows of {} for {} jobs", scanned, table, members.size());
+        return scanned;
+    }
+
+    /**
+     * Folds a job's change into the entity of the latest earlier job of the scan it applies to.
+     *
+     * @return whether the change was folded, in which case the job writes nothing for this row.
+     */
+    @SuppressWarnings("unchecked")
+    private static boolean foldIntoEarlier(PipelineJob<Object, Object> job, Object mapped, Object[] produced, int index,
+                                           String version) {
+        if (!(job instanceof FoldingJob<?, ?> foldingJob)) {
+            return false;
+        }
+        for (int i = index - 1; i >= 0; i--) {
+            if (foldingJob.entityType().isInstance(produced[i])) {
+                ((FoldingJob<Object, Object>) foldingJob).fold(mapped, produced[i], version);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static PipelineJob<Object, Object> pipeline(Object job) {
+        return (PipelineJob<Object, Object>) job;
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.demo.app.migration.executor;
+
+import com.example.demo.app.config.MigratorProperties;
+import com.example.demo.app.migration.pipeline.PipelineJob;
+
+import java.util.List;
+
+/**
+ * Runs jobs for the {@link MigrationRunner} with the strategy selected by {@code migrator.executor}.
+ *
+ * <p>For a run, the runner calls {@link #start} once with the pending jobs of all versions, then {@link #execute} for
+ * every job the executor {@link #supports}, and {@link #finish} once all jobs succeeded. Jobs an executor does not
+ * support run with the {@code PARALLEL} one. The runner marks a job completed when {@link #execute} returns, so an
+ * executor only records its own checkpoints.
+ */
+public interface JobExecutor {
+
+    /**
+     * @return the {@code migrator.executor} value selecting this executor.
+     */
+    MigratorProperties.Executor type();
+
+    /**
+     * Called once before any job runs.
+     *
+     * @param pending the jobs still to run, of all versions, in the order they run.
+     * @return whether to run the jobs; false ends the run, e.g. when it only extracts the source.
+     */
+    default boolean start(List<RegisteredJob> pending) {
+        return true;
+    }
+
+    /**
+     * @return whether the jobs of all versions run in a single pass, in order, instead of version by version through
+     * the {@link JobScheduler}.
+     */
+    default boolean spansVersions() {
+        return false;
+    }
+
+    /**
+     * @param job a pending job.
+     * @return whether this executor runs the job; by default only {@link PipelineJob}s.
+     */
+    default boolean supports(RegisteredJob job) {
+        return job.job() instanceof PipelineJob<?, ?>;
+    }
+
+    /**
+     * Runs a job to its end.
+     *
+     * @param job       the job.
+     * @param batchSize {@code migration.batch-size}.
+     */
+    void execute(RegisteredJob job, int batchSize);
+
+    /**
+     * Called once all jobs succeeded.
+     */
+    default void finish() {
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.demo.app.migration.executor;
+
+import com.avx.migration.annotations.Executable;
+import com.avx.migration.jobs.spec.Job;
+import lombok.RequiredArgsConstructor;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Looks up the {@code @Executable} job beans of a version, in the order db-migrator runs them.
+ */
+@Component
+@RequiredArgsConstructor
+public class JobRegistry {
+    private final ApplicationContext applicationContext;
+
+    /**
+     * @param version the migration version.
+     * @return the jobs of the version, sorted by their {@code order}.
+     */
+    public List<RegisteredJob> jobsOf(String version) {
+        return applicationContext.getBeansWithAnnotation(Executable.class).entrySet().stream()
+                .map(entry -> {
+                    var executable = AnnotationUtils.findAnnotation(ClassUtils.getUserClass(entry.getValue()), Executable.class);
+                    return new RegisteredJob(entry.getKey(), executable.version(),
+                            NumberUtils.toInt(executable.order(), 0), (Job<?>) entry.getValue());
+                })
+                .filter(job -> job.version().equals(version))
+                .sorted(Comparator.comparingInt(RegisteredJob::order))
+                .toList();
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.demo.app.migration.executor;
+
+import com.example.demo.app.config.MigratorProperties;
+import com.example.demo.app.migration.rollback.RollbackJob;
+import com.example.demo.app.migration.rollback.RollbackStep;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Runs the jobs of one version as a dependency graph instead of strictly one after another, so that the wall time
+ * of a version is its critical path rather than the sum of its jobs.
+ *
+ * <p>A job runs after every earlier job of its version (in {@code @Executable} order) that:
+ * <ul>
+ *     <li>writes one of its target tables, taken from the tables of its {@link RollbackJob} steps,</li>
+ *     <li>or has unknown target tables, not being a {@link RollbackJob}; such a job also runs after all earlier ones.</li>
+ * </ul>
+ * Jobs without a path between them run concurrently on virtual threads, at most
+ * {@code migrator.dag.max-concurrency} at a time; {@code 1} keeps the plain sequential order and {@code 0} means the
+ * page concurrency of {@link ParallelPageExecutor}, i.e. what the connection pools allow.
+ *
+ * <p>A failed job does not stop the jobs independent of it; the jobs depending on it are skipped. Once the graph has
+ * drained, the failure that happened first is rethrown.
+ */
+@Slf4j
+@Component
+public class JobScheduler {
+    private static final String UNKNOWN_TABLES = "*";
+
+    private final MigratorProperties migratorProperties;
+    private final ParallelPageExecutor parallelPageExecutor;
+
+    public JobScheduler(MigratorProperties migratorProperties, ParallelPageExecutor parallelPageExecutor) {
+        this.migratorProperties = migratorProperties;
+        this.parallelPageExecutor = parallelPageExecutor;
+    }
+
+    /**
+     * Runs the pending jobs of a version.
+     *
+     * @param version the migration version.
+     * @param jobs    the pending jobs of the version, in {@code @Executable} order.
+     * @param runner  runs one job.
+     */
+    public void run(String version, List<RegisteredJob> jobs, Consumer<RegisteredJob> runner) {
+        var concurrency = concurrency();
+        if (concurrency == 1 || jobs.size() < 2) {
+            jobs.forEach(runner);
+            return;
+        }
+        var dependencies = dependencies(jobs);
+        log.info("########### version {}: {} jobs, up to {} at once, dependencies {}", version, jobs.size(), concurrency, dependencies);
+
+        var permits = new Semaphore(concurrency);
+        // in the order the jobs failed
+        var failures = Collections.synchronizedMap(new LinkedHashMap<String, RuntimeException>());
+        var done = new HashMap<String, CompletableFuture<Void>>();
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (var job : jobs) {
+                var upstream = dependencies.get(job.name()).stream().map(done::get).toArray(CompletableFuture[]::new);
+                done.put(job.name(), CompletableFuture.allOf(upstream).thenRunAsync(() -> {
+                    permits.acquireUninterruptibly();
+                    try {
+                        runner.accept(job);
+                    } catch (RuntimeException e) {
+                        log.error("########### {} failed for version {}", job.name(), version, e);
+                        failures.put(job.name(), e);
+                        throw e;
+                    } finally {
+                        permits.release();
+                    }
+                }, executor));
+            }
+            CompletableFuture.allOf(done.values().toArray(CompletableFuture[]::new)).exceptionally(e -> null).join();
+        }
+
+        var skipped = done.entrySet().stream()
+                .filter(entry -> entry.getValue().isCompletedExceptionally() && !failures.containsKey(entry.getKey()))
+                .map(Map.Entry::getKey)
+                .toList();
+        if (!skipped.isEmpty()) {
+            log.warn("########### skipped {} of version {}: a job they depend on failed", skipped, version);
+        }
+        if (!failures.isEmpty()) {
+            throw failures.values().iterator().next();
+        }
+    }
+
+    /**
+     * @return for each job, the names of the earlier jobs it has to wait for.
+     */
+    private Map<String, Set<String>> dependencies(List<RegisteredJob> jobs) {
+        var dependencies = new LinkedHashMap<String, Set<String>>();
+        var tables = new HashMap<String, Set<String>>();
+        for (var job : jobs) {
+            var written = targetTables(job);
+            var upstream = new TreeSet<String>();
+            for (var earlier : dependencies.keySet()) {
+                var earlierTables = tables.get(earlier);
+                if (written.contains(UNKNOWN_TABLES) || earlierTables.contains(UNKNOWN_TABLES)
+                        || !Collections.disjoint(written, earlierTables)) {
+                    upstream.add(earlier);
+                }
+            }
+            dependencies.put(job.name(), upstream);
+            tables.put(job.name(), written);
+        }
+        return dependencies;
+    }
+
+    private static Set<String> targetTables(RegisteredJob job) {
+        if (job.job() instanceof RollbackJob rollbackJob) {
+            return rollbackJob.rollbackSteps(job.version()).stream().map(RollbackStep::table).collect(Collectors.toSet());
+        }
+        return Set.of(UNKNOWN_TABLES);
+    }
+
+    private int concurrency() {
+        var configured = migratorProperties.getDag().getMaxConcurrency();
+        var poolBound = parallelPageExecutor.concurrency();
+        return Math.max(1, configured > 0 ? Math.min(configured, poolBound) : poolBound);
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.demo.app.migration.executor;
+
+import com.example.demo.app.config.MigratorProperties;
+import com.example.demo.app.migration.checkpoint.CheckpointStore;
+import com.example.demo.app.migration.pipeline.PipelineJob;
+import com.example.demo.app.migration.spool.SpoolLoader;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Runs the configured {@code migration.versions} with the {@link JobExecutor} selected by {@code migrator.executor}.
+ *
+ * <p>Versions run in the configured order and the jobs of a version in their {@code @Executable} order. With
+ * {@code PARALLEL} the pages of a job run concurrently; with {@code STREAMING} jobs implementing
+ * {@link PipelineJob} stream their whole source table and the others fall back to parallel pages; with
+ * {@code ADAPTIVE} pipeline jobs run their pages in sequence with an adaptive page size, see
+ * {@link AdaptivePageExecutor}. With {@code FUSED} the pending jobs of all versions are grouped by source table and
+ * each table is scanned once for its group, see {@link FusedScanExecutor}. With {@code SPOOLED} the source tables of
+ * the pending pipeline jobs are extracted to local segment files in the background and the jobs load from them, see
+ * {@link SpoolLoader}; {@code migrator.spool.phase} restricts a run to extracting or to loading.
+ *
+ * <p>Within a version, jobs writing disjoint tables may run concurrently when {@code migrator.dag.max-concurrency} is
+ * not 1, see {@link JobScheduler}.
+ *
+ * <p>Deferred indexes, staging tables and incremental watermarks apply to every executor through
+ * {@link ExecutionDecorator}s.
+ *
+ * <p>Jobs already completed in an earlier run are skipped and unfinished ones resume from their checkpoints, see
+ * {@link CheckpointStore}. A job is marked completed as soon as its executor returns.
+ *
+ * <p>db-migrator must be disabled ({@code migration.enabled: false}) so that the versions are not executed
+ * twice; otherwise the runner throws and the application fails to start.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnExpression("'${migrator.executor:SEQUENTIAL}' != 'SEQUENTIAL'")
+public class MigrationRunner implements ApplicationRunner {
+    private final Environment environment;
+    private final MigratorProperties migratorProperties;
+    private final JobRegistry jobRegistry;
+    private final JobScheduler jobScheduler;
+    private final CheckpointStore checkpointStore;
+    private final List<JobExecutor> jobExecutors;
+    private final List<ExecutionDecorator> executionDecorators;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        var binder = Binder.get(environment);
+        if (binder.bind("migration.enabled", Boolean.class).orElse(false)) {
+            throw new IllegalStateException("migrator.executor=" + migratorProperties.getExecutor()
+                    + " needs migration.enabled=false, otherwise db-migrator executes the versions too");
+        }
+        var versions = binder.bind("migration.versions", Bindable.listOf(String.class)).get();
+        var batchSize = binder.bind("migration.batch-size", Integer.class).get();
+
+        var executor = executor(migratorProperties.getExecutor());
+        var fallback = executor(MigratorProperties.Executor.PARALLEL);
+        var pending = new ArrayList<RegisteredJob>();
+        for (var version : versions) {
+            for (var job : jobRegistry.jobsOf(version)) {
+                if (checkpointStore.isCompleted(job.name(), job.version())) {
+                    log.info("########### {} already completed for version {}, skipping", job.name(), job.version());
+                } else {
+                    pending.add(job);
+                }
+            }
+        }
+        executionDecorators.forEach(decorator -> decorator.prepare(pending));
+        if (!executor.start(pending)) {
+            return;
+        }
+
+        Consumer<RegisteredJob> runner = job -> execute(executor.supports(job) ? executor : fallback, job, batchSize);
+        if (executor.spansVersions()) {
+            aroundJobs(pending, () -> pending.forEach(runner));
+        } else {
+            for (var version : versions) {
+                log.info("########### running version {}", version);
+                var jobs = pending.stream().filter(job -> job.version().equals(version)).toList();
+                aroundJobs(jobs, () -> jobScheduler.run(version, jobs, runner));
+            }
+        }
+        executor.finish();
+    }
+
+    private void execute(JobExecutor executor, RegisteredJob job, int batchSize) {
+        Runnable run = () -> executor.execute(job, batchSize);
+        for (var decorator : executionDecorators.reversed()) {
+            var inner = run;
+            run = () -> decorator.aroundJob(job, inner);
+        }
+        run.run();
+        checkpointStore.completed(job.name(), job.version());
+    }
+
+    private void aroundJobs(List<RegisteredJob> jobs, Runnable run) {
+        for (var decorator : executionDecorators.reversed()) {
+            var inner = run;
+            run = () -> decorator.aroundJobs(jobs, inner);
+        }
+        run.run();
+    }
+
+    private JobExecutor executor(MigratorProperties.Executor type) {
+        return jobExecutors.stream()
+                .filter(executor -> executor.type() == type)
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("No executor for migrator.executor=" + type));
+    }
+}
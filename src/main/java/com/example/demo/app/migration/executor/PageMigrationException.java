@@ -0,0 +1,27 @@
+package com.example.demo.app.migration.executor;
+
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Thrown when pages of a job still fail after all their attempts.
+ */
+@Getter
+public class PageMigrationException extends RuntimeException {
+    private final String job;
+    private final List<Integer> failedPages;
+
+    public PageMigrationException(String job, List<Integer> failedPages, Throwable cause) {
+        this(job, "pages", failedPages, cause);
+    }
+
+    /**
+     * @param unit what the numbers in {@code failedPages} count, e.g. "key ranges".
+     */
+    public PageMigrationException(String job, String unit, List<Integer> failedPages, Throwable cause) {
+        super("Job " + job + " failed on " + unit + " " + failedPages, cause);
+        this.job = job;
+        this.failedPages = failedPages;
+    }
+}
@@ -0,0 +1,265 @@
+package com.example.demo.app.migration.executor;
+
+import com.example.demo.app.config.MigratorProperties;
+import com.example.demo.app.migration.checkpoint.CheckpointStore;
+import com.example.demo.app.migration.metrics.MigrationMetrics;
+import com.example.demo.app.migration.pipeline.PageMigrator;
+import com.example.demo.app.migration.pipeline.PipelineJob;
+import com.example.demo.app.migration.reader.KeyRange;
+import com.example.demo.app.migration.reader.KeysetPageReader;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Runs the pages of a job concurrently on virtual threads.
+ *
+ * <p>A {@link PipelineJob} reading a table with a primary key is split into contiguous key ranges once, see
+ * {@link KeysetPageReader#ranges}; there are up to {@value #RANGES_PER_WORKER} times as many ranges as concurrent
+ * workers so that uneven ranges even out. Each range runs on its own virtual thread as a sequence of pages of
+ * {@code batch-size} rows, every page seeking right after the last key of the previous one. Other jobs are split
+ * into pages of {@code batch-size} rows from the job size, and each page calls {@code migrate(page, size, version)}
+ * on its own virtual thread.
+ *
+ * <p>Concurrency is capped by the smaller of the mysql and postgres pool sizes (or
+ * {@code migrator.parallel.max-concurrency} when lower), so a page never waits for a connection. The cap is shared
+ * by all jobs, including jobs run side by side by the {@link JobScheduler}.
+ *
+ * <p>Every attempt of a page runs in its own postgres transaction: a failed attempt leaves nothing behind and is
+ * retried up to {@code migrator.parallel.max-attempts} times. A page that still fails stops its range; failing pages
+ * or ranges do not stop the others, and once all are done the failures are reported with a
+ * {@link PageMigrationException}.
+ *
+ * <p>Each committed page is recorded by the {@link CheckpointStore} within the page transaction: as the last key of
+ * its range, or as the page number. The key ranges themselves are recorded before the first page, so an interrupted
+ * run resumes with the same ranges, each after its last committed key, even if rows were added to the source or the
+ * batch size or concurrency changed in between. Jobs paged by number skip the pages already committed, which only
+ * holds while their pages cover the same rows.
+ *
+ * <p>The job runs in a {@code migrator.job} observation that is current on every page thread, so page spans are
+ * children of the job span.
+ */
+@Slf4j
+@Component
+public class ParallelPageExecutor implements JobExecutor {
+    private static final int RANGES_PER_WORKER = 4;
+
+    private final MigratorProperties migratorProperties;
+    private final HikariDataSource mysqlDataSource;
+    private final HikariDataSource postgresDataSource;
+    private final TransactionTemplate transactionTemplate;
+    private final CheckpointStore checkpointStore;
+    private final KeysetPageReader keysetPageReader;
+    private final PageMigrator pageMigrator;
+    private final MigrationMetrics migrationMetrics;
+    private final Semaphore permits;
+
+    public ParallelPageExecutor(MigratorProperties migratorProperties,
+                                @Qualifier("mysqlDataSource") HikariDataSource mysqlDataSource,
+                                @Qualifier("postgresDataSource") HikariDataSource postgresDataSource,
+                                @Qualifier("postgresTransactionManager") PlatformTransactionManager postgresTransactionManager,
+                                CheckpointStore checkpointStore,
+                                KeysetPageReader keysetPageReader,
+                                PageMigrator pageMigrator,
+                                MigrationMetrics migrationMetrics) {
+        this.migratorProperties = migratorProperties;
+        this.checkpointStore = checkpointStore;
+        this.keysetPageReader = keysetPageReader;
+        this.pageMigrator = pageMigrator;
+        this.migrationMetrics = migrationMetrics;
+        this.mysqlDataSource = mysqlDataSource;
+        this.postgresDataSource = postgresDataSource;
+        this.transactionTemplate = new TransactionTemplate(postgresTransactionManager);
+        this.permits = new Semaphore(concurrency());
+    }
+
+    @Override
+    public MigratorProperties.Executor type() {
+        return MigratorProperties.Executor.PARALLEL;
+    }
+
+    @Override
+    public boolean supports(RegisteredJob job) {
+        return true;
+    }
+
+    /**
+     * Migrates all pages of a job and returns once every page has either succeeded or exhausted its attempts.
+     *
+     * @param job       the job to run.
+     * @param batchSize the page size.
+     * @throws PageMigrationException if some pages failed.
+     */
+    @Override
+    public void execute(RegisteredJob job, int batchSize) {
+        if (job.job() instanceof PipelineJob<?, ?> pipelineJob
+                && !keysetPageReader.primaryKeyColumns(pipelineJob.source().table()).isEmpty()) {
+            executeRanges(job, pipelineJob, batchSize);
+        } else {
+            executePages(job, batchSize);
+        }
+    }
+
+    private void executeRanges(RegisteredJob job, PipelineJob<?, ?> pipelineJob, int batchSize) {
+        var size = job.job().getSize();
+        var pages = (size + batchSize - 1) / batchSize;
+        var concurrency = concurrency();
+        var ranges = checkpointStore.plannedRanges(job.name(), job.version());
+        if (ranges.isEmpty()) {
+            ranges = keysetPageReader.ranges(pipelineJob.source().table(),
+                    (int) Math.max(1, Math.min(pages, (long) concurrency * RANGES_PER_WORKER)), size);
+            checkpointStore.rangesPlanned(job.name(), job.version(), ranges);
+        }
+        var positions = checkpointStore.rangePositions(job.name(), job.version());
+        log.info("########### {}: {} rows in {} key ranges, {} concurrent, {} already started",
+                job.name(), size, ranges.size(), concurrency, positions.size());
+        var plan = ranges;
+
+        var failures = new ConcurrentSkipListMap<Integer, RuntimeException>();
+        var pageNumbers = new AtomicInteger();
+        run(job, plan.size(), failures, range -> runRange(job, pipelineJob, range, plan.get(range),
+                positions.get(range), batchSize, pageNumbers, failures));
+        if (!failures.isEmpty()) {
+            throw new PageMigrationException(job.name(), "key ranges", failures.keySet().stream().toList(),
+                    failures.firstEntry().getValue());
+        }
+    }
+
+    private void executePages(RegisteredJob job, int batchSize) {
+        var size = job.job().getSize();
+        var pages = (int) ((size + batchSize - 1) / batchSize);
+        var concurrency = concurrency();
+        var committed = checkpointStore.committedPages(job.name(), job.version());
+        log.info("########### {}: {} rows in {} pages, {} concurrent, {} already committed",
+                job.name(), size, pages, concurrency, committed.size());
+
+        var failures = new ConcurrentSkipListMap<Integer, RuntimeException>();
+        run(job, pages, failures, page -> {
+            if (!committed.contains(page)) {
+                attempt(job, "page", page, failures, () -> {
+                    var rows = migratePage(job, page, batchSize);
+                    checkpointStore.pageCommitted(job.name(), job.version(), page, rows);
+                    return rows;
+                });
+            }
+        });
+        if (!failures.isEmpty()) {
+            throw new PageMigrationException(job.name(), failures.keySet().stream().toList(), failures.firstEntry().getValue());
+        }
+    }
+
+    /**
+     * Runs tasks numbered from 0 on virtual threads within the job observation, holding a permit each.
+     */
+    private void run(RegisteredJob job, int tasks, Map<Integer, RuntimeException> failures, IntConsumer task) {
+        var observation = migrationMetrics.job(job.name(), job.version()).start();
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int number = 0; number < tasks; number++) {
+                permits.acquireUninterruptibly();
+                var current = number;
+                executor.submit(observation.wrap(() -> {
+                    try {
+                        task.accept(current);
+                    } catch (RuntimeException e) {
+                        failures.put(current, e);
+                    } finally {
+                        permits.release();
+                    }
+                }));
+            }
+        } finally {
+            observation.stop();
+        }
+    }
+
+    /**
+     * Migrates the pages of a key range one after another, each after the last key of the previous one.
+     */
+    private void runRange(RegisteredJob job, PipelineJob<?, ?> pipelineJob, int range, KeyRange keyRange,
+                          Object[] resumeFrom, int batchSize, AtomicInteger pageNumbers,
+                          Map<Integer, RuntimeException> failures) {
+        var afterKey = resumeFrom;
+        while (true) {
+            var from = afterKey;
+            var page = pageNumbers.getAndIncrement();
+            var migrated = attempt(job, "range", range, failures, () -> {
+                var result = pageMigrator.migrate(job.name(), pipelineJob, page, keyRange, from, batchSize, job.version());
+                if (result.rows() > 0) {
+                    checkpointStore.rangeCommitted(job.name(), job.version(), range, result.lastKey(), result.rows());
+                }
+                return result;
+            });
+            if (migrated == null || migrated.rows() < batchSize) {
+                return;
+            }
+            afterKey = migrated.lastKey();
+        }
+    }
+
+    /**
+     * Runs one page in its own transaction, retried up to {@code migrator.parallel.max-attempts} times.
+     *
+     * @return what the page returned, null when it failed for good; the failure is then recorded under the number.
+     */
+    private <R> R attempt(RegisteredJob job, String unit, int number, Map<Integer, RuntimeException> failures,
+                          Supplier<R> page) {
+        var parallel = migratorProperties.getParallel();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> page.get());
+            } catch (RuntimeException e) {
+                if (attempt >= parallel.getMaxAttempts()) {
+                    log.error("########### {} {} {} failed after {} attempts", job.name(), unit, number, attempt, e);
+                    failures.put(number, e);
+                    return null;
+                }
+                log.warn("########### {} {} {} failed on attempt {}, retrying", job.name(), unit, number, attempt, e);
+                if (!sleep(parallel.getRetryBackoff().multipliedBy(attempt).toMillis())) {
+                    failures.put(number, e);
+                    return null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs one page. Pipeline jobs are driven by the {@link PageMigrator} so the written rows can be counted; other
+     * jobs go through {@code migrate} and report no row count.
+     */
+    private long migratePage(RegisteredJob job, int page, int batchSize) {
+        if (job.job() instanceof PipelineJob<?, ?> pipelineJob) {
+            return pageMigrator.migrate(job.name(), pipelineJob, page, batchSize, job.version());
+        }
+        return migrationMetrics.page(job.name(), job.version(), page, () -> {
+            job.job().migrate(page, batchSize, job.version());
+            return 0L;
+        });
+    }
+
+    int concurrency() {
+        var poolBound = Math.min(mysqlDataSource.getMaximumPoolSize(), postgresDataSource.getMaximumPoolSize());
+        var configured = migratorProperties.getParallel().getMaxConcurrency();
+        return Math.max(1, configured > 0 ? Math.min(configured, poolBound) : poolBound);
+    }
+
+    private static boolean sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.demo.app.migration.executor;
+
+import com.avx.migration.jobs.spec.Job;
+
+/**
+ * A job bean together with its {@code @Executable} metadata.
+ *
+ * @param name    the bean name, e.g. "UserJobV1.0.0".
+ * @param version the version the job belongs to.
+ * @param order   the position of the job within its version.
+ * @param job     the job itself.
+ */
+public record RegisteredJob(String name, String version, int order, Job<?> job) {
+}
@@ -0,0 +1,234 @@
+package com.example.demo.app.migration.incremental;
+
+import com.example.demo.app.config.MigratorProperties;
+import com.example.demo.app.migration.checkpoint.CheckpointStore;
+import com.example.demo.app.migration.metrics.MigrationMetrics;
+import com.example.demo.app.migration.reader.KeysetPageReader;
+import com.example.demo.app.migration.reader.SourceMapping;
+import com.example.demo.app.migration.reader.SourceThrottle;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Re-reads the source rows of an {@link IncrementalJob} changed since its previous sync and upserts them.
+ *
+ * <p>Rows are read in {@code (change column, primary key)} order and seek on that pair, so rows sharing a timestamp
+ * are neither skipped nor read twice:
+ * <pre>
+ * SELECT updated_at, id, ... FROM user WHERE (updated_at, id) > (?, ?) ORDER BY updated_at, id LIMIT 5000
+ * </pre>
+ * Every page is upserted in its own postgres transaction together with the new watermark, the position of its last
+ * row kept by the {@link CheckpointStore} in the history database. The watermark is first set by {@link #baseline}
+ * before the bulk run. A job without one is not synced: reading its whole table again would re-upsert every row, and
+ * a watermark set after its bulk run would miss the rows changed during it.
+ * The insert jobs upsert on the source id, so {@code migrator.source-id-column} is required and must have been
+ * filled by the bulk run.
+ *
+ * <p>Rows committed on the source with a change value lower than one already synced (long transactions, clock skew)
+ * are caught by {@code migrator.incremental.overlap}: with a timestamp change column each sync starts that much
+ * before the watermark and upserts the overlapping rows again.
+ */
+@Slf4j
+@Component
+public class DeltaSync {
+    private final JdbcTemplate mysqlJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final CheckpointStore checkpointStore;
+    private final KeysetPageReader keysetPageReader;
+    private final MigrationMetrics migrationMetrics;
+    private final SourceThrottle sourceThrottle;
+    private final MigratorProperties.Incremental settings;
+
+    public DeltaSync(@Qualifier("mysqlJdbcTemplate") JdbcTemplate mysqlJdbcTemplate,
+                     @Qualifier("postgresTransactionManager") PlatformTransactionManager postgresTransactionManager,
+                     CheckpointStore checkpointStore,
+                     KeysetPageReader keysetPageReader,
+                     MigrationMetrics migrationMetrics,
+                     SourceThrottle sourceThrottle,
+                     MigratorProperties migratorProperties) {
+        this.mysqlJdbcTemplate = mysqlJdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(postgresTransactionManager);
+        this.checkpointStore = checkpointStore;
+        this.keysetPageReader = keysetPageReader;
+        this.migrationMetrics = migrationMetrics;
+        this.sourceThrottle = sourceThrottle;
+        this.settings = migratorProperties.getIncremental();
+        if (settings.isEnabled() && migratorProperties.getSourceIdColumn().isBlank()) {
+            throw new IllegalStateException("migrator.incremental needs migrator.source-id-column, "
+                    + "the target column changed rows are matched on");
+        }
+    }
+
+    /**
+     * Sets the watermark of a job that has none to the current last row of its source table, so that a sync after
+     * the bulk run only reads rows changed since the bulk run started. Call it right before the bulk run. An empty
+     * table gets an empty watermark: every row a sync finds was added after the bulk run started.
+     *
+     * @param name    the job name.
+     * @param job     the job.
+     * @param version the migration version.
+     */
+    public void baseline(String name, IncrementalJob<?, ?> job, String version) {
+        if (checkpointStore.watermark(name, version).isPresent()) {
+            return;
+        }
+        var seekColumns = seekColumns(job);
+        var descending = seekColumns.stream().map(column -> SourceMapping.quote(column) + " DESC").collect(Collectors.joining(", "));
+        var sql = "SELECT " + seekColumns.stream().map(SourceMapping::quote).collect(Collectors.joining(", ")) + " FROM "
+                + SourceMapping.quote(job.source().table()) + " ORDER BY " + descending + " LIMIT 1";
+        var positions = mysqlJdbcTemplate.query(sql, (resultSet, rowNum) -> {
+            var position = new Object[seekColumns.size()];
+            for (int i = 0; i < position.length; i++) {
+                position[i] = resultSet.getObject(i + 1);
+            }
+            return normalized(position);
+        });
+        var position = positions.isEmpty() ? new Object[0] : positions.getFirst();
+        checkpointStore.watermarkAdvanced(name, version, position);
+        log.info("########### {} watermark set to {} before its bulk run", name, position.length == 0 ? "its start" : position[0]);
+    }
+
+    /**
+     * Upserts the rows changed since the last sync of a job.
+     *
+     * @param name    the job name.
+     * @param job     the job.
+     * @param version the migration version.
+     * @return the rows upserted.
+     * @throws IllegalStateException if the job has no watermark.
+     */
+    public <S, T> long sync(String name, IncrementalJob<S, T> job, String version) {
+        var source = job.source();
+        var seekColumns = seekColumns(job);
+        var width = seekColumns.size();
+
+        var position = checkpointStore.watermark(name, version).map(this::overlapped)
+                .orElseThrow(() -> new IllegalStateException(name + " has no watermark for version " + version
+                        + ", its bulk run started before migrator.incremental was enabled"));
+        long synced = 0;
+        for (var page = 0; ; page++) {
+            var from = position;
+            var rows = new ArrayList<T>(settings.getPageSize());
+            var last = new Object[width];
+            sourceThrottle.read(() -> {
+                mysqlJdbcTemplate.query(select(source, seekColumns, from), resultSet -> {
+                    rows.add(job.transform(source.map(resultSet, width), version));
+                    for (int i = 0; i < width; i++) {
+                        last[i] = resultSet.getObject(i + 1);
+                    }
+                }, from);
+                return rows.size();
+            });
+            if (rows.isEmpty()) {
+                break;
+            }
+            normalized(last);
+
+            migrationMetrics.rowsRead(name, version, rows.size());
+            migrationMetrics.page(name, version, page, () -> transactionTemplate.execute(status -> {
+                job.upsert(rows, version);
+                checkpointStore.watermarkAdvanced(name, version, last);
+                return null;
+            }));
+            migrationMetrics.rowsWritten(name, version, rows.size());
+            synced += rows.size();
+            position = last;
+            if (rows.size() < settings.getPageSize()) {
+                break;
+            }
+        }
+        log.info("########### {} synced {} changed rows for version {}", name, synced, version);
+        return synced;
+    }
+
+    /**
+     * Checks that the change column of a job exists in its source table and leads one of its indexes, so that syncs
+     * seek on it instead of scanning the table.
+     *
+     * @param job the job.
+     * @throws IllegalStateException if it does not.
+     */
+    public void validate(IncrementalJob<?, ?> job) {
+        var table = job.source().table();
+        var column = changeColumn(job);
+        var columns = mysqlJdbcTemplate.queryForObject("""
+                SELECT count(*) FROM information_schema.COLUMNS
+                WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND COLUMN_NAME = ?
+                """, Long.class, table, column);
+        if (columns == null || columns == 0) {
+            throw new IllegalStateException("Source table " + table + " has no change column " + column
+                    + ", see migrator.incremental.change-columns");
+        }
+        var indexes = mysqlJdbcTemplate.queryForObject("""
+                SELECT count(*) FROM information_schema.STATISTICS
+                WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND COLUMN_NAME = ? AND SEQ_IN_INDEX = 1
+                """, Long.class, table, column);
+        if (indexes == null || indexes == 0) {
+            throw new IllegalStateException("Change column " + column + " of " + table
+                    + " leads no index, every sync would scan the table");
+        }
+    }
+
+    private String changeColumn(IncrementalJob<?, ?> job) {
+        return settings.getChangeColumns().getOrDefault(job.source().table(), settings.getChangeColumn());
+    }
+
+    private List<String> seekColumns(IncrementalJob<?, ?> job) {
+        var table = job.source().table();
+        var key = keysetPageReader.primaryKeyColumns(table);
+        if (key.isEmpty()) {
+            throw new IllegalStateException("Source table " + table + " needs a primary key to be synced incrementally");
+        }
+        var seekColumns = new ArrayList<String>();
+        seekColumns.add(changeColumn(job));
+        seekColumns.addAll(key);
+        return seekColumns;
+    }
+
+    /**
+     * Stores timestamps as {@link LocalDateTime}, which MySQL compares with DATETIME and TIMESTAMP columns and
+     * {@link #overlapped} can move back.
+     */
+    private static Object[] normalized(Object[] position) {
+        if (position[0] instanceof Timestamp timestamp) {
+            position[0] = timestamp.toLocalDateTime();
+        }
+        return position;
+    }
+
+    /**
+     * Moves a stored watermark back by the configured overlap when its change value is a timestamp. The key part is
+     * dropped then, so the read starts at the first row of that instant.
+     */
+    private Object[] overlapped(Object[] watermark) {
+        if (!settings.getOverlap().isZero() && watermark.length > 0 && watermark[0] instanceof LocalDateTime time) {
+            return new Object[]{time.minus(settings.getOverlap())};
+        }
+        return watermark;
+    }
+
+    private String select(SourceMapping<?> source, List<String> seekColumns, Object[] from) {
+        var orderBy = seekColumns.stream().map(SourceMapping::quote).collect(Collectors.joining(", "));
+        var sql = new StringBuilder("SELECT ").append(orderBy).append(", ").append(source.quotedColumns())
+                .append(" FROM ").append(SourceMapping.quote(source.table()));
+        if (from.length == 0) {
+            sql.append(" WHERE ").append(SourceMapping.quote(seekColumns.getFirst())).append(" IS NOT NULL");
+        } else if (from.length == 1) {
+            sql.append(" WHERE ").append(SourceMapping.quote(seekColumns.getFirst())).append(" >= ?");
+        } else {
+            var parameters = seekColumns.stream().map(column -> "?").collect(Collectors.joining(", "));
+            sql.append(" WHERE (").append(orderBy).append(") > (").append(parameters).append(")");
+        }
+        return sql.append(" ORDER BY ").append(orderBy).append(" LIMIT ").append(settings.getPageSize()).toString();
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.demo.app.migration.incremental;
+
+import com.example.demo.app.migration.checkpoint.CheckpointStore;
+import com.example.demo.app.migration.executor.JobRegistry;
+import com.example.demo.app.migration.writer.EnrichIndexDecorator;
+import com.example.demo.app.migration.writer.UpsertIndexDecorator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Polls the {@link IncrementalJob}s of the configured {@code migration.versions} every
+ * {@code migrator.incremental.poll-interval}, so the target keeps up with the source between the bulk run and the
+ * cutover.
+ *
+ * <p>Versions are synced in their configured order and jobs in their {@code @Executable} order. A job is only synced
+ * once its bulk run has completed, whatever the executor: under {@code SEQUENTIAL} the {@code PageMigrator} marks it
+ * completed after its last page. A job without a watermark, whose bulk run started before the delta sync was enabled,
+ * is skipped: roll it back and run it again to sync it. A failing job is logged and retried on the next poll.
+ */
+@Slf4j
+@Component
+@EnableScheduling
+@ConditionalOnProperty(prefix = "migrator.incremental", name = "enabled", havingValue = "true")
+public class DeltaSyncScheduler {
+    private final Environment environment;
+    private final JobRegistry jobRegistry;
+    private final CheckpointStore checkpointStore;
+    private final DeltaSync deltaSync;
+
+    /**
+     * Checks the change column of every incremental job up front, so a missing or unindexed one fails the startup
+     * instead of every poll, and creates the indexes their enrichments and upserts match on.
+     */
+    public DeltaSyncScheduler(Environment environment, JobRegistry jobRegistry, CheckpointStore checkpointStore,
+                              DeltaSync deltaSync, EnrichIndexDecorator enrichIndexDecorator,
+                              UpsertIndexDecorator upsertIndexDecorator) {
+        this.environment = environment;
+        this.jobRegistry = jobRegistry;
+        this.checkpointStore = checkpointStore;
+        this.deltaSync = deltaSync;
+        for (var version : versions()) {
+            for (var job : jobRegistry.jobsOf(version)) {
+                if (job.job() instanceof IncrementalJob<?, ?> incrementalJob) {
+                    deltaSync.validate(incrementalJob);
+                    enrichIndexDecorator.prepare(incrementalJob);
+                    upsertIndexDecorator.prepare(incrementalJob, version);
+                }
+            }
+        }
+    }
+
+    @Scheduled(initialDelayString = "${migrator.incremental.poll-interval:1m}",
+            fixedDelayString = "${migrator.incremental.poll-interval:1m}")
+    public void poll() {
+        for (var version : versions()) {
+            for (var job : jobRegistry.jobsOf(version)) {
+                if (!(job.job() instanceof IncrementalJob<?, ?> incrementalJob)) {
+                    continue;
+                }
+                if (!checkpointStore.isCompleted(job.name(), version)) {
+                    log.info("########### {} has not completed version {} yet, not syncing it", job.name(), version);
+                    continue;
+                }
+                if (checkpointStore.watermark(job.name(), version).isEmpty()) {
+                    log.warn("########### {} has no watermark for version {}, roll it back and run it again to sync it",
+                            job.name(), version);
+                    continue;
+                }
+                try {
+                    deltaSync.sync(job.name(), incrementalJob, version);
+                } catch (RuntimeException e) {
+                    log.error("########### delta sync of {} failed for version {}", job.name(), version, e);
+                }
+            }
+        }
+    }
+
+    private List<String> versions() {
+        return Binder.get(environment).bind("migration.versions", Bindable.listOf(String.class)).get();
+    }
+}
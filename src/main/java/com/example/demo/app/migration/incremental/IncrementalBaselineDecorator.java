@@ -0,0 +1,41 @@
+package com.example.demo.app.migration.incremental;
+
+import com.example.demo.app.config.MigratorProperties;
+import com.example.demo.app.migration.executor.ExecutionDecorator;
+import com.example.demo.app.migration.executor.RegisteredJob;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * With {@code migrator.incremental.enabled}, sets the watermark of every pending {@link IncrementalJob} before the
+ * bulk run starts, see {@link DeltaSync#baseline}. Under {@code SEQUENTIAL} the {@code PageMigrator} sets it before a
+ * job's first page instead.
+ */
+@Component
+@RequiredArgsConstructor
+public class IncrementalBaselineDecorator implements ExecutionDecorator {
+    private final MigratorProperties migratorProperties;
+    private final DeltaSync deltaSync;
+
+    @Override
+    public void prepare(List<RegisteredJob> pending) {
+        for (var job : pending) {
+            prepare(job.name(), job.job(), job.version());
+        }
+    }
+
+    /**
+     * Sets the watermark of one job, when it is incremental and has none yet.
+     *
+     * @param name    the job name.
+     * @param job     the job.
+     * @param version the migration version.
+     */
+    public void prepare(String name, Object job, String version) {
+        if (migratorProperties.getIncremental().isEnabled() && job instanceof IncrementalJob<?, ?> incrementalJob) {
+            deltaSync.baseline(name, incrementalJob, version);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.demo.app.migration.incremental;
+
+import com.example.demo.app.migration.pipeline.PipelineJob;
+
+import java.util.List;
+
+/**
+ * A pipeline job that can be kept in sync after its bulk run by re-reading only the source rows changed since the
+ * previous sync, see {@link DeltaSync}. The column tracking changes is configured per source table, see
+ * {@code migrator.incremental.change-column}.
+ *
+ * @param <S> the type source rows are mapped to.
+ * @param <T> the type produced by {@code transform} and consumed by {@link #upsert}.
+ */
+public interface IncrementalJob<S, T> extends PipelineJob<S, T> {
+
+    /**
+     * Writes changed rows so that rows migrated before are updated instead of inserted twice. The default suits
+     * jobs whose {@code write} already updates matched rows and inserts the others.
+     *
+     * @param rows    the transformed changed rows.
+     * @param version the migration version.
+     */
+    default void upsert(List<T> rows, String version) {
+        write(rows, version);
+    }
+}
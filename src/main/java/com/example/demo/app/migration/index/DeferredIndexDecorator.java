@@ -0,0 +1,53 @@
+package com.example.demo.app.migration.index;
+
+import com.example.demo.app.config.MigratorProperties;
+import com.example.demo.app.migration.executor.ExecutionDecorator;
+import com.example.demo.app.migration.executor.RegisteredJob;
+import com.example.demo.app.migration.rollback.RollbackJob;
+import com.example.demo.app.migration.rollback.RollbackStep;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * With {@code migrator.deferred-indexes.enabled}, defers the secondary indexes and foreign keys of the tables a group
+ * of jobs inserts into until the group ends, see {@link DeferredIndexManager}. Tables only updated by the jobs keep
+ * their indexes, which the enrich joins need. Whatever a crashed run left dropped is rebuilt before the first job.
+ */
+@Component
+@RequiredArgsConstructor
+public class DeferredIndexDecorator implements ExecutionDecorator {
+    private final MigratorProperties migratorProperties;
+    private final DeferredIndexManager deferredIndexManager;
+
+    @Override
+    public void prepare(List<RegisteredJob> pending) {
+        if (migratorProperties.getDeferredIndexes().isEnabled()) {
+            deferredIndexManager.restore();
+        }
+    }
+
+    @Override
+    public void aroundJobs(List<RegisteredJob> jobs, Runnable run) {
+        if (!migratorProperties.getDeferredIndexes().isEnabled()) {
+            run.run();
+            return;
+        }
+        var loaded = new LinkedHashSet<String>();
+        for (var job : jobs) {
+            if (job.job() instanceof RollbackJob rollbackJob) {
+                rollbackJob.rollbackSteps(job.version()).stream()
+                        .filter(RollbackStep::isDelete)
+                        .forEach(step -> loaded.add(step.table()));
+            }
+        }
+        deferredIndexManager.defer(loaded);
+        try {
+            run.run();
+        } finally {
+            deferredIndexManager.restore();
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.example.demo.app.migration.index;
+
+import com.example.demo.app.config.MigratorProperties;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Stream;
+
+/**
+ * Drops the secondary indexes and foreign keys of target tables before a bulk load and rebuilds them afterwards,
+ * so that Postgres builds each index once from the loaded rows instead of maintaining it row by row.
+ *
+ * <p>Deferred are:
+ * <ul>
+ *     <li>indexes that are neither primary keys, unique nor backing a constraint;</li>
+ *     <li>foreign keys, which are re-added {@code NOT VALID} and then validated, without blocking writes.</li>
+ * </ul>
+ * Primary keys and unique indexes stay: they guard the loaded data and upserts rely on them.
+ *
+ * <p>Definitions are stored in the {@code migrator_deferred_index} table of the history database before anything
+ * is dropped, and removed once rebuilt, so that {@link #restore()} can rebuild whatever a crashed run left dropped.
+ * Indexes are rebuilt with {@code CREATE INDEX CONCURRENTLY}, several at a time on virtual threads, bounded by
+ * {@code migrator.deferred-indexes.max-concurrency} and the postgres pool size; foreign keys follow once their
+ * indexes are back.
+ */
+@Slf4j
+@Component
+public class DeferredIndexManager {
+    private final MigratorProperties migratorProperties;
+    private final JdbcTemplate postgresJdbcTemplate;
+    private final HikariDataSource postgresDataSource;
+    private final JdbcTemplate historyJdbcTemplate;
+
+    public DeferredIndexManager(MigratorProperties migratorProperties,
+                                @Qualifier("postgresJdbcTemplate") JdbcTemplate postgresJdbcTemplate,
+                                @Qualifier("postgresDataSource") HikariDataSource postgresDataSource,
+                                @Qualifier("historyJdbcTemplate") JdbcTemplate historyJdbcTemplate) {
+        this.migratorProperties = migratorProperties;
+        this.postgresJdbcTemplate = postgresJdbcTemplate;
+        this.postgresDataSource = postgresDataSource;
+        this.historyJdbcTemplate = historyJdbcTemplate;
+        historyJdbcTemplate.execute("""
+                CREATE TABLE IF NOT EXISTS migrator_deferred_index (
+                    table_name VARCHAR(255) NOT NULL,
+                    name VARCHAR(255) NOT NULL,
+                    kind VARCHAR(16) NOT NULL,
+                    definition VARCHAR(4096) NOT NULL,
+                    dropped_at TIMESTAMP NOT NULL,
+                    PRIMARY KEY (table_name, name)
+                )
+                """);
+    }
+
+    /**
+     * Records then drops the secondary indexes and foreign keys of target tables.
+     *
+     * @param tables the target tables about to be bulk loaded.
+     */
+    public void defer(Collection<String> tables) {
+        for (var table : tables) {
+            var deferred = capture(table);
+            var now = Timestamp.from(Instant.now());
+            for (var definition : deferred) {
+                historyJdbcTemplate.update("""
+                                INSERT INTO migrator_deferred_index (table_name, name, kind, definition, dropped_at)
+                                VALUES (?, ?, ?, ?, ?)
+                                """,
+                        definition.table(), definition.name(), definition.kind().name(), definition.definition(), now);
+            }
+            for (var definition : deferred) {
+                postgresJdbcTemplate.execute(definition.kind() == Kind.FOREIGN_KEY
+                        ? "ALTER TABLE " + table + " DROP CONSTRAINT IF EXISTS " + definition.name()
+                        : "DROP INDEX IF EXISTS " + definition.name());
+            }
+            if (!deferred.isEmpty()) {
+                log.info("########### deferred {} indexes and constraints of {}: {}", deferred.size(), table,
+                        deferred.stream().map(Definition::name).toList());
+            }
+        }
+    }
+
+    /**
+     * Rebuilds every index and foreign key recorded as deferred, whichever run deferred it.
+     *
+     * @throws IllegalStateException if some could not be rebuilt; they stay recorded and are retried next time.
+     */
+    public void restore() {
+        var deferred = historyJdbcTemplate.query(
+                "SELECT table_name, name, kind, definition FROM migrator_deferred_index ORDER BY table_name, name",
+                (resultSet, rowNum) -> new Definition(resultSet.getString(1), resultSet.getString(2),
+                        Kind.valueOf(resultSet.getString(3)), resultSet.getString(4)));
+        if (deferred.isEmpty()) {
+            return;
+        }
+        log.info("########### rebuilding {} deferred indexes and constraints", deferred.size());
+        var failures = new ConcurrentSkipListMap<String, RuntimeException>();
+        rebuild(deferred.stream().filter(definition -> definition.kind() == Kind.INDEX).toList(), failures);
+        rebuild(deferred.stream().filter(definition -> definition.kind() == Kind.FOREIGN_KEY).toList(), failures);
+        if (!failures.isEmpty()) {
+            throw new IllegalStateException("Could not rebuild deferred " + failures.keySet(), failures.firstEntry().getValue());
+        }
+    }
+
+    private void rebuild(List<Definition> definitions, ConcurrentSkipListMap<String, RuntimeException> failures) {
+        var permits = new Semaphore(concurrency());
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (var definition : definitions) {
+                permits.acquireUninterruptibly();
+                executor.submit(() -> {
+                    try {
+                        var start = System.nanoTime();
+                        rebuild(definition);
+                        historyJdbcTemplate.update("DELETE FROM migrator_deferred_index WHERE table_name = ? AND name = ?",
+                                definition.table(), definition.name());
+                        log.info("########### rebuilt {} on {} in {} ms", definition.name(), definition.table(),
+                                (System.nanoTime() - start) / 1_000_000);
+                    } catch (RuntimeException e) {
+                        log.error("########### rebuilding {} on {} failed", definition.name(), definition.table(), e);
+                        failures.put(definition.name(), e);
+                    } finally {
+                        permits.release();
+                    }
+                });
+            }
+        }
+    }
+
+    private void rebuild(Definition definition) {
+        if (definition.kind() == Kind.FOREIGN_KEY) {
+            var exists = postgresJdbcTemplate.queryForObject(
+                    "SELECT count(*) FROM pg_constraint WHERE conrelid = to_regclass(?) AND conname = ?",
+                    Long.class, definition.table(), definition.name());
+            if (exists == null || exists == 0) {
+                postgresJdbcTemplate.execute("ALTER TABLE " + definition.table() + " ADD CONSTRAINT " + definition.name()
+                        + " " + definition.definition() + " NOT VALID");
+            }
+            postgresJdbcTemplate.execute("ALTER TABLE " + definition.table() + " VALIDATE CONSTRAINT " + definition.name());
+            return;
+        }
+        // an interrupted CREATE INDEX CONCURRENTLY leaves an invalid index behind, which IF NOT EXISTS would keep
+        var invalid = postgresJdbcTemplate.queryForList(
+                "SELECT 1 FROM pg_index WHERE indexrelid = to_regclass(?) AND NOT indisvalid", Integer.class, definition.name());
+        if (!invalid.isEmpty()) {
+            postgresJdbcTemplate.execute("DROP INDEX CONCURRENTLY IF EXISTS " + definition.name());
+        }
+        postgresJdbcTemplate.execute(definition.definition()
+                .replaceFirst("^CREATE INDEX ", "CREATE INDEX CONCURRENTLY IF NOT EXISTS "));
+    }
+
+    private List<Definition> capture(String table) {
+        var indexes = postgresJdbcTemplate.query("""
+                        SELECT c.relname, pg_get_indexdef(i.indexrelid) FROM pg_index i
+                        JOIN pg_class c ON c.oid = i.indexrelid
+                        WHERE i.indrelid = to_regclass(?) AND NOT i.indisprimary AND NOT i.indisunique
+                        AND NOT EXISTS (SELECT 1 FROM pg_constraint k WHERE k.conindid = i.indexrelid)
+                        ORDER BY c.relname
+                        """,
+                (resultSet, rowNum) -> new Definition(table, resultSet.getString(1), Kind.INDEX, resultSet.getString(2)),
+                table);
+        var foreignKeys = postgresJdbcTemplate.query("""
+                        SELECT conname, pg_get_constraintdef(oid) FROM pg_constraint
+                        WHERE conrelid = to_regclass(?) AND contype = 'f'
+                        ORDER BY conname
+                        """,
+                (resultSet, rowNum) -> new Definition(table, resultSet.getString(1), Kind.FOREIGN_KEY, resultSet.getString(2)),
+                table);
+        // foreign keys first, so they are dropped before an index they may rely on
+        return Stream.concat(foreignKeys.stream(), indexes.stream()).toList();
+    }
+
+    private int concurrency() {
+        var poolBound = postgresDataSource.getMaximumPoolSize();
+        var configured = migratorProperties.getDeferredIndexes().getMaxConcurrency();
+        return Math.max(1, configured > 0 ? Math.min(configured, poolBound) : poolBound);
+    }
+
+    private enum Kind {
+        INDEX,
+        FOREIGN_KEY
+    }
+
+    /**
+     * A deferred index or foreign key.
+     *
+     * @param table      the table it belongs to.
+     * @param name       the index or constraint name.
+     * @param kind       what it is.
+     * @param definition {@code pg_get_indexdef} of an index, {@code pg_get_constraintdef} of a foreign key.
+     */
+    private record Definition(String table, String name, Kind kind, String definition) {
+    }
+}
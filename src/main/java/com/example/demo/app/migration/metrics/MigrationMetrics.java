@@ -0,0 +1,143 @@
+package com.example.demo.app.migration.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Micrometer meters and observations of the migration, all tagged with {@code job} and {@code version}.
+ *
+ * <ul>
+ *     <li>{@code migrator.rows.read} / {@code migrator.rows.written}: counters, rates give rows per second.</li>
+ *     <li>{@code migrator.page.stage}: timer histogram of the {@code read}, {@code transform} and {@code write}
+ *     stages of a page.</li>
+ *     <li>{@code migrator.rows.remaining}: gauge of the estimated source size minus the rows written.</li>
+ *     <li>{@code migrator.rollback}: timer of job rollbacks.</li>
+ *     <li>{@code migrator.job} / {@code migrator.page}: observations, hence timers and tracing spans; a page
+ *     started while its job observation is current becomes a child span of the job.</li>
+ * </ul>
+ *
+ * <p>Connection acquisition of the {@code mysql} and {@code postgres} pools is published by actuator as
+ * {@code hikaricp.connections.acquire}, tagged with the pool name.
+ */
+@Component
+@RequiredArgsConstructor
+public class MigrationMetrics {
+    private final MeterRegistry meterRegistry;
+    private final ObservationRegistry observationRegistry;
+    private final Map<List<String>, AtomicLong> written = new ConcurrentHashMap<>();
+    private final Set<List<String>> tracked = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @return a not yet started observation of a whole job run.
+     */
+    public Observation job(String job, String version) {
+        return Observation.createNotStarted("migrator.job", observationRegistry)
+                .lowCardinalityKeyValue("job", job)
+                .lowCardinalityKeyValue("version", version);
+    }
+
+    /**
+     * Runs a page, or a streamed chunk, in a {@code migrator.page} observation.
+     */
+    public <T> T page(String job, String version, int page, Supplier<T> work) {
+        return Observation.createNotStarted("migrator.page", observationRegistry)
+                .lowCardinalityKeyValue("job", job)
+                .lowCardinalityKeyValue("version", version)
+                .highCardinalityKeyValue("page", String.valueOf(page))
+                .observe(work);
+    }
+
+    /**
+     * Times one stage of a page.
+     */
+    public <T> T stage(Stage stage, String job, String version, Supplier<T> work) {
+        return stageTimer(stage, job, version).record(work);
+    }
+
+    /**
+     * Records a stage duration measured by the caller, e.g. summed over the rows of a streamed chunk.
+     */
+    public void stage(Stage stage, String job, String version, long nanos) {
+        stageTimer(stage, job, version).record(Duration.ofNanos(nanos));
+    }
+
+    public void rowsRead(String job, String version, long rows) {
+        counter("migrator.rows.read", job, version).increment(rows);
+    }
+
+    public void rowsWritten(String job, String version, long rows) {
+        counter("migrator.rows.written", job, version).increment(rows);
+        writtenOf(job, version).addAndGet(rows);
+    }
+
+    /**
+     * Publishes {@code migrator.rows.remaining} for a job, once per job and version.
+     *
+     * @param total the estimated number of source rows.
+     */
+    public void trackRemaining(String job, String version, LongSupplier total) {
+        if (tracked.add(List.of(job, version))) {
+            var rows = writtenOf(job, version);
+            Gauge.builder("migrator.rows.remaining", () -> Math.max(0, total.getAsLong() - rows.get()))
+                    .tag("job", job)
+                    .tag("version", version)
+                    .baseUnit("rows")
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Times the rollback of a job.
+     */
+    public <T> T rollback(String job, String version, Supplier<T> work) {
+        return Timer.builder("migrator.rollback")
+                .tag("job", job)
+                .tag("version", version)
+                .register(meterRegistry)
+                .record(work);
+    }
+
+    private Timer stageTimer(Stage stage, String job, String version) {
+        return Timer.builder("migrator.page.stage")
+                .tag("job", job)
+                .tag("version", version)
+                .tag("stage", stage.tag())
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private Counter counter(String name, String job, String version) {
+        return Counter.builder(name)
+                .tag("job", job)
+                .tag("version", version)
+                .baseUnit("rows")
+                .register(meterRegistry);
+    }
+
+    private AtomicLong writtenOf(String job, String version) {
+        return written.computeIfAbsent(List.of(job, version), key -> new AtomicLong());
+    }
+
+    public enum Stage {
+        READ, TRANSFORM, WRITE;
+
+        String tag() {
+            return name().toLowerCase();
+        }
+    }
+}
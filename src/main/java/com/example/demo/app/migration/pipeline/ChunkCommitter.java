@@ -0,0 +1,82 @@
+package com.example.demo.app.migration.pipeline;
+
+import com.example.demo.app.config.MigratorProperties;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Writes the rows of a page in postgres transactions of {@code migrator.commit-interval} rows.
+ *
+ * <p>The commit interval is independent of {@code migration.batch-size}: a page is split into as many chunks as
+ * needed, and a page smaller than the interval commits once. At each chunk boundary the postgres persistence
+ * context is flushed and cleared, so nothing accumulates across chunks.
+ *
+ * <p>A failing chunk is rolled back and logged with its row range; the remaining chunks are still written and
+ * the failed ones are reported together with a {@link ChunkWriteException}.
+ *
+ * <p>When called inside an existing transaction (the {@code PARALLEL} and {@code ADAPTIVE} executors run each page in
+ * one, together with its checkpoint) the page is not split: it is written with a single call and the failure is left
+ * to the caller, which rolls back and retries the whole page. Chunks joining the page transaction could not commit
+ * on their own anyway, and a failed one would mark the whole transaction rollback-only.
+ */
+@Slf4j
+@Component
+public class ChunkCommitter {
+    private final MigratorProperties migratorProperties;
+    private final TransactionTemplate transactionTemplate;
+    @PersistenceContext(unitName = "postgres")
+    private EntityManager postgresEntityManager;
+
+    public ChunkCommitter(MigratorProperties migratorProperties,
+                          @Qualifier("postgresTransactionManager") PlatformTransactionManager postgresTransactionManager) {
+        this.migratorProperties = migratorProperties;
+        this.transactionTemplate = new TransactionTemplate(postgresTransactionManager);
+    }
+
+    /**
+     * Writes rows chunk by chunk, or at once within an existing transaction.
+     *
+     * @param job    the job name, for reporting.
+     * @param page   the page the rows belong to, for reporting.
+     * @param rows   the rows of the page.
+     * @param writer writes one chunk.
+     * @param <T>    the row type.
+     * @throws ChunkWriteException if some chunks failed; within an existing transaction, the writer's failure as is.
+     */
+    public <T> void write(String job, int page, List<T> rows, Consumer<List<T>> writer) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            writer.accept(rows);
+            postgresEntityManager.flush();
+            postgresEntityManager.clear();
+            return;
+        }
+        var interval = Math.max(1, migratorProperties.getCommitInterval());
+        var failures = new ArrayList<ChunkWriteException.FailedChunk>();
+        for (int from = 0; from < rows.size(); from += interval) {
+            var chunk = rows.subList(from, Math.min(from + interval, rows.size()));
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    writer.accept(chunk);
+                    postgresEntityManager.flush();
+                    postgresEntityManager.clear();
+                });
+            } catch (RuntimeException e) {
+                log.error("########### {} page {} rows {}..{} failed", job, page, from, from + chunk.size() - 1, e);
+                failures.add(new ChunkWriteException.FailedChunk(from, chunk.size(), e));
+            }
+        }
+        if (!failures.isEmpty()) {
+            throw new ChunkWriteException(job, page, failures);
+        }
+    }
+}
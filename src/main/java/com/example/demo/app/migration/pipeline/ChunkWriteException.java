@@ -0,0 +1,32 @@
+package com.example.demo.app.migration.pipeline;
+
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Thrown when chunks of a page could not be written; the other chunks of the page are committed.
+ */
+@Getter
+public class ChunkWriteException extends RuntimeException {
+    private final String job;
+    private final int page;
+    private final List<FailedChunk> failedChunks;
+
+    public ChunkWriteException(String job, int page, List<FailedChunk> failedChunks) {
+        super("Job " + job + " page " + page + " failed on " + failedChunks.size() + " chunk(s)", failedChunks.getFirst().cause());
+        this.job = job;
+        this.page = page;
+        this.failedChunks = failedChunks;
+    }
+
+    /**
+     * A chunk that was rolled back.
+     *
+     * @param firstRow index of its first row within the page.
+     * @param rows     number of rows in the chunk.
+     * @param cause    the failure.
+     */
+    public record FailedChunk(int firstRow, int rows, RuntimeException cause) {
+    }
+}
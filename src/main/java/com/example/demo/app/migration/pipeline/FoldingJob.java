@@ -0,0 +1,28 @@
+package com.example.demo.app.migration.pipeline;
+
+/**
+ * A pipeline job whose change can be applied directly to the entity an earlier version's job inserts for the same
+ * source row, so that a fused scan writes the row once in its final state instead of inserting then updating it.
+ *
+ * <p>Folding must leave the row exactly as running the job on its own after the earlier one would, version column
+ * included, so that rolling back either version still finds what it expects.
+ *
+ * @param <S> the type source rows are mapped to.
+ * @param <E> the entity type of the earlier job the change folds into.
+ */
+public interface FoldingJob<S, E> {
+
+    /**
+     * @return the entity type this job folds into.
+     */
+    Class<E> entityType();
+
+    /**
+     * Applies the job's change to an entity not written yet.
+     *
+     * @param source  the source row mapped by this job's {@code source()}.
+     * @param entity  the entity produced by the earlier job for the same source row.
+     * @param version the migration version of this job.
+     */
+    void fold(S source, E entity, String version);
+}
@@ -0,0 +1,130 @@
+package com.example.demo.app.migration.pipeline;
+
+import com.example.demo.app.config.MigratorProperties;
+import com.example.demo.app.migration.checkpoint.CheckpointStore;
+import com.example.demo.app.migration.incremental.IncrementalBaselineDecorator;
+import com.example.demo.app.migration.metrics.MigrationMetrics;
+import com.example.demo.app.migration.metrics.MigrationMetrics.Stage;
+import com.example.demo.app.migration.reader.KeyRange;
+import com.example.demo.app.migration.reader.KeysetPageReader;
+import com.example.demo.app.migration.reader.SourceSizeEstimator;
+import com.example.demo.app.migration.writer.EnrichIndexDecorator;
+import com.example.demo.app.migration.writer.UpsertIndexDecorator;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Migrates one page of a {@link PipelineJob}: reads it with the {@link KeysetPageReader}, transforms every row and
+ * writes the result through the {@link ChunkCommitter}.
+ *
+ * <p>The page runs in a {@code migrator.page} observation and each stage is timed, see {@link MigrationMetrics}.
+ *
+ * <p>Under the {@code SEQUENTIAL} executor db-migrator keeps the job history itself, so the app would not know when a
+ * job is done. There the job is marked completed in the {@link CheckpointStore} once its last page is migrated: a
+ * short page, or the last one planned from the source size. The delta sync waits for that mark. The indexes a
+ * job's writes rely on are also created there before its first page, outside the page transaction, see
+ * {@link EnrichIndexDecorator} and, with the {@code UPSERT} write mode, {@link UpsertIndexDecorator}. With the delta
+ * sync enabled, the job's watermark is set there too, see {@link IncrementalBaselineDecorator}.
+ */
+@Component
+@RequiredArgsConstructor
+public class PageMigrator {
+    private final KeysetPageReader keysetPageReader;
+    private final ChunkCommitter chunkCommitter;
+    private final SourceSizeEstimator sourceSizeEstimator;
+    private final MigrationMetrics migrationMetrics;
+    private final MigratorProperties migratorProperties;
+    private final CheckpointStore checkpointStore;
+    private final EnrichIndexDecorator enrichIndexDecorator;
+    private final UpsertIndexDecorator upsertIndexDecorator;
+    private final IncrementalBaselineDecorator incrementalBaselineDecorator;
+    private final Set<String> preparedJobs = ConcurrentHashMap.newKeySet();
+    private final Set<String> completedJobs = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param name    the job name, used as reader cursor and meter tag.
+     * @param job     the job.
+     * @param page    zero-based page number.
+     * @param size    page size.
+     * @param version the migration version.
+     * @return the number of written rows.
+     */
+    public <S, T> long migrate(String name, PipelineJob<S, T> job, int page, int size, String version) {
+        if (migratorProperties.getExecutor() == MigratorProperties.Executor.SEQUENTIAL
+                && preparedJobs.add(name + "@" + version)) {
+            incrementalBaselineDecorator.prepare(name, job, version);
+            enrichIndexDecorator.prepare(job);
+            if (migratorProperties.getWriteMode() == MigratorProperties.WriteMode.UPSERT) {
+                upsertIndexDecorator.prepare(job, version);
+            }
+        }
+        var rows = migrate(name, job, page, version, () -> keysetPageReader.read(name, job.source(), page, size));
+        if (migratorProperties.getExecutor() == MigratorProperties.Executor.SEQUENTIAL
+                && (rows < size || (page + 1L) * size >= sourceSizeEstimator.size(job.source().table()))
+                && completedJobs.add(name + "@" + version)) {
+            checkpointStore.completed(name, version);
+        }
+        return rows;
+    }
+
+    /**
+     * Migrates the page of a key range that follows a given key.
+     *
+     * @param name     the job name, used as meter tag.
+     * @param job      the job.
+     * @param page     a page number, for observations and reporting.
+     * @param range    the key range.
+     * @param afterKey the key of the last row already migrated from the range, null to start at its beginning.
+     * @param size     page size.
+     * @param version  the migration version.
+     * @return the number of written rows and the key of the last one.
+     */
+    public <S, T> MigratedPage migrate(String name, PipelineJob<S, T> job, int page, KeyRange range, Object[] afterKey,
+                                       int size, String version) {
+        var lastKey = new Object[1][];
+        var rows = migrate(name, job, page, version, () -> {
+            var keyed = keysetPageReader.read(job.source(), range, afterKey, size);
+            lastKey[0] = keyed.lastKey();
+            return keyed.rows();
+        });
+        return new MigratedPage(rows, lastKey[0]);
+    }
+
+    private <S, T> long migrate(String name, PipelineJob<S, T> job, int page, String version, Supplier<List<S>> read) {
+        migrationMetrics.trackRemaining(name, version, () -> sourceSizeEstimator.size(job.source().table()));
+        return migrationMetrics.page(name, version, page, () -> {
+            var rows = migrationMetrics.stage(Stage.READ, name, version, read);
+            migrationMetrics.rowsRead(name, version, rows.size());
+
+            var transformed = migrationMetrics.stage(Stage.TRANSFORM, name, version, () -> {
+                var results = new ArrayList<T>(rows.size());
+                for (var row : rows) {
+                    results.add(job.transform(row, version));
+                }
+                return results;
+            });
+
+            migrationMetrics.stage(Stage.WRITE, name, version, () -> {
+                chunkCommitter.write(name, page, transformed, chunk -> job.write(chunk, version));
+                return null;
+            });
+            migrationMetrics.rowsWritten(name, version, transformed.size());
+            return (long) transformed.size();
+        });
+    }
+
+    /**
+     * A page migrated from a key range.
+     *
+     * @param rows    the rows written.
+     * @param lastKey the source key of the last one, or the key the page started after when it is empty.
+     */
+    public record MigratedPage(long rows, Object[] lastKey) {
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.demo.app.migration.pipeline;
+
+import com.example.demo.app.migration.reader.SourceMapping;
+
+import java.util.List;
+
+/**
+ * A job split into its read, transform and write steps, so the engine can drive them itself instead of going
+ * through {@code migrate(page, size, version)}.
+ *
+ * <p>Jobs implement it next to {@code Job} and delegate {@code migrate} to the {@link PageMigrator}, which drives the
+ * same {@link #source}, {@link #transform} and {@link #write} methods, so the mapping code exists once whatever the
+ * execution mode.
+ *
+ * @param <S> the type source rows are mapped to by {@link #source}.
+ * @param <T> the type produced by {@link #transform} and consumed by {@link #write}.
+ */
+public interface PipelineJob<S, T> {
+
+    /**
+     * @return the MySQL source table, the columns the job reads from it and their mapping.
+     */
+    SourceMapping<S> source();
+
+    /**
+     * Turns one mapped source row into what the job writes.
+     *
+     * @param source  the mapped source row.
+     * @param version the migration version.
+     * @return the value to write.
+     */
+    T transform(S source, String version);
+
+    /**
+     * Writes a chunk of transformed values to PostgreSQL.
+     *
+     * @param chunk   the transformed values.
+     * @param version the migration version.
+     */
+    void write(List<T> chunk, String version);
+}
@@ -0,0 +1,280 @@
+package com.example.demo.app.migration.pipeline;
+
+import com.example.demo.app.config.MigratorProperties;
+import com.example.demo.app.migration.checkpoint.CheckpointStore;
+import com.example.demo.app.migration.executor.JobExecutor;
+import com.example.demo.app.migration.executor.RegisteredJob;
+import com.example.demo.app.migration.metrics.MigrationMetrics;
+import com.example.demo.app.migration.metrics.MigrationMetrics.Stage;
+import com.example.demo.app.migration.reader.KeysetPageReader;
+import com.example.demo.app.migration.reader.SourceMapping;
+import com.example.demo.app.migration.reader.SourceSizeEstimator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+/**
+ * Streams a whole source table through a reader → transform → writer pipeline.
+ *
+ * <p>The reader opens one server-side cursor on MySQL ({@code useCursorFetch} on the connection URL and a fetch
+ * size on the statement), selects only the columns of the job's {@link PipelineJob#source()} mapping and hands
+ * mapped rows to the transform stage through a bounded queue. The transform stage groups transformed rows into
+ * chunks and hands them to the writer through a second bounded queue; the writer commits one postgres
+ * transaction per chunk. Full queues block the stage feeding them, so heap use stays flat whatever the table
+ * size while reads overlap writes.
+ *
+ * <p>When the table has a primary key the cursor reads in key order and every chunk is recorded by the
+ * {@link CheckpointStore} with the key of its last row, inside the chunk transaction. A restarted run continues
+ * after the last recorded key instead of from the start of the table. A table without a primary key is read in no
+ * particular order, so it cannot be resumed: its chunks are recorded without a key, and a run finding some refuses to
+ * start rather than load the rows committed before the interruption a second time. Roll the version back first.
+ *
+ * <p>A failing stage stops the others and the failure is rethrown to the caller. A stage hands its end marker on
+ * even when it fails, so the next stage stops waiting, but not when it was cancelled: the stage it feeds has then
+ * stopped taking from the queue, which may be full.
+ *
+ * <p>The run is a {@code migrator.job} observation and every chunk a {@code migrator.page} observation within it;
+ * rows read and transform time are recorded per chunk and write time measured per chunk, see
+ * {@link MigrationMetrics}. Reading is not timed separately as it overlaps the other stages.
+ */
+@Slf4j
+@Component
+public class StreamingPipeline implements JobExecutor {
+    private static final KeyedRow END_OF_ROWS = new KeyedRow(null, null);
+
+    private final MigratorProperties migratorProperties;
+    private final JdbcTemplate cursorJdbcTemplate;
+    private final TransactionTemplate postgresTransactionTemplate;
+    private final KeysetPageReader keysetPageReader;
+    private final CheckpointStore checkpointStore;
+    private final SourceSizeEstimator sourceSizeEstimator;
+    private final MigrationMetrics migrationMetrics;
+
+    public StreamingPipeline(MigratorProperties migratorProperties,
+                             @Qualifier("mysqlDataSource") DataSource mysqlDataSource,
+                             @Qualifier("postgresTransactionManager") PlatformTransactionManager postgresTransactionManager,
+                             KeysetPageReader keysetPageReader,
+                             CheckpointStore checkpointStore,
+                             SourceSizeEstimator sourceSizeEstimator,
+                             MigrationMetrics migrationMetrics) {
+        this.migratorProperties = migratorProperties;
+        this.keysetPageReader = keysetPageReader;
+        this.checkpointStore = checkpointStore;
+        this.sourceSizeEstimator = sourceSizeEstimator;
+        this.migrationMetrics = migrationMetrics;
+        this.cursorJdbcTemplate = new JdbcTemplate(mysqlDataSource);
+        this.cursorJdbcTemplate.setFetchSize(migratorProperties.getStreaming().getFetchSize());
+        this.postgresTransactionTemplate = new TransactionTemplate(postgresTransactionManager);
+    }
+
+    @Override
+    public MigratorProperties.Executor type() {
+        return MigratorProperties.Executor.STREAMING;
+    }
+
+    @Override
+    public void execute(RegisteredJob job, int batchSize) {
+        run((PipelineJob<?, ?>) job.job(), job.name(), job.version());
+    }
+
+    /**
+     * Streams the source table of a job into PostgreSQL.
+     *
+     * @param job     the job.
+     * @param name    the job name, for logging.
+     * @param version the migration version.
+     * @param <S>     the type source rows are mapped to.
+     * @param <T>     the type produced by the job's transform step.
+     * @return the number of written rows.
+     */
+    public <S, T> long run(PipelineJob<S, T> job, String name, String version) {
+        var observation = migrationMetrics.job(name, version).start();
+        try (var scope = observation.openScope()) {
+            return stream(job, name, version);
+        } catch (RuntimeException e) {
+            observation.error(e);
+            throw e;
+        } finally {
+            observation.stop();
+        }
+    }
+
+    private <S, T> long stream(PipelineJob<S, T> job, String name, String version) {
+        migrationMetrics.trackRemaining(name, version, () -> sourceSizeEstimator.size(job.source().table()));
+        var streaming = migratorProperties.getStreaming();
+        var key = keysetPageReader.primaryKeyColumns(job.source().table());
+        if (key.isEmpty() && !checkpointStore.committedPages(name, version).isEmpty()) {
+            throw new IllegalStateException(name + " was interrupted while streaming " + job.source().table()
+                    + ", which has no primary key to resume after; roll version " + version + " back and run it again");
+        }
+        var resumeFrom = key.isEmpty() ? Optional.<CheckpointStore.Checkpoint>empty() : checkpointStore.lastChunk(name, version);
+        resumeFrom.ifPresent(checkpoint -> log.info("########### resuming {} after chunk {}", name, checkpoint.page()));
+
+        var rows = new ArrayBlockingQueue<KeyedRow>(streaming.getQueueCapacity());
+        var chunks = new ArrayBlockingQueue<Chunk<T>>(Math.max(1, streaming.getQueueCapacity() / streaming.getChunkSize()));
+        var endOfChunks = new Chunk<T>(List.of(), null);
+
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            var afterKey = resumeFrom.map(CheckpointStore.Checkpoint::lastKey).orElse(null);
+            var reader = executor.submit(() -> read(job.source(), key, afterKey, rows));
+            var transformer = executor.submit(() -> transform(job, name, version, rows, chunks, endOfChunks));
+            try {
+                long written = 0;
+                int chunkNumber = resumeFrom.map(checkpoint -> checkpoint.page() + 1).orElse(0);
+                for (var chunk = chunks.take(); chunk != endOfChunks; chunk = chunks.take(), chunkNumber++) {
+                    var current = chunk;
+                    var number = chunkNumber;
+                    migrationMetrics.page(name, version, number, () -> migrationMetrics.stage(Stage.WRITE, name, version,
+                            () -> postgresTransactionTemplate.execute(status -> {
+                                job.write(current.rows(), version);
+                                if (current.lastKey() != null) {
+                                    checkpointStore.chunkCommitted(name, version, number, current.lastKey(), current.rows().size());
+                                } else {
+                                    checkpointStore.pageCommitted(name, version, number, current.rows().size());
+                                }
+                                return null;
+                            })));
+                    migrationMetrics.rowsWritten(name, version, chunk.rows().size());
+                    written += chunk.rows().size();
+                }
+                await(transformer);
+                await(reader);
+                log.info("########### streamed {} rows for {}", written, name);
+                return written;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Streaming of " + name + " was interrupted", e);
+            } finally {
+                reader.cancel(true);
+                transformer.cancel(true);
+                // frees room for a stage that missed its interrupt, so closing the executor never waits on a full queue
+                rows.clear();
+                chunks.clear();
+            }
+        }
+    }
+
+    private Void read(SourceMapping<?> source, List<String> key, Object[] afterKey, BlockingQueue<KeyedRow> rows)
+            throws InterruptedException {
+        try {
+            var keyList = key.stream().map(SourceMapping::quote).collect(Collectors.joining(", "));
+            var sql = new StringBuilder("SELECT ");
+            if (!key.isEmpty()) {
+                sql.append(keyList).append(", ");
+            }
+            sql.append(source.quotedColumns()).append(" FROM ").append(SourceMapping.quote(source.table()));
+            if (afterKey != null) {
+                sql.append(" WHERE (").append(keyList).append(") > (")
+                        .append(key.stream().map(column -> "?").collect(Collectors.joining(", "))).append(")");
+            }
+            if (!key.isEmpty()) {
+                sql.append(" ORDER BY ").append(keyList);
+            }
+            var keyWidth = key.size();
+            cursorJdbcTemplate.query(sql.toString(), resultSet -> {
+                Object[] rowKey = null;
+                if (keyWidth > 0) {
+                    rowKey = new Object[keyWidth];
+                    for (int i = 0; i < keyWidth; i++) {
+                        rowKey[i] = resultSet.getObject(i + 1);
+                    }
+                }
+                put(rows, new KeyedRow(rowKey, source.map(resultSet, keyWidth)));
+            }, afterKey == null ? new Object[0] : afterKey);
+        } finally {
+            endWith(rows, END_OF_ROWS);
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <S, T> Void transform(PipelineJob<S, T> job, String name, String version, BlockingQueue<KeyedRow> rows,
+                                  BlockingQueue<Chunk<T>> chunks, Chunk<T> endOfChunks) throws InterruptedException {
+        var chunkSize = migratorProperties.getStreaming().getChunkSize();
+        try {
+            var chunk = new ArrayList<T>(chunkSize);
+            Object[] lastKey = null;
+            long transformNanos = 0;
+            for (var row = rows.take(); row != END_OF_ROWS; row = rows.take()) {
+                var start = System.nanoTime();
+                chunk.add(job.transform((S) row.row(), version));
+                transformNanos += System.nanoTime() - start;
+                lastKey = row.key();
+                if (chunk.size() == chunkSize) {
+                    migrationMetrics.rowsRead(name, version, chunk.size());
+                    migrationMetrics.stage(Stage.TRANSFORM, name, version, transformNanos);
+                    transformNanos = 0;
+                    chunks.put(new Chunk<>(chunk, lastKey));
+                    chunk = new ArrayList<>(chunkSize);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                migrationMetrics.rowsRead(name, version, chunk.size());
+                migrationMetrics.stage(Stage.TRANSFORM, name, version, transformNanos);
+                chunks.put(new Chunk<>(chunk, lastKey));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw e;
+        } finally {
+            endWith(chunks, endOfChunks);
+        }
+        return null;
+    }
+
+    /**
+     * Puts the end marker of a stage, unless the stage was cancelled: its consumer no longer takes, and putting into a
+     * full queue would block forever. An interrupt arriving while waiting for room aborts the put as well.
+     */
+    private static <E> void endWith(BlockingQueue<E> queue, E endMarker) throws InterruptedException {
+        if (!Thread.currentThread().isInterrupted()) {
+            queue.put(endMarker);
+        }
+    }
+
+    private static void put(BlockingQueue<KeyedRow> rows, KeyedRow row) {
+        try {
+            rows.put(row);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Reader was interrupted", e);
+        }
+    }
+
+    private static void await(Future<?> stage) throws InterruptedException {
+        try {
+            stage.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * A mapped source row with its primary key, null when the table has none.
+     */
+    private record KeyedRow(Object[] key, Object row) {
+    }
+
+    /**
+     * Transformed rows written in one transaction, with the source key of the last one.
+     */
+    private record Chunk<T>(List<T> rows, Object[] lastKey) {
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.demo.app.migration.reader;
+
+/**
+ * A contiguous range of primary keys of a source table, see {@link KeysetPageReader#ranges}.
+ *
+ * @param from the key the range starts after, null to start at the first key of the table.
+ * @param to   the last key of the range, null to end at the last key of the table.
+ */
+public record KeyRange(Object[] from, Object[] to) {
+}
@@ -0,0 +1,381 @@
+package com.example.demo.app.migration.reader;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Reads pages of a MySQL source table by seeking on its primary key instead of using LIMIT/OFFSET.
+ *
+ * <p>A page is fetched with {@code WHERE key > :lastKey ORDER BY key LIMIT :size}, so its cost no longer
+ * depends on how deep into the table it is. The last key of every page is remembered per cursor, which lets
+ * a job keep calling {@code read} from {@code migrate(page, size, version)} without knowing about keys.
+ *
+ * <p>Key resolution:
+ * <ul>
+ *     <li>A single-column primary key is compared directly ({@code id > ?}).</li>
+ *     <li>A composite primary key is compared as a row value ({@code (a, b) > (?, ?)}).</li>
+ *     <li>A table without a primary key falls back to LIMIT/OFFSET paging.</li>
+ * </ul>
+ *
+ * <p>When a page is requested out of sequence (first call after a restart, a retried page), the key that
+ * precedes it is located once with an OFFSET query on the key columns only and seek paging resumes from there.
+ * Callers reading pages out of order should rather split the table into {@link #ranges key ranges} once and read
+ * each range from its start, which never needs an OFFSET.
+ *
+ * <p>Only the key columns and the columns declared by the {@link SourceMapping} are selected; the declared
+ * columns are checked against {@code information_schema} the first time a mapping is used.
+ *
+ * <p>Every page is read through the {@link SourceThrottle}.
+ */
+@Slf4j
+@Component
+public class KeysetPageReader {
+    private final JdbcTemplate mysqlJdbcTemplate;
+    private final SourceThrottle sourceThrottle;
+    private final Map<String, PrimaryKey> primaryKeys = new ConcurrentHashMap<>();
+    private final Map<String, Cursor> cursors = new ConcurrentHashMap<>();
+    private final Map<SourceMapping<?>, Boolean> validatedMappings = new ConcurrentHashMap<>();
+
+    public KeysetPageReader(@Qualifier("mysqlJdbcTemplate") JdbcTemplate mysqlJdbcTemplate, SourceThrottle sourceThrottle) {
+        this.mysqlJdbcTemplate = mysqlJdbcTemplate;
+        this.sourceThrottle = sourceThrottle;
+    }
+
+    /**
+     * Reads one page of the mapping's source table.
+     *
+     * @param cursorName name identifying the caller, usually the job bean name; each cursor keeps its own last key.
+     * @param source     the source table, columns and row mapping.
+     * @param page       zero-based page number.
+     * @param size       page size.
+     * @param <S>        the mapped type.
+     * @return the mapped rows of the page, in primary key order.
+     */
+    public <S> List<S> read(String cursorName, SourceMapping<S> source, int page, int size) {
+        return sourceThrottle.read(() -> readPage(cursorName, source, page, size));
+    }
+
+    private <S> List<S> readPage(String cursorName, SourceMapping<S> source, int page, int size) {
+        validatedMappings.computeIfAbsent(source, this::validate);
+        var primaryKey = primaryKeyOf(source.table());
+        if (primaryKey.columns().isEmpty()) {
+            return readByOffset(source, page, size);
+        }
+
+        Object[] lastKey = null;
+        if (page > 0) {
+            var cursor = cursors.get(cursorName);
+            if (cursor != null && cursor.exhausted() && page > cursor.page()) {
+                return List.of();
+            }
+            var follows = cursor != null && !cursor.exhausted() && cursor.page() == page - 1;
+            lastKey = follows ? cursor.lastKey() : seek(source.table(), primaryKey, page, size);
+            if (lastKey == null) {
+                cursors.put(cursorName, new Cursor(page, null, true));
+                return List.of();
+            }
+        }
+
+        var keyWidth = primaryKey.columns().size();
+        var rows = new ArrayList<S>(size);
+        var last = new Object[keyWidth];
+        mysqlJdbcTemplate.query(selectAfter(source, primaryKey, lastKey != null, size), resultSet -> {
+            rows.add(source.map(resultSet, keyWidth));
+            for (int i = 0; i < keyWidth; i++) {
+                last[i] = resultSet.getObject(i + 1);
+            }
+        }, lastKey == null ? new Object[0] : lastKey);
+
+        cursors.put(cursorName, new Cursor(page, rows.isEmpty() ? lastKey : last, rows.size() < size));
+        return rows;
+    }
+
+    /**
+     * Reads the page of a key range that follows a given key.
+     *
+     * @param source   the source table, columns and row mapping.
+     * @param range    the key range.
+     * @param afterKey the key of the last row already read from the range, null to read from its start.
+     * @param size     page size.
+     * @param <S>      the mapped type.
+     * @return the mapped rows, in primary key order, with the key of the last one.
+     */
+    public <S> KeyedPage<S> read(SourceMapping<S> source, KeyRange range, Object[] afterKey, int size) {
+        return sourceThrottle.read(() -> readRange(source, range, afterKey, size));
+    }
+
+    private <S> KeyedPage<S> readRange(SourceMapping<S> source, KeyRange range, Object[] afterKey, int size) {
+        validatedMappings.computeIfAbsent(source, this::validate);
+        var primaryKey = primaryKeyOf(source.table());
+        if (primaryKey.columns().isEmpty()) {
+            throw new IllegalStateException("Source table " + source.table() + " has no primary key to read ranges of");
+        }
+        var from = afterKey != null ? afterKey : range.from();
+        var conditions = new ArrayList<String>();
+        var parameters = new ArrayList<>();
+        if (from != null) {
+            conditions.add(primaryKey.greaterThan());
+            parameters.addAll(List.of(from));
+        }
+        if (range.to() != null) {
+            conditions.add(primaryKey.atMost());
+            parameters.addAll(List.of(range.to()));
+        }
+        var sql = new StringBuilder("SELECT ").append(primaryKey.orderBy()).append(", ").append(source.quotedColumns())
+                .append(" FROM ").append(SourceMapping.quote(source.table()));
+        if (!conditions.isEmpty()) {
+            sql.append(" WHERE ").append(String.join(" AND ", conditions));
+        }
+        sql.append(" ORDER BY ").append(primaryKey.orderBy()).append(" LIMIT ").append(size);
+
+        var keyWidth = primaryKey.columns().size();
+        var rows = new ArrayList<S>(size);
+        var last = new Object[keyWidth];
+        mysqlJdbcTemplate.query(sql.toString(), resultSet -> {
+            rows.add(source.map(resultSet, keyWidth));
+            for (int i = 0; i < keyWidth; i++) {
+                last[i] = resultSet.getObject(i + 1);
+            }
+        }, parameters.toArray());
+        return new KeyedPage<>(rows, rows.isEmpty() ? afterKey : last);
+    }
+
+    /**
+     * Splits the keys of a source table into contiguous ranges, so that concurrent readers each seek through their
+     * own range instead of locating pages with OFFSET queries.
+     *
+     * <p>A single numeric key is split into ranges of equal width between its {@code MIN} and {@code MAX}, two index
+     * lookups. Other keys are split into ranges of about {@code rows / count} rows by stepping through the key once.
+     * The first range is open below and the last open above.
+     *
+     * @param table the source table, which must have a primary key.
+     * @param count the number of ranges wanted; fewer are returned for a table with fewer keys.
+     * @param rows  the number of rows of the table, possibly an estimate, to step through non-numeric keys.
+     * @return the ranges, in key order.
+     */
+    public List<KeyRange> ranges(String table, int count, long rows) {
+        var primaryKey = primaryKeyOf(table);
+        if (primaryKey.columns().isEmpty()) {
+            throw new IllegalStateException("Source table " + table + " has no primary key to split");
+        }
+        var boundaries = count < 2 ? List.<Object[]>of() : numericBoundaries(table, primaryKey, count);
+        if (boundaries == null) {
+            boundaries = steppedBoundaries(table, primaryKey, count, rows);
+        }
+        var ranges = new ArrayList<KeyRange>(boundaries.size() + 1);
+        Object[] from = null;
+        for (var boundary : boundaries) {
+            ranges.add(new KeyRange(from, boundary));
+            from = boundary;
+        }
+        ranges.add(new KeyRange(from, null));
+        log.info("########### {} split into {} key ranges", table, ranges.size());
+        return ranges;
+    }
+
+    /**
+     * @return the upper bounds of all ranges but the last, of equal width; null when the key is not a single numeric
+     * column.
+     */
+    private List<Object[]> numericBoundaries(String table, PrimaryKey primaryKey, int count) {
+        if (primaryKey.columns().size() != 1) {
+            return null;
+        }
+        var column = primaryKey.orderBy();
+        return mysqlJdbcTemplate.query("SELECT MIN(" + column + "), MAX(" + column + ") FROM " + SourceMapping.quote(table),
+                resultSet -> {
+                    resultSet.next();
+                    var min = resultSet.getObject(1);
+                    var max = resultSet.getObject(2);
+                    if (min == null) {
+                        return List.<Object[]>of();
+                    }
+                    if (!(min instanceof Number low && max instanceof Number high)) {
+                        return null;
+                    }
+                    var width = Math.max(1, (high.longValue() - low.longValue()) / count + 1);
+                    var boundaries = new ArrayList<Object[]>();
+                    for (var bound = low.longValue() + width - 1; bound < high.longValue(); bound += width) {
+                        boundaries.add(new Object[]{bound});
+                    }
+                    return boundaries;
+                });
+    }
+
+    /**
+     * @return the keys ending each run of {@code rows / count} keys, but the last.
+     */
+    private List<Object[]> steppedBoundaries(String table, PrimaryKey primaryKey, int count, long rows) {
+        var step = Math.max(1, (rows + count - 1) / count);
+        var boundaries = new ArrayList<Object[]>();
+        Object[] from = null;
+        for (int i = 1; i < count; i++) {
+            var sql = "SELECT " + primaryKey.orderBy() + " FROM " + SourceMapping.quote(table)
+                    + (from == null ? "" : " WHERE " + primaryKey.greaterThan())
+                    + " ORDER BY " + primaryKey.orderBy() + " LIMIT 1 OFFSET " + (step - 1);
+            var keys = mysqlJdbcTemplate.query(sql, (resultSet, rowNum) -> {
+                var key = new Object[primaryKey.columns().size()];
+                for (int k = 0; k < key.length; k++) {
+                    key[k] = resultSet.getObject(k + 1);
+                }
+                return key;
+            }, from == null ? new Object[0] : from);
+            if (keys.isEmpty()) {
+                break;
+            }
+            from = keys.getFirst();
+            boundaries.add(from);
+        }
+        return boundaries;
+    }
+
+    /**
+     * Returns the key of the last row read by a cursor, for checkpointing.
+     *
+     * @param cursorName the cursor.
+     * @return the last key, empty when nothing was read yet or the table has no primary key.
+     */
+    public Optional<Object[]> lastKey(String cursorName) {
+        return Optional.ofNullable(cursors.get(cursorName)).map(Cursor::lastKey);
+    }
+
+    /**
+     * Positions a cursor after a known key, e.g. the last checkpoint of an interrupted run or the last committed
+     * page after a failed one, so that reading {@code page + 1} continues right after it whatever the page sizes.
+     *
+     * @param cursorName the cursor.
+     * @param page       the page that ended with {@code lastKey}.
+     * @param lastKey    the key of the last row of that page.
+     */
+    public void resume(String cursorName, int page, Object[] lastKey) {
+        cursors.put(cursorName, new Cursor(page, lastKey, false));
+    }
+
+    /**
+     * Forgets the last key of a cursor so that its next read seeks again.
+     *
+     * @param cursorName the cursor to reset.
+     */
+    public void reset(String cursorName) {
+        cursors.remove(cursorName);
+    }
+
+    /**
+     * Returns the primary key columns of a source table, resolved once per table.
+     *
+     * @param table the source table.
+     * @return the key columns, empty when the table has no primary key.
+     */
+    public List<String> primaryKeyColumns(String table) {
+        return primaryKeyOf(table).columns();
+    }
+
+    private String selectAfter(SourceMapping<?> source, PrimaryKey primaryKey, boolean afterKey, int size) {
+        var sql = new StringBuilder("SELECT ").append(primaryKey.orderBy()).append(", ").append(source.quotedColumns())
+                .append(" FROM ").append(SourceMapping.quote(source.table()));
+        if (afterKey) {
+            sql.append(" WHERE ").append(primaryKey.greaterThan());
+        }
+        return sql.append(" ORDER BY ").append(primaryKey.orderBy()).append(" LIMIT ").append(size).toString();
+    }
+
+    private Object[] seek(String table, PrimaryKey primaryKey, int page, int size) {
+        log.info("########### seek {} to page {}", table, page);
+        var sql = String.format("SELECT %s FROM %s ORDER BY %s LIMIT 1 OFFSET %d",
+                primaryKey.orderBy(), SourceMapping.quote(table), primaryKey.orderBy(), (long) page * size - 1);
+        var keys = mysqlJdbcTemplate.query(sql, (resultSet, rowNum) -> {
+            var key = new Object[primaryKey.columns().size()];
+            for (int i = 0; i < key.length; i++) {
+                key[i] = resultSet.getObject(i + 1);
+            }
+            return key;
+        });
+        return keys.isEmpty() ? null : keys.getFirst();
+    }
+
+    private <S> List<S> readByOffset(SourceMapping<S> source, int page, int size) {
+        var sql = String.format("SELECT %s FROM %s LIMIT %d OFFSET %d",
+                source.quotedColumns(), SourceMapping.quote(source.table()), size, (long) page * size);
+        return mysqlJdbcTemplate.query(sql, (resultSet, rowNum) -> source.map(resultSet, 0));
+    }
+
+    private PrimaryKey primaryKeyOf(String table) {
+        return primaryKeys.computeIfAbsent(table, this::resolvePrimaryKey);
+    }
+
+    private PrimaryKey resolvePrimaryKey(String table) {
+        var columns = mysqlJdbcTemplate.queryForList("""
+                SELECT COLUMN_NAME FROM information_schema.KEY_COLUMN_USAGE
+                WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND CONSTRAINT_NAME = 'PRIMARY'
+                ORDER BY ORDINAL_POSITION
+                """, String.class, table);
+        if (columns.isEmpty()) {
+            log.warn("########### {} has no primary key, falling back to LIMIT/OFFSET paging", table);
+        } else {
+            log.info("########### {} is paged on key {}", table, columns);
+        }
+        return new PrimaryKey(List.copyOf(columns));
+    }
+
+    private Boolean validate(SourceMapping<?> source) {
+        var existing = new HashSet<>(mysqlJdbcTemplate.queryForList("""
+                SELECT COLUMN_NAME FROM information_schema.COLUMNS
+                WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?
+                """, String.class, source.table()));
+        var missing = source.tableColumns().stream().filter(column -> !existing.contains(column)).toList();
+        if (!missing.isEmpty()) {
+            throw new IllegalStateException("Source table " + source.table() + " has no column " + missing);
+        }
+        return Boolean.TRUE;
+    }
+
+    /**
+     * A page read from a {@link KeyRange}.
+     *
+     * @param rows    the mapped rows, in primary key order.
+     * @param lastKey the key of the last row, or the key the page was read after when it is empty.
+     * @param <S>     the mapped type.
+     */
+    public record KeyedPage<S>(List<S> rows, Object[] lastKey) {
+    }
+
+    /**
+     * Position of a cursor after a page. An exhausted cursor has read the end of the table, so later pages are
+     * known to be empty without a query (planned sizes may be upper bounds).
+     */
+    private record Cursor(int page, Object[] lastKey, boolean exhausted) {
+    }
+
+    private record PrimaryKey(List<String> columns) {
+
+        String orderBy() {
+            return columns.stream().map(SourceMapping::quote).collect(Collectors.joining(", "));
+        }
+
+        String greaterThan() {
+            if (columns.size() == 1) {
+                return SourceMapping.quote(columns.getFirst()) + " > ?";
+            }
+            var parameters = columns.stream().map(column -> "?").collect(Collectors.joining(", "));
+            return "(" + orderBy() + ") > (" + parameters + ")";
+        }
+
+        String atMost() {
+            if (columns.size() == 1) {
+                return SourceMapping.quote(columns.getFirst()) + " <= ?";
+            }
+            var parameters = columns.stream().map(column -> "?").collect(Collectors.joining(", "));
+            return "(" + orderBy() + ") <= (" + parameters + ")";
+        }
+    }
+}
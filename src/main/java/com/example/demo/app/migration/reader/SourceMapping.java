@@ -0,0 +1,239 @@
+package com.example.demo.app.migration.reader;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Declares the source columns a job needs and how each one is mapped, by name, onto a target object.
+ *
+ * <p>Readers select only the declared columns and map each row with the typed {@link ResultSet} getter of every
+ * column, at a position fixed when the SELECT is built: no {@code SELECT *}, no reflection and no intermediate
+ * {@code Object[]} per row. A column may also be computed by a MySQL expression, so simple transforms run on the
+ * source instead of in the JVM. Rows already read into values, e.g. replayed from a spool, are mapped by the same
+ * setters with {@link #map(Object[], int[])}.
+ *
+ * <pre>
+ * SourceMapping.of("user", Users::new)
+ *         .string("email", Users::setEmail)
+ *         .string("phone_number", Users::setPhoneNumber)
+ *         .build();
+ * </pre>
+ *
+ * @param <S> the type rows are mapped to.
+ */
+public final class SourceMapping<S> {
+    private final String table;
+    private final Supplier<S> factory;
+    private final List<String> columns;
+    private final Column<S>[] readers;
+
+    private SourceMapping(String table, Supplier<S> factory, List<String> columns, Column<S>[] readers) {
+        this.table = table;
+        this.factory = factory;
+        this.columns = columns;
+        this.readers = readers;
+    }
+
+    public static <S> Builder<S> of(String table, Supplier<S> factory) {
+        return new Builder<>(table, factory);
+    }
+
+    /**
+     * @return the source table.
+     */
+    public String table() {
+        return table;
+    }
+
+    /**
+     * @return the selected source columns, in mapping order; computed ones by their alias.
+     */
+    public List<String> columns() {
+        return columns;
+    }
+
+    /**
+     * @return the Java type each selected column is read as, in mapping order.
+     */
+    public List<Class<?>> types() {
+        return Arrays.stream(readers).<Class<?>>map(Column::type).toList();
+    }
+
+    /**
+     * @return the selected columns read as they are from the table, leaving out the computed ones.
+     */
+    public List<String> tableColumns() {
+        var tableColumns = new ArrayList<String>();
+        for (int i = 0; i < readers.length; i++) {
+            if (readers[i].expression() == null) {
+                tableColumns.add(columns.get(i));
+            }
+        }
+        return tableColumns;
+    }
+
+    /**
+     * @return the MySQL select list item of each selected column, in mapping order: the quoted column, or
+     * {@code (expression) AS alias} for a computed one.
+     */
+    public List<String> selectItems() {
+        var items = new ArrayList<String>(readers.length);
+        for (int i = 0; i < readers.length; i++) {
+            var expression = readers[i].expression();
+            items.add(expression == null ? quote(columns.get(i)) : "(" + expression + ") AS " + quote(columns.get(i)));
+        }
+        return items;
+    }
+
+    /**
+     * @return the selected source columns as a quoted MySQL select list.
+     */
+    public String quotedColumns() {
+        return String.join(", ", selectItems());
+    }
+
+    /**
+     * Quotes a MySQL identifier.
+     *
+     * @param identifier the table or column name.
+     * @return the identifier between backticks.
+     */
+    public static String quote(String identifier) {
+        return "`" + identifier.replace("`", "``") + "`";
+    }
+
+    /**
+     * Maps the current row of a result set.
+     *
+     * @param resultSet the result set, positioned on a row.
+     * @param offset    number of columns selected before the mapped ones (e.g. key columns).
+     * @return the mapped object.
+     */
+    public S map(ResultSet resultSet, int offset) throws SQLException {
+        var target = factory.get();
+        for (int i = 0; i < readers.length; i++) {
+            readers[i].setter().accept(target, readers[i].getter().read(resultSet, offset + i + 1));
+        }
+        return target;
+    }
+
+    /**
+     * Reads one mapped column of the current row with its typed getter, without mapping the row.
+     *
+     * @param column    the position of the column in {@link #columns()}.
+     * @param resultSet the result set, positioned on a row.
+     * @param index     the JDBC index of the column in the result set.
+     * @return the value, of the column's {@link #types() type} or null.
+     */
+    public Object read(int column, ResultSet resultSet, int index) throws SQLException {
+        return readers[column].getter().read(resultSet, index);
+    }
+
+    /**
+     * Maps a row already read into values, e.g. replayed from a spool.
+     *
+     * @param values    the row values, of the {@link #types() types} of the columns.
+     * @param positions for each column of {@link #columns()}, the position of its value in {@code values}.
+     * @return the mapped object.
+     */
+    public S map(Object[] values, int[] positions) {
+        var target = factory.get();
+        for (int i = 0; i < readers.length; i++) {
+            readers[i].setter().accept(target, values[positions[i]]);
+        }
+        return target;
+    }
+
+    @FunctionalInterface
+    private interface ColumnGetter {
+        Object read(ResultSet resultSet, int index) throws SQLException;
+    }
+
+    /**
+     * A selected column.
+     *
+     * @param type       the Java type it is read as.
+     * @param getter     reads it from a result set.
+     * @param setter     sets it on the mapped object.
+     * @param expression the MySQL expression computing it, null for a column read as it is.
+     */
+    private record Column<S>(Class<?> type, ColumnGetter getter, BiConsumer<S, Object> setter, String expression) {
+    }
+
+    public static final class Builder<S> {
+        private final String table;
+        private final Supplier<S> factory;
+        private final List<String> columns = new ArrayList<>();
+        private final List<Column<S>> readers = new ArrayList<>();
+
+        private Builder(String table, Supplier<S> factory) {
+            this.table = table;
+            this.factory = factory;
+        }
+
+        public Builder<S> string(String column, BiConsumer<S, String> setter) {
+            return column(column, String.class, ResultSet::getString, setter);
+        }
+
+        public Builder<S> integer(String column, BiConsumer<S, Integer> setter) {
+            return column(column, Integer.class, (resultSet, index) -> {
+                var value = resultSet.getInt(index);
+                return resultSet.wasNull() ? null : value;
+            }, setter);
+        }
+
+        /**
+         * Selects a column read with {@code getObject}, as whatever type the driver returns for it.
+         */
+        public Builder<S> object(String column, BiConsumer<S, Object> setter) {
+            return column(column, Object.class, getter(Object.class), setter);
+        }
+
+        public Builder<S> date(String column, BiConsumer<S, LocalDate> setter) {
+            return column(column, LocalDate.class, (resultSet, index) -> resultSet.getObject(index, LocalDate.class), setter);
+        }
+
+        public Builder<S> time(String column, BiConsumer<S, LocalTime> setter) {
+            return column(column, LocalTime.class, (resultSet, index) -> resultSet.getObject(index, LocalTime.class), setter);
+        }
+
+        /**
+         * Selects a value computed by MySQL instead of a plain column, e.g. {@code CONCAT(IFNULL(company, 'null'), ', Inc')}.
+         *
+         * @param alias      the name the value is selected as.
+         * @param expression the MySQL expression, over the columns of the source table.
+         * @param type       the Java type the value is read as.
+         * @param setter     sets the value on the mapped object.
+         */
+        public <V> Builder<S> expression(String alias, String expression, Class<V> type, BiConsumer<S, V> setter) {
+            return column(alias, type, getter(type), setter, expression);
+        }
+
+        private static ColumnGetter getter(Class<?> type) {
+            return type == Object.class ? ResultSet::getObject : (resultSet, index) -> resultSet.getObject(index, type);
+        }
+
+        private <V> Builder<S> column(String column, Class<V> type, ColumnGetter getter, BiConsumer<S, V> setter) {
+            return column(column, type, getter, setter, null);
+        }
+
+        private <V> Builder<S> column(String column, Class<V> type, ColumnGetter getter, BiConsumer<S, V> setter,
+                                      String expression) {
+            columns.add(column);
+            readers.add(new Column<>(type, getter, (target, value) -> setter.accept(target, type.cast(value)), expression));
+            return this;
+        }
+
+        @SuppressWarnings("unchecked")
+        public SourceMapping<S> build() {
+            return new SourceMapping<>(table, factory, List.copyOf(columns), readers.toArray(Column[]::new));
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.demo.app.migration.reader;
+
+import com.example.demo.app.config.MigratorProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sizes MySQL source tables for page planning, once per table for the whole run.
+ *
+ * <p>{@code SELECT count(*)} is a full index scan on InnoDB. Depending on {@code migrator.size-mode} the size is:
+ * <ul>
+ *     <li>{@code EXACT}: {@code count(*)}.</li>
+ *     <li>{@code KEY_RANGE}: {@code MAX(id) - MIN(id) + 1} on a single numeric primary key, two index lookups. It is
+ *     an upper bound, so no row is left out of the planned pages; pages past the end of the table come back empty.
+ *     It is only used while the keys are dense, i.e. the {@code information_schema} row estimate covers at least
+ *     half of the key range: sparse keys (deleted rows, id gaps, key blocks per shard) would
+ *     plan mostly empty pages. Other tables are counted exactly.</li>
+ * </ul>
+ * {@link #approximate(String)} additionally exposes the {@code information_schema} row estimate, which is free but
+ * may be below the real count and so is only used where an estimate is enough (progress, metrics).
+ *
+ * <p>Results are cached per table, so jobs of different versions reading the same table share one lookup.
+ */
+@Slf4j
+@Component
+public class SourceSizeEstimator {
+    private static final double MIN_KEY_DENSITY = 0.5;
+
+    private final MigratorProperties migratorProperties;
+    private final JdbcTemplate mysqlJdbcTemplate;
+    private final KeysetPageReader keysetPageReader;
+    private final Map<String, Long> sizes = new ConcurrentHashMap<>();
+
+    public SourceSizeEstimator(MigratorProperties migratorProperties,
+                               @Qualifier("mysqlJdbcTemplate") JdbcTemplate mysqlJdbcTemplate,
+                               KeysetPageReader keysetPageReader) {
+        this.migratorProperties = migratorProperties;
+        this.mysqlJdbcTemplate = mysqlJdbcTemplate;
+        this.keysetPageReader = keysetPageReader;
+    }
+
+    /**
+     * @param table the source table.
+     * @return the number of rows to plan pages for; never below the real row count.
+     */
+    public long size(String table) {
+        return sizes.computeIfAbsent(table, this::measure);
+    }
+
+    /**
+     * @param table the source table.
+     * @return the row estimate kept by MySQL table statistics.
+     */
+    public long approximate(String table) {
+        var rows = mysqlJdbcTemplate.queryForObject("""
+                SELECT TABLE_ROWS FROM information_schema.TABLES
+                WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?
+                """, Long.class, table);
+        return rows == null ? 0L : rows;
+    }
+
+    /**
+     * Forgets the cached size of a table, e.g. before a new run against a source that kept changing.
+     *
+     * @param table the source table.
+     */
+    public void evict(String table) {
+        sizes.remove(table);
+    }
+
+    private Long measure(String table) {
+        if (migratorProperties.getSizeMode() == MigratorProperties.SizeMode.KEY_RANGE) {
+            var keyRange = keyRange(table);
+            if (keyRange != null) {
+                var estimate = approximate(table);
+                if (estimate >= keyRange * MIN_KEY_DENSITY) {
+                    log.info("########### size {} from key range: {}", table, keyRange);
+                    return keyRange;
+                }
+                log.info("########### {} keys are sparse ({} rows estimated over a key range of {}), counting rows",
+                        table, estimate, keyRange);
+            }
+        }
+        var count = mysqlJdbcTemplate.queryForObject("SELECT count(*) FROM " + SourceMapping.quote(table), Long.class);
+        log.info("########### size {} from count: {}", table, count);
+        return count == null ? 0L : count;
+    }
+
+    private Long keyRange(String table) {
+        var key = keysetPageReader.primaryKeyColumns(table);
+        if (key.size() != 1) {
+            return null;
+        }
+        var column = SourceMapping.quote(key.getFirst());
+        return mysqlJdbcTemplate.query("SELECT MIN(" + column + "), MAX(" + column + ") FROM " + SourceMapping.quote(table),
+                resultSet -> {
+                    resultSet.next();
+                    var min = resultSet.getObject(1);
+                    var max = resultSet.getObject(2);
+                    if (min == null) {
+                        return 0L;
+                    }
+                    if (min instanceof Number low && max instanceof Number high) {
+                        return high.longValue() - low.longValue() + 1;
+                    }
+                    return null;
+                });
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.demo.app.migration.reader;
+
+import com.example.demo.app.config.MigratorProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Paces the reads of the MySQL source so that a source still serving production traffic is not overloaded, with an
+ * AIMD (additive increase, multiplicative decrease) controller.
+ *
+ * <p>Each read waits for a slot among {@code limit} concurrent reads and, when {@code migrator.throttle.max-rate} is
+ * set, for its turn at the current rate. When it ends, the source is considered congested if the read took longer
+ * than {@code target-latency} or, when {@code max-threads-running} is set, if MySQL reports more running threads
+ * (sampled every {@code status-interval} with {@code SHOW GLOBAL STATUS}). Then:
+ * <ul>
+ *     <li>a congested read multiplies the limit and the rate by {@code decrease-factor}, at most once per target
+ *     latency so that the reads in flight during a spike count once;</li>
+ *     <li>any other read adds {@code 1 / limit} to the limit, i.e. one more slot per round of reads, and 5% of
+ *     {@code max-rate} per round to the rate.</li>
+ * </ul>
+ * Both start at their floor, stay between their floor and ceiling and are published as {@code migrator.source.concurrency} and
+ * {@code migrator.source.rate}. With {@code migrator.throttle.enabled: false}, reads run unthrottled.
+ */
+@Slf4j
+@Component
+public class SourceThrottle {
+    private final MigratorProperties.Throttle settings;
+    private final JdbcTemplate mysqlJdbcTemplate;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    private double limit;
+    private double rate;
+    private int inFlight;
+    private long nextStart;
+    private long lastDecrease;
+    private volatile long lastSample;
+    private volatile long threadsRunning;
+
+    public SourceThrottle(MigratorProperties migratorProperties,
+                          @Qualifier("mysqlJdbcTemplate") JdbcTemplate mysqlJdbcTemplate,
+                          MeterRegistry meterRegistry) {
+        this.settings = migratorProperties.getThrottle();
+        this.mysqlJdbcTemplate = mysqlJdbcTemplate;
+        this.limit = settings.getMinConcurrency();
+        this.rate = settings.getMinRate();
+        if (settings.isEnabled()) {
+            Gauge.builder("migrator.source.concurrency", this, throttle -> throttle.limit).register(meterRegistry);
+            Gauge.builder("migrator.source.rate", this, throttle -> throttle.rate).baseUnit("reads/s").register(meterRegistry);
+        }
+    }
+
+    /**
+     * Runs one source read once the throttle lets it through, and adapts the throttle to how it went.
+     *
+     * @param read the read, one query or page.
+     * @return what the read returned.
+     */
+    public <T> T read(Supplier<T> read) {
+        if (!settings.isEnabled()) {
+            return read.get();
+        }
+        acquire();
+        var start = System.nanoTime();
+        try {
+            return read.get();
+        } finally {
+            release(System.nanoTime() - start);
+        }
+    }
+
+    private void acquire() {
+        lock.lock();
+        try {
+            while (inFlight >= (int) limit) {
+                released.awaitUninterruptibly();
+            }
+            inFlight++;
+            if (settings.getMaxRate() > 0) {
+                var now = System.nanoTime();
+                var start = Math.max(now, nextStart);
+                nextStart = start + (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+                if (start > now) {
+                    lock.unlock();
+                    try {
+                        TimeUnit.NANOSECONDS.sleep(start - now);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        lock.lock();
+                    }
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release(long nanos) {
+        var congested = nanos > settings.getTargetLatency().toNanos() || threadsRunningAbove();
+        lock.lock();
+        try {
+            inFlight--;
+            var now = System.nanoTime();
+            if (congested) {
+                if (now - lastDecrease > settings.getTargetLatency().toNanos()) {
+                    lastDecrease = now;
+                    var previous = (int) limit;
+                    limit = Math.max(settings.getMinConcurrency(), limit * settings.getDecreaseFactor());
+                    if (settings.getMaxRate() > 0) {
+                        rate = Math.max(settings.getMinRate(), rate * settings.getDecreaseFactor());
+                    }
+                    log.info("########### source congested (read took {} ms, {} threads running): {} -> {} concurrent reads",
+                            nanos / 1_000_000, threadsRunning, previous, (int) limit);
+                }
+            } else {
+                limit = Math.min(settings.getMaxConcurrency(), limit + 1 / limit);
+                if (settings.getMaxRate() > 0) {
+                    rate = Math.min(settings.getMaxRate(), rate + 0.05 * settings.getMaxRate() / limit);
+                }
+            }
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Samples {@code Threads_running} at most once per {@code status-interval}; samples are shared by all reads.
+     */
+    private boolean threadsRunningAbove() {
+        var maximum = settings.getMaxThreadsRunning();
+        if (maximum <= 0) {
+            return false;
+        }
+        var now = System.nanoTime();
+        if (now - lastSample > settings.getStatusInterval().toNanos()) {
+            lastSample = now;
+            try {
+                threadsRunning = mysqlJdbcTemplate.query("SHOW GLOBAL STATUS LIKE 'Threads_running'",
+                        (resultSet, rowNum) -> resultSet.getLong(2)).stream().findFirst().orElse(0L);
+            } catch (RuntimeException e) {
+                log.warn("########### could not read Threads_running from the source", e);
+            }
+        }
+        return threadsRunning > maximum;
+    }
+}
@@ -0,0 +1,226 @@
+package com.example.demo.app.migration.rollback;
+
+import com.example.demo.app.config.MigratorProperties;
+import com.example.demo.app.migration.checkpoint.CheckpointStore;
+import com.example.demo.app.migration.executor.JobRegistry;
+import com.example.demo.app.migration.executor.RegisteredJob;
+import com.example.demo.app.migration.metrics.MigrationMetrics;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Stream;
+
+/**
+ * Rolls back jobs in bounded key-range chunks instead of one statement over the whole table.
+ *
+ * <p>Each {@link RollbackStep} visits the rows of the version in key order, {@code migrator.rollback.chunk-size}
+ * rows at a time, and every chunk commits in its own postgres transaction: row locks are held for one chunk only
+ * and the WAL is flushed as the rollback advances. Before a table is touched, an index on {@code (version, key)}
+ * is created if missing so that each chunk is an index range scan; an invalid one, left by an interrupted
+ * {@code CREATE INDEX CONCURRENTLY}, is dropped and rebuilt.
+ *
+ * <p>The checkpoints of a job are only forgotten once all its steps succeeded, so a job whose rollback failed still
+ * counts as migrated and is not run again over its remaining rows.
+ *
+ * <p>{@link #rollback(String)} rolls back all jobs of a version: jobs sharing a table run one after another in
+ * reverse {@code @Executable} order, jobs on disjoint tables run concurrently on virtual threads. Progress is logged
+ * after every chunk and the duration of each job rollback is published as {@code migrator.rollback}.
+ */
+@Slf4j
+@Component
+public class RollbackEngine {
+    private final MigratorProperties migratorProperties;
+    private final JdbcTemplate postgresJdbcTemplate;
+    private final HikariDataSource postgresDataSource;
+    private final TransactionTemplate chunkTransaction;
+    private final TransactionTemplate outsideTransaction;
+    private final CheckpointStore checkpointStore;
+    private final JobRegistry jobRegistry;
+    private final MigrationMetrics migrationMetrics;
+    private final Set<String> indexedTables = ConcurrentHashMap.newKeySet();
+
+    public RollbackEngine(MigratorProperties migratorProperties,
+                          @Qualifier("postgresJdbcTemplate") JdbcTemplate postgresJdbcTemplate,
+                          @Qualifier("postgresDataSource") HikariDataSource postgresDataSource,
+                          @Qualifier("postgresTransactionManager") PlatformTransactionManager postgresTransactionManager,
+                          CheckpointStore checkpointStore,
+                          JobRegistry jobRegistry,
+                          MigrationMetrics migrationMetrics) {
+        this.migratorProperties = migratorProperties;
+        this.postgresJdbcTemplate = postgresJdbcTemplate;
+        this.postgresDataSource = postgresDataSource;
+        this.checkpointStore = checkpointStore;
+        this.jobRegistry = jobRegistry;
+        this.migrationMetrics = migrationMetrics;
+        this.chunkTransaction = new TransactionTemplate(postgresTransactionManager);
+        this.chunkTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.outsideTransaction = new TransactionTemplate(postgresTransactionManager);
+        this.outsideTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_NOT_SUPPORTED);
+    }
+
+    /**
+     * Rolls back all jobs of a version.
+     *
+     * @param version the version to roll back.
+     * @throws RollbackException if some jobs failed; the others are rolled back.
+     */
+    public void rollback(String version) {
+        var jobs = new ArrayList<>(jobRegistry.jobsOf(version));
+        Collections.reverse(jobs);
+        var groups = independentGroups(jobs, version);
+        var permits = new Semaphore(concurrency());
+        log.info("########### rolling back version {}: {} jobs in {} independent groups", version, jobs.size(), groups.size());
+
+        var failures = new ConcurrentSkipListMap<String, RuntimeException>();
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (var group : groups) {
+                permits.acquireUninterruptibly();
+                executor.submit(() -> {
+                    try {
+                        group.jobs().forEach(job -> rollback(job, failures));
+                    } finally {
+                        permits.release();
+                    }
+                });
+            }
+        }
+        if (!failures.isEmpty()) {
+            throw new RollbackException(version, failures.keySet().stream().toList(), failures.firstEntry().getValue());
+        }
+        log.info("########### version {} rolled back", version);
+    }
+
+    /**
+     * Rolls back one job in chunks, then forgets its checkpoints.
+     *
+     * @param name    the job name.
+     * @param job     the job.
+     * @param version the version to roll back.
+     * @return the number of deleted or reset rows.
+     */
+    public long rollback(String name, RollbackJob job, String version) {
+        return migrationMetrics.rollback(name, version, () -> {
+            var rows = 0L;
+            for (var step : job.rollbackSteps(version)) {
+                rows += apply(name, step, version);
+            }
+            checkpointStore.clear(name, version);
+            return rows;
+        });
+    }
+
+    private void rollback(RegisteredJob job, ConcurrentSkipListMap<String, RuntimeException> failures) {
+        try {
+            if (job.job() instanceof RollbackJob rollbackJob) {
+                rollback(job.name(), rollbackJob, job.version());
+            } else {
+                job.job().rollback(job.version());
+            }
+        } catch (RuntimeException e) {
+            log.error("########### rollback of {} failed for version {}", job.name(), job.version(), e);
+            failures.put(job.name(), e);
+        }
+    }
+
+    private long apply(String name, RollbackStep step, String version) {
+        ensureVersionIndex(step);
+        var chunkSize = migratorProperties.getRollback().getChunkSize();
+        var total = postgresJdbcTemplate.queryForObject(
+                "SELECT count(*) FROM " + step.table() + " WHERE version = ?", Long.class, version);
+        log.info("########### {}: {} {} rows of version {} in chunks of {}",
+                name, step.isDelete() ? "deleting" : "resetting", total, version, chunkSize);
+
+        var done = 0L;
+        Object lastKey = null;
+        while (true) {
+            var parameters = Stream.concat(
+                    lastKey == null ? Stream.of(version) : Stream.of(version, lastKey),
+                    Stream.of(step.values())).toArray();
+            var sql = step.chunkSql(lastKey != null, chunkSize);
+            var chunk = chunkTransaction.execute(status -> postgresJdbcTemplate.queryForObject(sql,
+                    (resultSet, rowNum) -> new Chunk(resultSet.getLong(1), resultSet.getObject(2)), parameters));
+            if (chunk == null || chunk.rows() == 0) {
+                break;
+            }
+            done += chunk.rows();
+            lastKey = chunk.lastKey();
+            log.info("########### {}: {} {}/{} rows", name, step.table(), done, total);
+        }
+        return done;
+    }
+
+    private void ensureVersionIndex(RollbackStep step) {
+        var index = step.table() + "_version_" + step.keyColumn() + "_idx";
+        if (indexedTables.contains(index)) {
+            return;
+        }
+        // CONCURRENTLY cannot run inside a transaction block and does not block writers
+        outsideTransaction.executeWithoutResult(status -> {
+            var valid = postgresJdbcTemplate.queryForList(
+                    "SELECT indisvalid FROM pg_index WHERE indexrelid = to_regclass(?)", Boolean.class, index);
+            if (!valid.isEmpty() && !valid.getFirst()) {
+                // an interrupted CREATE INDEX CONCURRENTLY leaves an invalid index that IF NOT EXISTS would keep
+                log.warn("########### {} is invalid, rebuilding it", index);
+                postgresJdbcTemplate.execute("DROP INDEX CONCURRENTLY IF EXISTS " + index);
+            }
+            postgresJdbcTemplate.execute(
+                    "CREATE INDEX CONCURRENTLY IF NOT EXISTS " + index + " ON " + step.table() + " (version, " + step.keyColumn() + ")");
+        });
+        indexedTables.add(index);
+    }
+
+    /**
+     * Groups jobs so that jobs touching a common table share a group, keeping their relative order. Jobs that are
+     * not {@link RollbackJob}s touch unknown tables and all share one group.
+     */
+    private List<Group> independentGroups(List<RegisteredJob> jobs, String version) {
+        var groups = new ArrayList<Group>();
+        for (var job : jobs) {
+            var tables = new HashSet<String>();
+            if (job.job() instanceof RollbackJob rollbackJob) {
+                rollbackJob.rollbackSteps(version).forEach(step -> tables.add(step.table()));
+            } else {
+                tables.add("*");
+            }
+            var merged = new Group(tables, new ArrayList<>());
+            for (var iterator = groups.iterator(); iterator.hasNext(); ) {
+                var group = iterator.next();
+                if (!Collections.disjoint(group.tables(), tables)) {
+                    merged.tables().addAll(group.tables());
+                    merged.jobs().addAll(group.jobs());
+                    iterator.remove();
+                }
+            }
+            merged.jobs().add(job);
+            groups.add(merged);
+        }
+        return groups;
+    }
+
+    private int concurrency() {
+        var poolBound = postgresDataSource.getMaximumPoolSize();
+        var configured = migratorProperties.getRollback().getMaxConcurrency();
+        return Math.max(1, configured > 0 ? Math.min(configured, poolBound) : poolBound);
+    }
+
+    private record Group(Set<String> tables, List<RegisteredJob> jobs) {
+    }
+
+    private record Chunk(long rows, Object lastKey) {
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.demo.app.migration.rollback;
+
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Thrown when the rollback of some jobs of a version failed; the other jobs were rolled back.
+ */
+@Getter
+public class RollbackException extends RuntimeException {
+    private final String version;
+    private final List<String> failedJobs;
+
+    public RollbackException(String version, List<String> failedJobs, Throwable cause) {
+        super("Rollback of version " + version + " failed for jobs " + failedJobs, cause);
+        this.version = version;
+        this.failedJobs = failedJobs;
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.demo.app.migration.rollback;
+
+import java.util.List;
+
+/**
+ * A job whose rollback is described as {@link RollbackStep}s, so that the {@link RollbackEngine} can apply it in
+ * key-range chunks and run it alongside the rollbacks of jobs on other tables.
+ */
+public interface RollbackJob {
+
+    /**
+     * @param version the version being rolled back.
+     * @return the steps undoing the job, applied in order.
+     */
+    List<RollbackStep> rollbackSteps(String version);
+}
@@ -0,0 +1,37 @@
+package com.example.demo.app.migration.rollback;
+
+import com.example.demo.app.config.MigratorProperties;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+/**
+ * Rolls back the versions listed in {@code migrator.rollback.versions}, in the listed order (newest first), with
+ * the {@link RollbackEngine}.
+ *
+ * <p>db-migrator must be disabled ({@code migration.enabled: false}); otherwise the runner throws and the
+ * application fails to start.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty("migrator.rollback.versions[0]")
+public class RollbackRunner implements ApplicationRunner {
+    private final Environment environment;
+    private final MigratorProperties migratorProperties;
+    private final RollbackEngine rollbackEngine;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (Binder.get(environment).bind("migration.enabled", Boolean.class).orElse(false)) {
+            throw new IllegalStateException("migrator.rollback.versions needs migration.enabled=false, "
+                    + "otherwise db-migrator executes the versions being rolled back");
+        }
+        for (var version : migratorProperties.getRollback().getVersions()) {
+            rollbackEngine.rollback(version);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.demo.app.migration.rollback;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * One statement of a job rollback on a postgres table, applied to the rows of the rolled back version.
+ *
+ * <pre>
+ * RollbackStep.delete("users");
+ * RollbackStep.update("users").setNull("phone_number").set("version", "1.0.0");
+ * </pre>
+ *
+ * <p>Rows are visited in {@code keyColumn} order, {@code id} unless changed with {@link #keyedBy(String)}.
+ *
+ * @param table       the postgres table.
+ * @param keyColumn   the unique column the table is chunked on.
+ * @param assignments the columns to set; empty to delete the rows.
+ */
+public record RollbackStep(String table, String keyColumn, Map<String, Object> assignments) {
+
+    public static RollbackStep delete(String table) {
+        return new RollbackStep(table, "id", Map.of());
+    }
+
+    public static RollbackStep update(String table) {
+        return new RollbackStep(table, "id", Map.of());
+    }
+
+    public RollbackStep keyedBy(String keyColumn) {
+        return new RollbackStep(table, keyColumn, assignments);
+    }
+
+    public RollbackStep setNull(String column) {
+        return set(column, null);
+    }
+
+    public RollbackStep set(String column, Object value) {
+        var next = new LinkedHashMap<>(assignments);
+        next.put(column, value);
+        return new RollbackStep(table, keyColumn, Collections.unmodifiableMap(next));
+    }
+
+    public boolean isDelete() {
+        return assignments.isEmpty();
+    }
+
+    /**
+     * Builds the statement applying the step to one chunk: the next {@code chunkSize} rows of the version after the
+     * last visited key, returning the number of affected rows and the last key of the chunk.
+     * Parameters: version, the last key when {@code afterKey}, then the non-null assigned values.
+     */
+    String chunkSql(boolean afterKey, int chunkSize) {
+        var chunk = "SELECT " + keyColumn + " FROM " + table + " WHERE version = ?"
+                + (afterKey ? " AND " + keyColumn + " > ?" : "")
+                + " ORDER BY " + keyColumn + " LIMIT " + chunkSize;
+        var statement = isDelete()
+                ? "DELETE FROM " + table + " t USING chunk WHERE t." + keyColumn + " = chunk." + keyColumn
+                : "UPDATE " + table + " t SET " + setClause() + " FROM chunk WHERE t." + keyColumn + " = chunk." + keyColumn;
+        return "WITH chunk AS (" + chunk + "), done AS (" + statement + " RETURNING t." + keyColumn + " AS visited)"
+                + " SELECT count(*), max(visited) FROM done";
+    }
+
+    Object[] values() {
+        return assignments.values().stream().filter(value -> value != null).toArray();
+    }
+
+    private String setClause() {
+        return assignments.entrySet().stream()
+                .map(entry -> entry.getKey() + " = " + (entry.getValue() == null ? "NULL" : "?"))
+                .collect(Collectors.joining(", "));
+    }
+}
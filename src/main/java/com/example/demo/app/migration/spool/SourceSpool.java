@@ -0,0 +1,393 @@
+package com.example.demo.app.migration.spool;
+
+import com.example.demo.app.config.MigratorProperties;
+import com.example.demo.app.migration.reader.KeysetPageReader;
+import com.example.demo.app.migration.reader.SourceMapping;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Extracts source tables once to segment files on local disk and replays them as many times as needed, so that
+ * loading into Postgres, retries and reruns of versions do not read MySQL again.
+ *
+ * <p>Every table is spooled once for all the jobs reading it: its primary key followed by the union of the columns
+ * of their {@link SourceMapping}s, each column read with the typed getter of the first mapping declaring it. The
+ * directory {@code <migrator.spool.directory>/<table>} holds the segments, see {@link SpoolSegments}, and a
+ * {@code manifest.properties} listing the spooled columns and whether the extraction completed.
+ *
+ * <p>Extraction reads each table with one MySQL server-side cursor in key order, one table after the other on a
+ * background virtual thread, while the loads replay the sealed segments as they appear; a load that catches up with
+ * the extraction waits for the next segment. An interrupted extraction resumes after the key of the last row of its
+ * last sealed segment. A complete spool is reused as long as it holds the columns asked for, and extracted again
+ * otherwise; delete the directory to take a fresh copy of the source.
+ */
+@Slf4j
+@Component
+public class SourceSpool {
+    private static final String MANIFEST = "manifest.properties";
+
+    private final MigratorProperties.Spool settings;
+    private final JdbcTemplate cursorJdbcTemplate;
+    private final KeysetPageReader keysetPageReader;
+    private final Map<String, CompletableFuture<Void>> extractions = new ConcurrentHashMap<>();
+
+    public SourceSpool(MigratorProperties migratorProperties,
+                       @Qualifier("mysqlDataSource") DataSource mysqlDataSource,
+                       KeysetPageReader keysetPageReader) {
+        this.settings = migratorProperties.getSpool();
+        this.keysetPageReader = keysetPageReader;
+        this.cursorJdbcTemplate = new JdbcTemplate(mysqlDataSource);
+        this.cursorJdbcTemplate.setFetchSize(migratorProperties.getStreaming().getFetchSize());
+    }
+
+    /**
+     * Starts extracting the tables not spooled yet, in the given order, and returns without waiting.
+     *
+     * @param tables the source tables and the mappings of the jobs reading each of them.
+     */
+    public void start(Map<String, List<SourceMapping<?>>> tables) {
+        var pending = new ArrayList<Extraction>();
+        tables.forEach((table, mappings) -> prepare(table, mappings).ifPresent(pending::add));
+        pending.forEach(extraction -> extractions.put(extraction.table(), new CompletableFuture<>()));
+        Thread.ofVirtual().name("spool-extract").start(() -> pending.forEach(extraction -> {
+            var done = extractions.get(extraction.table());
+            try {
+                extract(extraction);
+                done.complete(null);
+            } catch (RuntimeException e) {
+                log.error("########### spooling {} failed", extraction.table(), e);
+                done.completeExceptionally(e);
+            }
+        }));
+    }
+
+    /**
+     * Waits for the extractions started by {@link #start}.
+     *
+     * @throws IllegalStateException if one of them failed.
+     */
+    public void await() {
+        for (var extraction : extractions.entrySet()) {
+            try {
+                extraction.getValue().get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while spooling " + extraction.getKey(), e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Spooling " + extraction.getKey() + " failed", e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Replays the spool of a table block by block, waiting for blocks still being extracted.
+     *
+     * @param mapping   the mapping of the job, whose columns must be spooled.
+     * @param fromBlock the first block to replay; earlier ones are skipped without being decompressed.
+     * @param consumer  receives every block from {@code fromBlock} on, mapped.
+     * @throws IllegalStateException if the table is not spooled, or its extraction failed or stopped short.
+     */
+    public <S> void replay(SourceMapping<S> mapping, int fromBlock, BlockConsumer<S> consumer) {
+        var directory = directory(mapping.table());
+        var manifest = manifest(directory)
+                .orElseThrow(() -> new IllegalStateException("Table " + mapping.table() + " is not spooled in " + directory));
+        var positions = positions(manifest, mapping);
+        var width = manifest.key().size() + manifest.columns().size();
+        var block = new int[1];
+        for (var number = 0; awaitSegment(mapping.table(), SpoolSegments.segment(directory, number)); number++) {
+            SpoolSegments.forEachBlock(SpoolSegments.segment(directory, number), width, segmentBlock -> {
+                var current = block[0]++;
+                if (current < fromBlock) {
+                    return;
+                }
+                var rows = new ArrayList<S>(segmentBlock.rows());
+                for (var values : segmentBlock.records()) {
+                    rows.add(mapping.map(values, positions));
+                }
+                consumer.accept(current, rows);
+            });
+        }
+    }
+
+    private Optional<Extraction> prepare(String table, List<SourceMapping<?>> mappings) {
+        var directory = directory(table);
+        var key = keysetPageReader.primaryKeyColumns(table);
+        var wanted = new LinkedHashSet<String>();
+        mappings.forEach(mapping -> wanted.addAll(columns(mapping)));
+        var existing = manifest(directory).filter(manifest -> manifest.columns().containsAll(wanted));
+        if (existing.isPresent() && existing.get().complete()) {
+            log.info("########### {} already spooled in {}", table, directory);
+            return Optional.empty();
+        }
+
+        var segments = SpoolSegments.sealed(directory);
+        // resumed only with the same columns, since columns no mapping reads any more could not be extracted
+        if (existing.isPresent() && new LinkedHashSet<>(existing.get().columns()).equals(wanted)
+                && !key.isEmpty() && existing.get().key().equals(key) && !segments.isEmpty()) {
+            var manifest = existing.get();
+            var lastKey = lastKey(segments.getLast(), manifest);
+            log.info("########### resuming spool of {} at segment {}", table, segments.size());
+            return Optional.of(new Extraction(table, directory, manifest, readers(manifest, mappings), segments.size(), lastKey));
+        }
+
+        delete(directory);
+        var manifest = new Manifest(key, List.copyOf(wanted), false);
+        writeManifest(directory, manifest);
+        return Optional.of(new Extraction(table, directory, manifest, readers(manifest, mappings), 0, null));
+    }
+
+    private void extract(Extraction extraction) {
+        var start = System.nanoTime();
+        var key = extraction.manifest().key();
+        var keyList = key.stream().map(SourceMapping::quote).collect(Collectors.joining(", "));
+        var sql = new StringBuilder("SELECT ");
+        if (!key.isEmpty()) {
+            sql.append(keyList).append(", ");
+        }
+        sql.append(extraction.manifest().columns().stream()
+                        .map(column -> column.substring(0, column.lastIndexOf(':')))
+                        .collect(Collectors.joining(", ")))
+                .append(" FROM ").append(SourceMapping.quote(extraction.table()));
+        if (extraction.afterKey() != null) {
+            sql.append(" WHERE (").append(keyList).append(") > (")
+                    .append(key.stream().map(column -> "?").collect(Collectors.joining(", "))).append(")");
+        }
+        if (!key.isEmpty()) {
+            sql.append(" ORDER BY ").append(keyList);
+        }
+
+        var keyWidth = key.size();
+        var readers = extraction.readers();
+        var rows = new long[1];
+        var writer = new SpoolSegments.Writer(extraction.directory(), extraction.firstSegment(),
+                settings.getSegmentSize().toBytes(), settings.getBlockRows());
+        try {
+            cursorJdbcTemplate.query(sql.toString(), resultSet -> {
+                var values = new Object[keyWidth + readers.size()];
+                for (int i = 0; i < keyWidth; i++) {
+                    values[i] = resultSet.getObject(i + 1);
+                }
+                for (int i = 0; i < readers.size(); i++) {
+                    values[keyWidth + i] = readers.get(i).mapping().read(readers.get(i).column(), resultSet, keyWidth + i + 1);
+                }
+                try {
+                    writer.append(values);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                rows[0]++;
+            }, extraction.afterKey() == null ? new Object[0] : extraction.afterKey());
+            writer.close();
+        } catch (IOException e) {
+            abort(writer, e);
+            throw new UncheckedIOException("Could not write the spool of " + extraction.table(), e);
+        } catch (RuntimeException e) {
+            abort(writer, e);
+            throw e;
+        }
+        writeManifest(extraction.directory(), new Manifest(key, extraction.manifest().columns(), true));
+        log.info("########### spooled {} rows of {} in {} ms", rows[0], extraction.table(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private static void abort(SpoolSegments.Writer writer, Exception failure) {
+        try {
+            writer.abort();
+        } catch (IOException e) {
+            failure.addSuppressed(e);
+        }
+    }
+
+    /**
+     * @return whether the segment exists, after waiting for the extraction to either write it or complete without it.
+     */
+    private boolean awaitSegment(String table, Path segment) {
+        while (!Files.exists(segment)) {
+            var complete = manifest(segment.getParent()).map(Manifest::complete).orElse(false);
+            if (complete) {
+                return Files.exists(segment);
+            }
+            var extraction = extractions.get(table);
+            if (extraction == null || (extraction.isDone() && !extraction.isCompletedExceptionally())) {
+                throw new IllegalStateException("Spool of " + table + " is incomplete and not being extracted");
+            }
+            try {
+                extraction.get(100, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                // not there yet
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for the spool of " + table, e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Spooling " + table + " failed", e.getCause());
+            }
+        }
+        return true;
+    }
+
+    private Object[] lastKey(Path segment, Manifest manifest) {
+        var width = manifest.key().size() + manifest.columns().size();
+        var last = new Object[1][];
+        SpoolSegments.forEachBlock(segment, width, block -> last[0] = block.records().getLast());
+        return Arrays.copyOf(last[0], manifest.key().size());
+    }
+
+    private static int[] positions(Manifest manifest, SourceMapping<?> mapping) {
+        var columns = columns(mapping);
+        var positions = new int[columns.size()];
+        for (int i = 0; i < positions.length; i++) {
+            var index = manifest.columns().indexOf(columns.get(i));
+            if (index < 0) {
+                throw new IllegalStateException("Column " + columns.get(i) + " of " + mapping.table() + " is not spooled");
+            }
+            positions[i] = manifest.key().size() + index;
+        }
+        return positions;
+    }
+
+    private static List<Reader> readers(Manifest manifest, List<SourceMapping<?>> mappings) {
+        var readers = new LinkedHashMap<String, Reader>();
+        for (var mapping : mappings) {
+            var columns = columns(mapping);
+            for (int i = 0; i < columns.size(); i++) {
+                readers.putIfAbsent(columns.get(i), new Reader(mapping, i));
+            }
+        }
+        return manifest.columns().stream().map(column -> {
+            var reader = readers.get(column);
+            if (reader == null) {
+                throw new IllegalStateException("No mapping reads spooled column " + column);
+            }
+            return reader;
+        }).toList();
+    }
+
+    /**
+     * @return the columns of a mapping as {@code selectItem:Type}, so that a column read as two types, or two
+     * expressions under the same alias, are spooled apart.
+     */
+    private static List<String> columns(SourceMapping<?> mapping) {
+        var columns = new ArrayList<String>();
+        for (int i = 0; i < mapping.columns().size(); i++) {
+            columns.add(mapping.selectItems().get(i) + ":" + mapping.types().get(i).getSimpleName());
+        }
+        return columns;
+    }
+
+    private Path directory(String table) {
+        return Path.of(settings.getDirectory()).resolve(table);
+    }
+
+    private static Optional<Manifest> manifest(Path directory) {
+        var file = directory.resolve(MANIFEST);
+        if (!Files.exists(file)) {
+            return Optional.empty();
+        }
+        var properties = new Properties();
+        try (var in = Files.newBufferedReader(file)) {
+            properties.load(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read " + file, e);
+        }
+        var columns = new ArrayList<String>();
+        for (var i = 0; properties.containsKey("column." + i); i++) {
+            columns.add(properties.getProperty("column." + i));
+        }
+        return Optional.of(new Manifest(split(properties.getProperty("key")), columns,
+                Boolean.parseBoolean(properties.getProperty("complete"))));
+    }
+
+    private static void writeManifest(Path directory, Manifest manifest) {
+        var properties = new Properties();
+        properties.setProperty("key", String.join(",", manifest.key()));
+        // one entry per column, as computed columns may contain commas
+        for (int i = 0; i < manifest.columns().size(); i++) {
+            properties.setProperty("column." + i, manifest.columns().get(i));
+        }
+        properties.setProperty("complete", String.valueOf(manifest.complete()));
+        try {
+            Files.createDirectories(directory);
+            var temporary = directory.resolve(MANIFEST + ".tmp");
+            try (var out = Files.newBufferedWriter(temporary)) {
+                properties.store(out, null);
+            }
+            Files.move(temporary, directory.resolve(MANIFEST), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write the spool manifest in " + directory, e);
+        }
+    }
+
+    private static List<String> split(String value) {
+        return value == null || value.isEmpty() ? List.of() : List.of(value.split(","));
+    }
+
+    private static void delete(Path directory) {
+        if (!Files.exists(directory)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (var path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not delete " + directory, e);
+        }
+    }
+
+    /**
+     * Receives the rows of one spooled block.
+     */
+    @FunctionalInterface
+    public interface BlockConsumer<S> {
+
+        /**
+         * @param block the number of the block across the segments of the table, from 0.
+         * @param rows  the mapped rows of the block, in source key order.
+         */
+        void accept(int block, List<S> rows);
+    }
+
+    /**
+     * What is spooled for a table.
+     *
+     * @param key      the primary key columns, spooled first; empty without primary key.
+     * @param columns  the spooled columns as {@code selectItem:Type}.
+     * @param complete whether the extraction completed.
+     */
+    private record Manifest(List<String> key, List<String> columns, boolean complete) {
+    }
+
+    /**
+     * A spooled column, read with the typed getter of a mapping declaring it.
+     */
+    private record Reader(SourceMapping<?> mapping, int column) {
+    }
+
+    private record Extraction(String table, Path directory, Manifest manifest, List<Reader> readers,
+                              int firstSegment, Object[] afterKey) {
+    }
+}
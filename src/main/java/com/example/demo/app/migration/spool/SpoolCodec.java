@@ -0,0 +1,125 @@
+package com.example.demo.app.migration.spool;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+/**
+ * Encodes the values of a spooled row, each as a one-byte type tag followed by its payload in big-endian order.
+ *
+ * <p>The types are those the typed getters of a {@code SourceMapping} return, plus the ones MySQL primary keys come
+ * back as from {@code getObject}. JDBC timestamps, dates and times are spooled as their {@code java.time} counterparts.
+ */
+final class SpoolCodec {
+    private static final byte NULL = 0;
+    private static final byte STRING = 1;
+    private static final byte INTEGER = 2;
+    private static final byte LONG = 3;
+    private static final byte DATE = 4;
+    private static final byte TIME = 5;
+    private static final byte DATE_TIME = 6;
+    private static final byte DECIMAL = 7;
+    private static final byte BIG_INTEGER = 8;
+    private static final byte DOUBLE = 9;
+    private static final byte BOOLEAN = 10;
+    private static final byte BYTES = 11;
+
+    private SpoolCodec() {
+    }
+
+    static void write(DataOutputStream out, Object value) throws IOException {
+        switch (value) {
+            case null -> out.writeByte(NULL);
+            case String string -> {
+                out.writeByte(STRING);
+                writeBytes(out, string.getBytes(StandardCharsets.UTF_8));
+            }
+            case Integer integer -> {
+                out.writeByte(INTEGER);
+                out.writeInt(integer);
+            }
+            case Long number -> {
+                out.writeByte(LONG);
+                out.writeLong(number);
+            }
+            case LocalDate date -> {
+                out.writeByte(DATE);
+                out.writeLong(date.toEpochDay());
+            }
+            case LocalTime time -> {
+                out.writeByte(TIME);
+                out.writeLong(time.toNanoOfDay());
+            }
+            case LocalDateTime dateTime -> writeDateTime(out, dateTime);
+            case Timestamp timestamp -> writeDateTime(out, timestamp.toLocalDateTime());
+            case Date date -> write(out, date.toLocalDate());
+            case Time time -> write(out, time.toLocalTime());
+            case BigDecimal decimal -> {
+                out.writeByte(DECIMAL);
+                writeBytes(out, decimal.toString().getBytes(StandardCharsets.US_ASCII));
+            }
+            case BigInteger integer -> {
+                out.writeByte(BIG_INTEGER);
+                writeBytes(out, integer.toByteArray());
+            }
+            case Double number -> {
+                out.writeByte(DOUBLE);
+                out.writeDouble(number);
+            }
+            case Boolean bool -> {
+                out.writeByte(BOOLEAN);
+                out.writeBoolean(bool);
+            }
+            case byte[] bytes -> {
+                out.writeByte(BYTES);
+                writeBytes(out, bytes);
+            }
+            default -> throw new IllegalArgumentException("Cannot spool a " + value.getClass().getName());
+        }
+    }
+
+    static Object read(ByteBuffer in) {
+        var tag = in.get();
+        return switch (tag) {
+            case NULL -> null;
+            case STRING -> new String(readBytes(in), StandardCharsets.UTF_8);
+            case INTEGER -> in.getInt();
+            case LONG -> in.getLong();
+            case DATE -> LocalDate.ofEpochDay(in.getLong());
+            case TIME -> LocalTime.ofNanoOfDay(in.getLong());
+            case DATE_TIME -> LocalDateTime.of(LocalDate.ofEpochDay(in.getLong()), LocalTime.ofNanoOfDay(in.getLong()));
+            case DECIMAL -> new BigDecimal(new String(readBytes(in), StandardCharsets.US_ASCII));
+            case BIG_INTEGER -> new BigInteger(readBytes(in));
+            case DOUBLE -> in.getDouble();
+            case BOOLEAN -> in.get() != 0;
+            case BYTES -> readBytes(in);
+            default -> throw new IllegalStateException("Corrupt spool: unknown value tag " + tag);
+        };
+    }
+
+    private static void writeDateTime(DataOutputStream out, LocalDateTime dateTime) throws IOException {
+        out.writeByte(DATE_TIME);
+        out.writeLong(dateTime.toLocalDate().toEpochDay());
+        out.writeLong(dateTime.toLocalTime().toNanoOfDay());
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static byte[] readBytes(ByteBuffer in) {
+        var bytes = new byte[in.getInt()];
+        in.get(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.demo.app.migration.spool;
+
+import com.example.demo.app.config.MigratorProperties;
+import com.example.demo.app.migration.checkpoint.CheckpointStore;
+import com.example.demo.app.migration.executor.JobExecutor;
+import com.example.demo.app.migration.executor.RegisteredJob;
+import com.example.demo.app.migration.metrics.MigrationMetrics;
+import com.example.demo.app.migration.metrics.MigrationMetrics.Stage;
+import com.example.demo.app.migration.pipeline.PipelineJob;
+import com.example.demo.app.migration.reader.SourceMapping;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Loads a {@link PipelineJob} from the {@link SourceSpool} of its source table instead of from MySQL.
+ *
+ * <p>Every spooled block is transformed and written in one postgres transaction, recorded by the
+ * {@link CheckpointStore} as a chunk numbered after the block, so an interrupted load resumes after its last
+ * committed block. The load is a {@code migrator.job} observation and every block a {@code migrator.page}
+ * observation within it, see {@link MigrationMetrics}.
+ *
+ * <p>When a run starts, the source tables of its pending pipeline jobs are extracted in the background, unless
+ * {@code migrator.spool.phase} is {@code LOAD}; with {@code EXTRACT} the run ends once they are extracted.
+ */
+@Slf4j
+@Component
+public class SpoolLoader implements JobExecutor {
+    private final MigratorProperties migratorProperties;
+    private final SourceSpool sourceSpool;
+    private final TransactionTemplate transactionTemplate;
+    private final CheckpointStore checkpointStore;
+    private final MigrationMetrics migrationMetrics;
+
+    public SpoolLoader(MigratorProperties migratorProperties,
+                       SourceSpool sourceSpool,
+                       @Qualifier("postgresTransactionManager") PlatformTransactionManager postgresTransactionManager,
+                       CheckpointStore checkpointStore,
+                       MigrationMetrics migrationMetrics) {
+        this.migratorProperties = migratorProperties;
+        this.sourceSpool = sourceSpool;
+        this.transactionTemplate = new TransactionTemplate(postgresTransactionManager);
+        this.checkpointStore = checkpointStore;
+        this.migrationMetrics = migrationMetrics;
+    }
+
+    @Override
+    public MigratorProperties.Executor type() {
+        return MigratorProperties.Executor.SPOOLED;
+    }
+
+    /**
+     * Starts extracting the source tables of the pending pipeline jobs, in the order the jobs run.
+     */
+    @Override
+    public boolean start(List<RegisteredJob> pending) {
+        var phase = migratorProperties.getSpool().getPhase();
+        if (phase == MigratorProperties.SpoolPhase.LOAD) {
+            return true;
+        }
+        var tables = new LinkedHashMap<String, List<SourceMapping<?>>>();
+        for (var job : pending) {
+            if (job.job() instanceof PipelineJob<?, ?> pipelineJob) {
+                tables.computeIfAbsent(pipelineJob.source().table(), table -> new ArrayList<>()).add(pipelineJob.source());
+            }
+        }
+        sourceSpool.start(tables);
+        if (phase == MigratorProperties.SpoolPhase.EXTRACT) {
+            sourceSpool.await();
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void execute(RegisteredJob job, int batchSize) {
+        load((PipelineJob<?, ?>) job.job(), job.name(), job.version());
+    }
+
+    /**
+     * Waits for the extractions still running, so that a failed one is reported.
+     */
+    @Override
+    public void finish() {
+        if (migratorProperties.getSpool().getPhase() != MigratorProperties.SpoolPhase.LOAD) {
+            sourceSpool.await();
+        }
+    }
+
+    /**
+     * @param job     the job.
+     * @param name    the job name, for checkpoints and meters.
+     * @param version the migration version.
+     * @return the number of written rows.
+     */
+    public <S, T> long load(PipelineJob<S, T> job, String name, String version) {
+        var observation = migrationMetrics.job(name, version).start();
+        try (var scope = observation.openScope()) {
+            var resumeFrom = checkpointStore.lastChunk(name, version).map(checkpoint -> checkpoint.page() + 1).orElse(0);
+            if (resumeFrom > 0) {
+                log.info("########### resuming {} from spooled block {}", name, resumeFrom);
+            }
+            var written = new long[1];
+            sourceSpool.replay(job.source(), resumeFrom, (block, rows) -> {
+                migrationMetrics.rowsRead(name, version, rows.size());
+                var transformed = migrationMetrics.stage(Stage.TRANSFORM, name, version, () -> {
+                    var results = new ArrayList<T>(rows.size());
+                    for (var row : rows) {
+                        results.add(job.transform(row, version));
+                    }
+                    return results;
+                });
+                migrationMetrics.page(name, version, block, () -> migrationMetrics.stage(Stage.WRITE, name, version,
+                        () -> transactionTemplate.execute(status -> {
+                            job.write(transformed, version);
+                            checkpointStore.chunkCommitted(name, version, block, new Object[]{block}, transformed.size());
+                            return null;
+                        })));
+                migrationMetrics.rowsWritten(name, version, transformed.size());
+                written[0] += transformed.size();
+            });
+            log.info("########### loaded {} spooled rows for {}", written[0], name);
+            return written[0];
+        } catch (RuntimeException e) {
+            observation.error(e);
+            throw e;
+        } finally {
+            observation.stop();
+        }
+    }
+}
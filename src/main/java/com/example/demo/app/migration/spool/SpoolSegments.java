@@ -0,0 +1,231 @@
+package com.example.demo.app.migration.spool;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Segment files of a spooled table.
+ *
+ * <p>A segment is a sequence of blocks, each holding up to {@code block-rows} rows deflated together:
+ * <pre>
+ * block  := rows:int rawLength:int compressedLength:int deflate(record*)
+ * record := length:int value*          (one value per spooled column, see {@link SpoolCodec})
+ * </pre>
+ * Segments are written as {@code segment-NNNNNN.tmp} and renamed to {@code .seg} once complete, so a {@code .seg}
+ * file is never partial and can be replayed while later segments are still being extracted. Segments are read back
+ * through a read-only memory mapping.
+ */
+final class SpoolSegments {
+    private static final String SEALED = ".seg";
+    private static final String PARTIAL = ".tmp";
+
+    private SpoolSegments() {
+    }
+
+    static Path segment(Path directory, int number) {
+        return directory.resolve("segment-%06d%s".formatted(number, SEALED));
+    }
+
+    /**
+     * @return the sealed segments of a spool directory, in order; they are numbered without gaps.
+     */
+    static List<Path> sealed(Path directory) {
+        var segments = new ArrayList<Path>();
+        for (var number = 0; Files.exists(segment(directory, number)); number++) {
+            segments.add(segment(directory, number));
+        }
+        return segments;
+    }
+
+    /**
+     * Visits the blocks of a sealed segment; a block is only inflated if its rows are asked for.
+     */
+    static void forEachBlock(Path segment, int width, Consumer<Block> visitor) {
+        try (var channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            while (mapped.hasRemaining()) {
+                var rows = mapped.getInt();
+                var rawLength = mapped.getInt();
+                var compressedLength = mapped.getInt();
+                var compressed = mapped.slice(mapped.position(), compressedLength);
+                mapped.position(mapped.position() + compressedLength);
+                visitor.accept(new Block(rows, rawLength, compressed, width));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read spool segment " + segment, e);
+        }
+    }
+
+    /**
+     * A block of a segment, still compressed.
+     */
+    static final class Block {
+        private final int rows;
+        private final int rawLength;
+        private final ByteBuffer compressed;
+        private final int width;
+
+        private Block(int rows, int rawLength, ByteBuffer compressed, int width) {
+            this.rows = rows;
+            this.rawLength = rawLength;
+            this.compressed = compressed;
+            this.width = width;
+        }
+
+        int rows() {
+            return rows;
+        }
+
+        /**
+         * @return the rows of the block, each as the values of the spooled columns.
+         */
+        List<Object[]> records() {
+            var raw = ByteBuffer.allocate(rawLength);
+            var inflater = new Inflater();
+            try {
+                inflater.setInput(compressed.duplicate());
+                while (raw.hasRemaining() && !inflater.finished()) {
+                    inflater.inflate(raw);
+                }
+            } catch (DataFormatException e) {
+                throw new IllegalStateException("Corrupt spool block", e);
+            } finally {
+                inflater.end();
+            }
+            raw.flip();
+            var records = new ArrayList<Object[]>(rows);
+            for (int i = 0; i < rows; i++) {
+                raw.getInt();
+                var values = new Object[width];
+                for (int column = 0; column < width; column++) {
+                    values[column] = SpoolCodec.read(raw);
+                }
+                records.add(values);
+            }
+            return records;
+        }
+    }
+
+    /**
+     * Appends rows to the segments of a spool directory, starting a new segment once the current one reaches the
+     * segment size. Closing it flushes the last block and seals the last segment.
+     */
+    static final class Writer implements Closeable {
+        private final Path directory;
+        private final long segmentSize;
+        private final int blockRows;
+        private final ByteArrayOutputStream record = new ByteArrayOutputStream();
+        private final DataOutputStream recordOut = new DataOutputStream(record);
+        private final ByteArrayOutputStream block = new ByteArrayOutputStream();
+        private final DataOutputStream blockOut = new DataOutputStream(block);
+        private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        private int number;
+        private int rows;
+        private long written;
+        private DataOutputStream out;
+
+        Writer(Path directory, int firstSegment, long segmentSize, int blockRows) {
+            this.directory = directory;
+            this.number = firstSegment;
+            this.segmentSize = segmentSize;
+            this.blockRows = blockRows;
+        }
+
+        void append(Object[] values) throws IOException {
+            record.reset();
+            for (var value : values) {
+                SpoolCodec.write(recordOut, value);
+            }
+            blockOut.writeInt(record.size());
+            record.writeTo(blockOut);
+            if (++rows == blockRows) {
+                flushBlock();
+            }
+        }
+
+        private void flushBlock() throws IOException {
+            if (rows == 0) {
+                return;
+            }
+            if (out == null) {
+                out = new DataOutputStream(new BufferedOutputStream(open(partial())));
+                written = 0;
+            }
+            var raw = block.toByteArray();
+            deflater.reset();
+            deflater.setInput(raw);
+            deflater.finish();
+            var compressed = new ByteArrayOutputStream(raw.length / 2 + 64);
+            var buffer = new byte[64 * 1024];
+            while (!deflater.finished()) {
+                compressed.write(buffer, 0, deflater.deflate(buffer));
+            }
+            out.writeInt(rows);
+            out.writeInt(raw.length);
+            out.writeInt(compressed.size());
+            compressed.writeTo(out);
+            written += 12 + compressed.size();
+            block.reset();
+            rows = 0;
+            if (written >= segmentSize) {
+                seal();
+            }
+        }
+
+        private void seal() throws IOException {
+            out.close();
+            out = null;
+            Files.move(partial(), segment(directory, number), StandardCopyOption.ATOMIC_MOVE);
+            number++;
+        }
+
+        private Path partial() {
+            return directory.resolve("segment-%06d%s".formatted(number, PARTIAL));
+        }
+
+        private static OutputStream open(Path path) throws IOException {
+            return Files.newOutputStream(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flushBlock();
+                if (out != null) {
+                    seal();
+                }
+            } finally {
+                deflater.end();
+            }
+        }
+
+        /**
+         * Drops the segment being written, e.g. when the extraction failed.
+         */
+        void abort() throws IOException {
+            deflater.end();
+            if (out != null) {
+                out.close();
+                Files.deleteIfExists(partial());
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.demo.app.migration.staging;
+
+import com.example.demo.app.config.MigratorProperties;
+import com.example.demo.app.migration.checkpoint.CheckpointStore;
+import com.example.demo.app.migration.executor.ExecutionDecorator;
+import com.example.demo.app.migration.executor.RegisteredJob;
+import com.example.demo.app.migration.rollback.RollbackJob;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * With {@code migrator.staging.enabled}, loads the only table of a job whose rollback deletes what it inserted
+ * through a staging table when that table is empty, see {@link StagingTableManager}.
+ *
+ * <p>Not applied with the {@code STATELESS} and {@code UPSERT} write modes, which write the live table, nor with the
+ * {@code FUSED} executor, whose scans write the tables of several jobs at once.
+ *
+ * <p>Before a run, staging tables left by a crashed one are dropped, even with staging disabled, and the checkpoints
+ * of the pending jobs that were loading them are forgotten.
+ */
+@Component
+@RequiredArgsConstructor
+public class StagingDecorator implements ExecutionDecorator {
+    private final MigratorProperties migratorProperties;
+    private final StagingTableManager stagingTableManager;
+    private final CheckpointStore checkpointStore;
+
+    @Override
+    public void prepare(List<RegisteredJob> pending) {
+        var orphans = stagingTableManager.dropOrphans();
+        if (orphans.isEmpty()) {
+            return;
+        }
+        for (var job : pending) {
+            if (job.job() instanceof RollbackJob rollbackJob && rollbackJob.rollbackSteps(job.version()).stream()
+                    .anyMatch(step -> step.isDelete() && orphans.contains(step.table()))) {
+                checkpointStore.clear(job.name(), job.version());
+            }
+        }
+    }
+
+    @Override
+    public void aroundJob(RegisteredJob job, Runnable run) {
+        var staged = stagedTable(job);
+        if (staged != null) {
+            stagingTableManager.load(staged, job.name(), job.version(), run);
+        } else {
+            run.run();
+        }
+    }
+
+    /**
+     * @return the table to load through a staging table, null to load in place.
+     */
+    private String stagedTable(RegisteredJob job) {
+        if (!migratorProperties.getStaging().isEnabled()
+                || migratorProperties.getExecutor() == MigratorProperties.Executor.FUSED
+                || migratorProperties.getWriteMode() == MigratorProperties.WriteMode.STATELESS
+                || migratorProperties.getWriteMode() == MigratorProperties.WriteMode.UPSERT
+                || !(job.job() instanceof RollbackJob rollbackJob)) {
+            return null;
+        }
+        var steps = rollbackJob.rollbackSteps(job.version());
+        if (steps.size() != 1 || !steps.getFirst().isDelete()) {
+            return null;
+        }
+        var table = steps.getFirst().table();
+        return stagingTableManager.canStage(table) ? table : null;
+    }
+}
@@ -0,0 +1,206 @@
+package com.example.demo.app.migration.staging;
+
+import com.example.demo.app.migration.checkpoint.CheckpointStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Loads an empty target table through an {@code UNLOGGED} staging copy that replaces it in one transaction once the
+ * load has completed.
+ *
+ * <p>During the load, writes go to {@code <table>_staging}, created {@code LIKE} the target with its defaults,
+ * constraints and identities but without indexes, and not WAL-logged. Readers keep seeing the live table. When the
+ * load completes:
+ * <ol>
+ *     <li>the target's indexes are built on the staging table under temporary names,</li>
+ *     <li>the staging table is switched to {@code LOGGED} and gets the target's foreign keys,</li>
+ *     <li>in one transaction, the target is locked, its sequences are handed over to the staging table, it is
+ *     dropped, and the staging table, its indexes and constraints take its names; grants are copied over.</li>
+ * </ol>
+ * The job is marked completed by the swap transaction, so a job whose swap did not commit is loaded again. A load or
+ * swap that fails drops the staging table and forgets the job's checkpoints: an unlogged table is emptied by a crash
+ * recovery, so it is never resumed. Staging tables left by a crashed run are dropped before the next one starts, see
+ * {@link #dropOrphans()}.
+ *
+ * <p>Only tables without dependants (foreign keys pointing to them, views) can be swapped.
+ */
+@Slf4j
+@Component
+public class StagingTableManager {
+    private static final String SUFFIX = "_staging";
+
+    private final JdbcTemplate postgresJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final CheckpointStore checkpointStore;
+    private final Map<String, String> redirects = new ConcurrentHashMap<>();
+
+    public StagingTableManager(@Qualifier("postgresJdbcTemplate") JdbcTemplate postgresJdbcTemplate,
+                               @Qualifier("postgresTransactionManager") PlatformTransactionManager postgresTransactionManager,
+                               CheckpointStore checkpointStore) {
+        this.postgresJdbcTemplate = postgresJdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(postgresTransactionManager);
+        this.checkpointStore = checkpointStore;
+    }
+
+    /**
+     * @param table a target table.
+     * @return the table writes to it currently go to: its staging table during a staged load, itself otherwise.
+     */
+    public String resolve(String table) {
+        return redirects.getOrDefault(table, table);
+    }
+
+    /**
+     * @param table a target table.
+     * @return whether the table is empty and has no dependants, so it can be loaded through a staging table.
+     */
+    public boolean canStage(String table) {
+        var empty = postgresJdbcTemplate.queryForObject("SELECT NOT EXISTS (SELECT 1 FROM " + table + ")", Boolean.class);
+        if (!Boolean.TRUE.equals(empty)) {
+            return false;
+        }
+        var dependants = postgresJdbcTemplate.queryForObject("""
+                SELECT (SELECT count(*) FROM pg_constraint WHERE confrelid = to_regclass(?) AND conrelid <> confrelid)
+                     + (SELECT count(*) FROM pg_depend d JOIN pg_rewrite r ON r.oid = d.objid
+                        WHERE d.refobjid = to_regclass(?) AND r.ev_class <> d.refobjid)
+                """, Long.class, table, table);
+        if (dependants != null && dependants > 0) {
+            log.warn("########### {} is referenced by other tables or views, loading it in place", table);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Runs the load of a job through a staging table and swaps it in if the load succeeds.
+     *
+     * @param table   the target table, empty.
+     * @param job     the job name.
+     * @param version the migration version.
+     * @param load    runs the job.
+     */
+    public void load(String table, String job, String version, Runnable load) {
+        var staging = table + SUFFIX;
+        postgresJdbcTemplate.execute("DROP TABLE IF EXISTS " + staging);
+        checkpointStore.clear(job, version);
+        postgresJdbcTemplate.execute("CREATE UNLOGGED TABLE " + staging + " (LIKE " + table
+                + " INCLUDING DEFAULTS INCLUDING CONSTRAINTS INCLUDING IDENTITY INCLUDING GENERATED)");
+        log.info("########### loading {} through unlogged {}", table, staging);
+
+        redirects.put(table, staging);
+        try {
+            load.run();
+            redirects.remove(table);
+            swap(table, staging, job, version);
+        } catch (RuntimeException e) {
+            redirects.remove(table);
+            postgresJdbcTemplate.execute("DROP TABLE IF EXISTS " + staging);
+            checkpointStore.clear(job, version);
+            log.error("########### load of {} failed, dropped {}", table, staging);
+            throw e;
+        }
+    }
+
+    /**
+     * Drops the staging tables a crashed run left behind, whose loads can never be resumed.
+     *
+     * @return the target tables whose staging table was dropped.
+     */
+    public List<String> dropOrphans() {
+        var orphans = postgresJdbcTemplate.queryForList("""
+                SELECT t.tablename FROM pg_tables t
+                JOIN pg_tables s ON s.schemaname = t.schemaname AND s.tablename = t.tablename || ?
+                WHERE t.schemaname = current_schema()
+                """, String.class, SUFFIX);
+        for (var table : orphans) {
+            if (!redirects.containsKey(table)) {
+                postgresJdbcTemplate.execute("DROP TABLE IF EXISTS " + table + SUFFIX);
+                log.warn("########### dropped {}{} left by an interrupted staged load", table, SUFFIX);
+            }
+        }
+        return orphans;
+    }
+
+    private void swap(String table, String staging, String job, String version) {
+        var start = System.nanoTime();
+        var renames = new ArrayList<String>();
+        for (var index : indexes(table)) {
+            var temporary = index.name() + SUFFIX;
+            postgresJdbcTemplate.execute(index.definition()
+                    .replaceFirst(" INDEX \\S+ ON (ONLY )?\\S+ ", " INDEX " + temporary + " ON " + staging + " "));
+            if (index.constraint() != null) {
+                postgresJdbcTemplate.execute("ALTER TABLE " + staging + " ADD CONSTRAINT " + temporary + " "
+                        + index.constraint() + " USING INDEX " + temporary);
+                renames.add("ALTER TABLE " + table + " RENAME CONSTRAINT " + temporary + " TO " + index.name());
+            } else {
+                renames.add("ALTER INDEX " + temporary + " RENAME TO " + index.name());
+            }
+        }
+        postgresJdbcTemplate.execute("ALTER TABLE " + staging + " SET LOGGED");
+        var foreignKeys = postgresJdbcTemplate.query(
+                "SELECT conname, pg_get_constraintdef(oid) FROM pg_constraint WHERE conrelid = to_regclass(?) AND contype = 'f'",
+                (resultSet, rowNum) -> new String[]{resultSet.getString(1), resultSet.getString(2)}, table);
+        for (var foreignKey : foreignKeys) {
+            postgresJdbcTemplate.execute("ALTER TABLE " + staging + " ADD CONSTRAINT " + foreignKey[0] + SUFFIX + " " + foreignKey[1]);
+            renames.add("ALTER TABLE " + table + " RENAME CONSTRAINT " + foreignKey[0] + SUFFIX + " TO " + foreignKey[0]);
+        }
+
+        var sequences = postgresJdbcTemplate.query("""
+                        SELECT s.oid::regclass::text, a.attname FROM pg_depend d
+                        JOIN pg_class s ON s.oid = d.objid AND s.relkind = 'S'
+                        JOIN pg_attribute a ON a.attrelid = d.refobjid AND a.attnum = d.refobjsubid
+                        WHERE d.refobjid = to_regclass(?) AND d.deptype = 'a'
+                        """,
+                (resultSet, rowNum) -> "ALTER SEQUENCE " + resultSet.getString(1) + " OWNED BY " + staging + "."
+                        + resultSet.getString(2), table);
+        var grants = postgresJdbcTemplate.query("""
+                        SELECT privilege_type, grantee FROM information_schema.role_table_grants
+                        WHERE table_schema = current_schema() AND table_name = ? AND grantee <> grantor
+                        """,
+                (resultSet, rowNum) -> "GRANT " + resultSet.getString(1) + " ON " + table + " TO \""
+                        + resultSet.getString(2) + "\"", table);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            postgresJdbcTemplate.execute("LOCK TABLE " + table + " IN ACCESS EXCLUSIVE MODE");
+            sequences.forEach(postgresJdbcTemplate::execute);
+            postgresJdbcTemplate.execute("DROP TABLE " + table);
+            postgresJdbcTemplate.execute("ALTER TABLE " + staging + " RENAME TO " + table);
+            renames.forEach(postgresJdbcTemplate::execute);
+            grants.forEach(postgresJdbcTemplate::execute);
+            checkpointStore.completed(job, version);
+        });
+        log.info("########### swapped {} in for {} in {} ms", staging, table, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private List<Index> indexes(String table) {
+        return postgresJdbcTemplate.query("""
+                        SELECT c.relname, pg_get_indexdef(i.indexrelid),
+                               CASE k.contype WHEN 'p' THEN 'PRIMARY KEY' WHEN 'u' THEN 'UNIQUE' END
+                        FROM pg_index i
+                        JOIN pg_class c ON c.oid = i.indexrelid
+                        LEFT JOIN pg_constraint k ON k.conindid = i.indexrelid AND k.contype IN ('p', 'u')
+                        WHERE i.indrelid = to_regclass(?)
+                        """,
+                (resultSet, rowNum) -> new Index(resultSet.getString(1), resultSet.getString(2), resultSet.getString(3)),
+                table);
+    }
+
+    /**
+     * An index of the target table.
+     *
+     * @param name       its name.
+     * @param definition its {@code pg_get_indexdef}.
+     * @param constraint {@code PRIMARY KEY} or {@code UNIQUE} when it backs such a constraint, null otherwise.
+     */
+    private record Index(String name, String definition, String constraint) {
+    }
+}
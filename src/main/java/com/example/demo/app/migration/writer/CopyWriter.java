@@ -0,0 +1,88 @@
+package com.example.demo.app.migration.writer;
+
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Bulk loads rows into PostgreSQL with {@code COPY ... FROM STDIN (FORMAT binary)}.
+ *
+ * <p>Meant for the first full load of a table, where it is considerably faster than batched INSERTs. Rows are
+ * streamed through the pgJDBC copy API and encoded by {@link PgBinaryRowEncoder} without going through JPA.
+ * The connection is taken with {@link DataSourceUtils}, so a copy joins the surrounding postgres transaction
+ * when there is one.
+ */
+@Slf4j
+@Component
+public class CopyWriter {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final DataSource postgresDataSource;
+
+    public CopyWriter(@Qualifier("postgresDataSource") DataSource postgresDataSource) {
+        this.postgresDataSource = postgresDataSource;
+    }
+
+    /**
+     * Copies a page of entities into their table.
+     *
+     * @param table    the target table definition.
+     * @param entities the entities of the page.
+     * @param <T>      the entity type.
+     * @return the number of copied rows.
+     */
+    public <T> long copy(EntityTable<T> table, List<T> entities) {
+        return copyRows(table.table(), table.columns(), entities.stream().map(table.values())::iterator);
+    }
+
+    /**
+     * Copies raw rows into a table.
+     *
+     * @param table   the target table.
+     * @param columns the target columns, in the order of the row values.
+     * @param rows    the rows to copy; iterated once, so it may be backed by a streamed source.
+     * @return the number of copied rows.
+     */
+    public long copyRows(String table, List<String> columns, Iterable<Object[]> rows) {
+        var sql = "COPY " + table + " (" + String.join(", ", columns) + ") FROM STDIN (FORMAT binary)";
+        var connection = DataSourceUtils.getConnection(postgresDataSource);
+        PGCopyOutputStream copy = null;
+        try {
+            copy = new PGCopyOutputStream(connection.unwrap(PGConnection.class), sql, BUFFER_SIZE);
+            var encoder = new PgBinaryRowEncoder(copy);
+            encoder.writeHeader();
+            for (var row : rows) {
+                encoder.writeRow(row);
+            }
+            encoder.writeTrailer();
+            var count = copy.endCopy();
+            log.debug("########### copied {} rows into {}", count, table);
+            return count;
+        } catch (SQLException | IOException e) {
+            throw new DataAccessResourceFailureException("COPY into " + table + " failed", e);
+        } finally {
+            cancelIfActive(copy);
+            DataSourceUtils.releaseConnection(connection, postgresDataSource);
+        }
+    }
+
+    private static void cancelIfActive(PGCopyOutputStream copy) {
+        if (copy == null || !copy.isActive()) {
+            return;
+        }
+        try {
+            copy.cancelCopy();
+        } catch (SQLException e) {
+            log.warn("########### could not cancel COPY", e);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.demo.app.migration.writer;
+
+import com.example.demo.app.migration.declarative.SqlJob;
+import com.example.demo.app.migration.declarative.SqlJobWriter;
+import com.example.demo.app.migration.executor.ExecutionDecorator;
+import com.example.demo.app.migration.executor.RegisteredJob;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Creates the natural key indexes of the tables the pending enrich jobs write before any of them runs, see
+ * {@link EnrichWriter#prepare}.
+ *
+ * <p>Under {@code SEQUENTIAL}, where db-migrator runs the jobs, the {@code PageMigrator} prepares a job before its
+ * first page instead; the delta sync prepares the incremental jobs on startup.
+ */
+@Component
+@RequiredArgsConstructor
+public class EnrichIndexDecorator implements ExecutionDecorator {
+    private final EnrichWriter enrichWriter;
+    private final SqlJobWriter sqlJobWriter;
+
+    @Override
+    public void prepare(List<RegisteredJob> pending) {
+        pending.forEach(job -> prepare(job.job()));
+    }
+
+    /**
+     * Creates the key index of the table a job enriches, if it is an {@link EnrichJob} or a {@link SqlJob} with an
+     * enrich mapping.
+     *
+     * @param job the job.
+     */
+    public void prepare(Object job) {
+        if (job instanceof SqlJob sqlJob) {
+            sqlJobWriter.prepareEnrich(sqlJob.mapping());
+        } else if (job instanceof EnrichJob enrichJob) {
+            enrichWriter.prepare(enrichJob.enrichSpec());
+        }
+    }
+}
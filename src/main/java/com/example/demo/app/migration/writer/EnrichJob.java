@@ -0,0 +1,13 @@
+package com.example.demo.app.migration.writer;
+
+/**
+ * A job writing its rows with the {@link EnrichWriter}, whose key index is created before the job runs, see
+ * {@link EnrichIndexDecorator}.
+ */
+public interface EnrichJob {
+
+    /**
+     * @return the enrichment the job applies.
+     */
+    EnrichSpec enrichSpec();
+}
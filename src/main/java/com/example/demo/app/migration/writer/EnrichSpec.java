@@ -0,0 +1,16 @@
+package com.example.demo.app.migration.writer;
+
+import java.util.List;
+
+/**
+ * Describes a set-based enrichment of a target table: which natural key identifies the rows to update and which
+ * columns are set from the source.
+ *
+ * @param table            the target table.
+ * @param keyColumn        the natural key column used to match source rows with target rows.
+ * @param setColumns       the columns set from the source rows.
+ * @param insertUnmatched  whether source rows without a matching target row are inserted, with only the set
+ *                         columns and the version filled in, as the row-by-row {@code orElse(new ...)} path did.
+ */
+public record EnrichSpec(String table, String keyColumn, List<String> setColumns, boolean insertUnmatched) {
+}
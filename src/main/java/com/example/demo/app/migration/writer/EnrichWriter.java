@@ -0,0 +1,147 @@
+package com.example.demo.app.migration.writer;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Applies a page of enrichment rows to a target table with one set-based statement instead of a lookup and a
+ * save per row.
+ *
+ * <p>Within one postgres transaction the page is:
+ * <ol>
+ *     <li>loaded into a temporary staging table shaped like the target columns,</li>
+ *     <li>applied with {@code UPDATE target SET ... FROM staging WHERE target.key = staging.key},</li>
+ *     <li>optionally completed by inserting the staged rows that matched nothing.</li>
+ * </ol>
+ * The staging table is dropped right after it is applied, so several pages can be enriched within one enclosing
+ * transaction; it is also {@code ON COMMIT DROP} so that a failed page does not leave it behind.
+ * An index on the natural key column is created before the run, so the join does not scan the target for every
+ * page, see {@link EnrichIndexDecorator}.
+ */
+@Slf4j
+@Component
+public class EnrichWriter {
+    private final JdbcTemplate postgresJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate outsideTransaction;
+    private final Set<String> indexedKeys = ConcurrentHashMap.newKeySet();
+
+    public EnrichWriter(@Qualifier("postgresJdbcTemplate") JdbcTemplate postgresJdbcTemplate,
+                        @Qualifier("postgresTransactionManager") PlatformTransactionManager postgresTransactionManager) {
+        this.postgresJdbcTemplate = postgresJdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(postgresTransactionManager);
+        this.outsideTransaction = new TransactionTemplate(postgresTransactionManager);
+        this.outsideTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_NOT_SUPPORTED);
+    }
+
+    /**
+     * Enriches the target table with one page of source rows.
+     *
+     * @param spec    the enrichment definition.
+     * @param rows    the source rows: the natural key followed by one value per set column. When a key appears
+     *                more than once, the last row wins, as it did when rows were saved one by one.
+     * @param version the migration version written on every touched row.
+     * @return the matched and unmatched counts of the page.
+     */
+    public EnrichResult enrich(EnrichSpec spec, List<Object[]> rows, String version) {
+        if (rows.isEmpty()) {
+            return new EnrichResult(0, 0);
+        }
+        var byKey = new LinkedHashMap<Object, Object[]>();
+        for (var row : rows) {
+            byKey.put(row[0], row);
+        }
+        var staged = new ArrayList<>(byKey.values());
+
+        var result = transactionTemplate.execute(status -> {
+            var staging = "enrich_" + spec.table();
+            var stagingColumns = new ArrayList<String>();
+            stagingColumns.add(spec.keyColumn());
+            stagingColumns.addAll(spec.setColumns());
+            var columnList = String.join(", ", stagingColumns);
+
+            postgresJdbcTemplate.execute("CREATE TEMP TABLE " + staging + " ON COMMIT DROP AS SELECT " + columnList
+                    + " FROM " + spec.table() + " WITH NO DATA");
+            postgresJdbcTemplate.batchUpdate("INSERT INTO " + staging + " (" + columnList + ") VALUES ("
+                    + stagingColumns.stream().map(c -> "?").collect(Collectors.joining(", ")) + ")", staged);
+
+            var parameters = spec.insertUnmatched() ? new Object[]{version, version} : new Object[]{version};
+            var matched = postgresJdbcTemplate.queryForObject(applySql(spec, staging), Long.class, parameters);
+            postgresJdbcTemplate.execute("DROP TABLE " + staging);
+            var matchedRows = matched == null ? 0 : matched;
+            return new EnrichResult(matchedRows, staged.size() - matchedRows);
+        });
+        log.info("########### enriched {}: {} matched, {} unmatched", spec.table(), result.matched(), result.unmatched());
+        return result;
+    }
+
+    /**
+     * Builds the update (and insert of unmatched rows) as data-modifying CTEs, so both run against the same
+     * snapshot and the statement returns the number of matched keys.
+     */
+    private String applySql(EnrichSpec spec, String staging) {
+        var key = spec.keyColumn();
+        var assignments = spec.setColumns().stream()
+                .map(c -> c + " = s." + c)
+                .collect(Collectors.joining(", "));
+        var sql = new StringBuilder("WITH updated AS (UPDATE ").append(spec.table()).append(" t SET ")
+                .append(assignments).append(", version = ? FROM ").append(staging).append(" s WHERE t.")
+                .append(key).append(" = s.").append(key).append(" RETURNING s.").append(key).append(")");
+        if (spec.insertUnmatched()) {
+            var columns = String.join(", ", spec.setColumns());
+            var values = spec.setColumns().stream().map(c -> "s." + c).collect(Collectors.joining(", "));
+            sql.append(", inserted AS (INSERT INTO ").append(spec.table()).append(" (").append(columns)
+                    .append(", version) SELECT ").append(values).append(", ? FROM ").append(staging)
+                    .append(" s WHERE NOT EXISTS (SELECT 1 FROM ").append(spec.table()).append(" t WHERE t.")
+                    .append(key).append(" = s.").append(key).append(") RETURNING 1)");
+        }
+        return sql.append(" SELECT count(DISTINCT ").append(key).append(") FROM updated").toString();
+    }
+
+    /**
+     * Creates the index on the natural key column of an enriched table. It is built {@code CONCURRENTLY}, outside any
+     * transaction, so writes to the live table go on meanwhile.
+     *
+     * @param spec the enrichment definition.
+     */
+    public void prepare(EnrichSpec spec) {
+        var index = spec.table() + "_" + spec.keyColumn() + "_idx";
+        if (indexedKeys.contains(index)) {
+            return;
+        }
+        // CONCURRENTLY cannot run inside a transaction block and does not block writers
+        outsideTransaction.executeWithoutResult(status -> {
+            var valid = postgresJdbcTemplate.queryForList(
+                    "SELECT indisvalid FROM pg_index WHERE indexrelid = to_regclass(?)", Boolean.class, index);
+            if (!valid.isEmpty() && !valid.getFirst()) {
+                // an interrupted CREATE INDEX CONCURRENTLY leaves an invalid index that IF NOT EXISTS would keep
+                log.warn("########### {} is invalid, rebuilding it", index);
+                postgresJdbcTemplate.execute("DROP INDEX CONCURRENTLY IF EXISTS " + index);
+            }
+            postgresJdbcTemplate.execute(
+                    "CREATE INDEX CONCURRENTLY IF NOT EXISTS " + index + " ON " + spec.table() + " (" + spec.keyColumn() + ")");
+        });
+        indexedKeys.add(index);
+    }
+
+    /**
+     * Outcome of enriching one page.
+     *
+     * @param matched   staged rows that updated at least one target row.
+     * @param unmatched staged rows that matched no target row.
+     */
+    public record EnrichResult(long matched, long unmatched) {
+    }
+}
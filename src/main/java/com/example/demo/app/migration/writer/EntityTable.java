@@ -0,0 +1,111 @@
+package com.example.demo.app.migration.writer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Describes how an entity of the {@code domain.postgres} package is written to its target table without JPA.
+ *
+ * <p>The generated key column is never part of {@link #columns()}: it is left to the database, so no key has
+ * to be fetched back after an insert. Rows are identified instead by their natural key, when the table declares one:
+ * a column holding a value unique to each source row, typically the source id, see {@link #withSourceIdColumn}.
+ *
+ * <p>An upsert only updates the columns the writing job {@link #owning owns}. Columns filled by later versions, such
+ * as those of enrich jobs and the version column, keep their values when an earlier version is re-run.
+ *
+ * @param table      the target table.
+ * @param columns    the written columns, in the order produced by {@code values}.
+ * @param values     extracts the column values of an entity.
+ * @param naturalKey the column identifying a row across runs, one of {@code columns}; null if there is none.
+ * @param sourceId   extracts the id of the source row an entity comes from; null if entities do not carry it.
+ * @param owned      the columns an upsert updates on conflict, among {@code columns}; null for all of them.
+ * @param <T>        the entity type.
+ */
+public record EntityTable<T>(String table, List<String> columns, Function<T, Object[]> values, String naturalKey,
+                             Function<T, Object> sourceId, List<String> owned) {
+
+    public EntityTable {
+        if (naturalKey != null && !columns.contains(naturalKey)) {
+            throw new IllegalArgumentException(naturalKey + " is not a column of " + table);
+        }
+        if (owned != null && !columns.containsAll(owned)) {
+            throw new IllegalArgumentException(owned + " are not all columns of " + table);
+        }
+    }
+
+    public EntityTable(String table, List<String> columns, Function<T, Object[]> values) {
+        this(table, columns, values, null, null, null);
+    }
+
+    public EntityTable(String table, List<String> columns, Function<T, Object[]> values, String naturalKey) {
+        this(table, columns, values, naturalKey, null, null);
+    }
+
+    public EntityTable(String table, List<String> columns, Function<T, Object[]> values, String naturalKey,
+                       Function<T, Object> sourceId) {
+        this(table, columns, values, naturalKey, sourceId, null);
+    }
+
+    /**
+     * @param columns the columns the writing job fills from the source.
+     * @return this definition updating only those columns when an upsert finds the row.
+     */
+    public EntityTable<T> owning(String... columns) {
+        return new EntityTable<>(table, this.columns, values, naturalKey, sourceId, List.of(columns));
+    }
+
+    /**
+     * @param table another table with the same columns, e.g. a staging copy.
+     * @return this definition writing to that table.
+     */
+    public EntityTable<T> withTable(String table) {
+        return table.equals(this.table) ? this : new EntityTable<>(table, columns, values, naturalKey, sourceId, owned);
+    }
+
+    /**
+     * @param column the target column holding the source id, {@code migrator.source-id-column}; blank for none.
+     * @return this definition also writing the source id of each entity into that column, with the column as
+     * natural key; this definition when the column is blank or the entities carry no source id.
+     */
+    public EntityTable<T> withSourceIdColumn(String column) {
+        if (column == null || column.isBlank() || sourceId == null || columns.contains(column)) {
+            return this;
+        }
+        var written = new ArrayList<>(columns);
+        written.add(column);
+        var width = columns.size();
+        Function<T, Object[]> withSourceId = entity -> {
+            var row = Arrays.copyOf(values.apply(entity), width + 1);
+            row[width] = sourceId.apply(entity);
+            return row;
+        };
+        return new EntityTable<>(table, List.copyOf(written), withSourceId, column, sourceId, owned);
+    }
+
+    /**
+     * @return a parameterised INSERT statement for one row of this table.
+     */
+    public String insertSql() {
+        return "INSERT INTO " + table + " (" + String.join(", ", columns) + ") VALUES ("
+                + columns.stream().map(c -> "?").collect(Collectors.joining(", ")) + ")";
+    }
+
+    /**
+     * @return a parameterised INSERT statement for one row of this table that updates the owned columns of the row
+     * with the same natural key instead when there is one.
+     */
+    public String upsertSql() {
+        if (naturalKey == null) {
+            throw new IllegalStateException(table + " declares no natural key to upsert on");
+        }
+        var assignments = (owned == null ? columns : owned).stream()
+                .filter(column -> !column.equals(naturalKey))
+                .map(column -> column + " = EXCLUDED." + column)
+                .collect(Collectors.joining(", "));
+        return insertSql() + " ON CONFLICT (" + naturalKey + ")"
+                + (assignments.isEmpty() ? " DO NOTHING" : " DO UPDATE SET " + assignments);
+    }
+}
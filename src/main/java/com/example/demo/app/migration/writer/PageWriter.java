@@ -0,0 +1,96 @@
+package com.example.demo.app.migration.writer;
+
+import com.example.demo.app.config.MigratorProperties;
+import com.example.demo.app.migration.staging.StagingTableManager;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Entry point used by the jobs to write a page, dispatching to the writer selected by {@code migrator.write-mode}.
+ * While a table is loaded through a staging table, its pages are written there, see {@link StagingTableManager}.
+ * Enrichments go through the {@link EnrichWriter}, or through the {@link StatelessWriter} under {@code STATELESS}.
+ *
+ * <p>With {@code migrator.source-id-column} set, the source id of each row is written into that column and is the
+ * key upserts match on. {@code UPSERT} is refused at startup without it: no other column is unique per source row.
+ * {@code STATELESS} is refused with it, and with the delta sync that relies on it: the JPA mappings do not carry the
+ * source id, so the rows it writes could not be matched later.
+ */
+@Component
+public class PageWriter {
+    private final MigratorProperties migratorProperties;
+    private final BatchInsertWriter batchInsertWriter;
+    private final CopyWriter copyWriter;
+    private final StatelessWriter statelessWriter;
+    private final UpsertWriter upsertWriter;
+    private final EnrichWriter enrichWriter;
+    private final StagingTableManager stagingTableManager;
+
+    public PageWriter(MigratorProperties migratorProperties, BatchInsertWriter batchInsertWriter,
+                      CopyWriter copyWriter, StatelessWriter statelessWriter, UpsertWriter upsertWriter,
+                      EnrichWriter enrichWriter, StagingTableManager stagingTableManager) {
+        if (migratorProperties.getWriteMode() == MigratorProperties.WriteMode.UPSERT
+                && migratorProperties.getSourceIdColumn().isBlank()) {
+            throw new IllegalStateException("migrator.write-mode UPSERT needs migrator.source-id-column, "
+                    + "the target column holding the source id that rows are matched on");
+        }
+        if (migratorProperties.getWriteMode() == MigratorProperties.WriteMode.STATELESS
+                && (!migratorProperties.getSourceIdColumn().isBlank() || migratorProperties.getIncremental().isEnabled())) {
+            throw new IllegalStateException("migrator.write-mode STATELESS cannot fill migrator.source-id-column, "
+                    + "which upsert re-runs and migrator.incremental match rows on; use BATCH or COPY");
+        }
+        this.migratorProperties = migratorProperties;
+        this.batchInsertWriter = batchInsertWriter;
+        this.copyWriter = copyWriter;
+        this.statelessWriter = statelessWriter;
+        this.upsertWriter = upsertWriter;
+        this.enrichWriter = enrichWriter;
+        this.stagingTableManager = stagingTableManager;
+    }
+
+    /**
+     * Inserts a page of entities.
+     *
+     * @param table    the target table definition.
+     * @param entities the entities of the page.
+     * @param <T>      the entity type.
+     * @return the number of written rows.
+     */
+    public <T> long insert(EntityTable<T> table, List<T> entities) {
+        table = table.withSourceIdColumn(migratorProperties.getSourceIdColumn())
+                .withTable(stagingTableManager.resolve(table.table()));
+        return switch (migratorProperties.getWriteMode()) {
+            case BATCH -> batchInsertWriter.insert(table, entities);
+            case COPY -> copyWriter.copy(table, entities);
+            case STATELESS -> statelessWriter.insert(entities);
+            case UPSERT -> upsertWriter.upsert(table, entities);
+        };
+    }
+
+    /**
+     * Upserts a page of entities on their source id, whatever the write mode, e.g. rows changed since the bulk run.
+     *
+     * @param table    the target table definition, whose entities carry their source id.
+     * @param entities the entities of the page.
+     * @param <T>      the entity type.
+     * @return the number of written rows.
+     */
+    public <T> long upsert(EntityTable<T> table, List<T> entities) {
+        return upsertWriter.upsert(table.withSourceIdColumn(migratorProperties.getSourceIdColumn()), entities);
+    }
+
+    /**
+     * Enriches the target table of a spec with a page of source rows, see {@link EnrichWriter#enrich}.
+     *
+     * @param spec    the enrichment definition.
+     * @param rows    the source rows: the natural key followed by one value per set column.
+     * @param version the migration version written on every touched row.
+     * @return the matched and unmatched counts of the page.
+     */
+    public EnrichWriter.EnrichResult enrich(EnrichSpec spec, List<Object[]> rows, String version) {
+        if (migratorProperties.getWriteMode() == MigratorProperties.WriteMode.STATELESS) {
+            return statelessWriter.enrich(spec, rows, version);
+        }
+        return enrichWriter.enrich(spec, rows, version);
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.demo.app.migration.writer;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Encodes rows in the PostgreSQL binary COPY format.
+ *
+ * <p>Values are encoded from their Java type, so each value must match the type of its target column:
+ * {@code String} for text/varchar, {@code Integer} for int4, {@code Long} for int8, {@code LocalDate} (or
+ * {@link java.sql.Date}) for date, {@code LocalTime} (or {@link java.sql.Time}) for time and
+ * {@code LocalDateTime} (or {@link java.sql.Timestamp}) for timestamp.
+ */
+public final class PgBinaryRowEncoder {
+    private static final byte[] SIGNATURE = {'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0};
+    private static final LocalDate PG_EPOCH_DATE = LocalDate.of(2000, 1, 1);
+    private static final LocalDateTime PG_EPOCH = PG_EPOCH_DATE.atStartOfDay();
+
+    private final DataOutputStream out;
+
+    public PgBinaryRowEncoder(OutputStream out) {
+        this.out = new DataOutputStream(out);
+    }
+
+    /**
+     * Writes the COPY header; must be called once before the first row.
+     */
+    public void writeHeader() throws IOException {
+        out.write(SIGNATURE);
+        out.writeInt(0);
+        out.writeInt(0);
+    }
+
+    /**
+     * Writes one tuple.
+     *
+     * @param values the column values, in the column order of the COPY statement.
+     */
+    public void writeRow(Object[] values) throws IOException {
+        out.writeShort(values.length);
+        for (var value : values) {
+            writeValue(value);
+        }
+    }
+
+    /**
+     * Writes the COPY trailer and flushes; must be called once after the last row.
+     */
+    public void writeTrailer() throws IOException {
+        out.writeShort(-1);
+        out.flush();
+    }
+
+    private void writeValue(Object value) throws IOException {
+        switch (value) {
+            case null -> out.writeInt(-1);
+            case String s -> {
+                var bytes = s.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+            case Integer i -> {
+                out.writeInt(4);
+                out.writeInt(i);
+            }
+            case Long l -> {
+                out.writeInt(8);
+                out.writeLong(l);
+            }
+            case Short s -> {
+                out.writeInt(2);
+                out.writeShort(s);
+            }
+            case Boolean b -> {
+                out.writeInt(1);
+                out.writeByte(b ? 1 : 0);
+            }
+            case Double d -> {
+                out.writeInt(8);
+                out.writeDouble(d);
+            }
+            case java.sql.Date d -> writeValue(d.toLocalDate());
+            case java.sql.Time t -> writeValue(t.toLocalTime());
+            case java.sql.Timestamp t -> writeValue(t.toLocalDateTime());
+            case LocalDate d -> {
+                out.writeInt(4);
+                out.writeInt((int) ChronoUnit.DAYS.between(PG_EPOCH_DATE, d));
+            }
+            case LocalTime t -> {
+                out.writeInt(8);
+                out.writeLong(t.toNanoOfDay() / 1_000);
+            }
+            case LocalDateTime t -> {
+                out.writeInt(8);
+                out.writeLong(ChronoUnit.MICROS.between(PG_EPOCH, t));
+            }
+            default -> throw new IllegalArgumentException("Unsupported COPY value type " + value.getClass().getName());
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.demo.app.migration.writer;
+
+import com.example.demo.app.domain.postgres.Contact;
+import com.example.demo.app.domain.postgres.Course;
+import com.example.demo.app.domain.postgres.Users;
+
+import java.util.List;
+
+/**
+ * {@link EntityTable} definitions of the {@code domain.postgres} entities, kept in line with their JPA mappings. None of
+ * their columns is unique per source row, so they declare no natural key: rows are keyed on the source id once
+ * {@code migrator.source-id-column} is set, see {@link PageWriter}.
+ */
+public final class PostgresTables {
+
+    public static final EntityTable<Users> USERS = new EntityTable<>("users",
+            List.of("version", "birth_date", "phone_number", "first_name", "last_name", "city", "job", "email"),
+            user -> new Object[]{user.getVersion(), user.getBirthDate(), user.getPhoneNumber(), user.getFirstName(),
+                    user.getLastName(), user.getCity(), user.getJob(), user.getEmail()}, null, Users::getSourceId);
+
+    public static final EntityTable<Course> COURSE = new EntityTable<>("course",
+            List.of("name", "version", "date", "time", "location"),
+            course -> new Object[]{course.getName(), course.getVersion(), course.getDate(), course.getTime(),
+                    course.getLocation()}, null, Course::getSourceId);
+
+    public static final EntityTable<Contact> CONTACT = new EntityTable<>("contact",
+            List.of("first_name", "version", "last_name", "company"),
+            contact -> new Object[]{contact.getFirstName(), contact.getVersion(), contact.getLastName(),
+                    contact.getCompany()}, null, Contact::getSourceId);
+
+    private PostgresTables() {
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.demo.app.migration.writer;
+
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Writes {@code domain.postgres} entities through a Hibernate {@link StatelessSession} of the postgres
+ * persistence unit.
+ *
+ * <p>Unlike {@code JpaRepository.save}, a stateless session keeps no persistence context: entities are not
+ * tracked, not dirty-checked, not merged and nothing is cascaded, so heap and CPU stay flat over millions of rows
+ * while the JPA mappings are still used. The session runs on the connection of the current postgres transaction,
+ * so it commits or rolls back with it.
+ *
+ * <p>It is not a bulk writer: the entities use {@code IDENTITY} ids, so Hibernate executes every insert right away to
+ * read the generated key back, and JDBC batching does not apply. That is one {@code INSERT ... RETURNING id} round
+ * trip per row, far slower than the single multi-row batch per page of {@link BatchInsertWriter}. Use it only where
+ * the JPA mappings matter more than throughput.
+ *
+ * <p>Enrich jobs are applied the way they used to be, a lookup of the matching entities and an update per entity,
+ * except that the lookup is one query per page and nothing is kept in a persistence context.
+ */
+@Slf4j
+@Component
+public class StatelessWriter {
+    private final SessionFactory sessionFactory;
+    private final DataSource postgresDataSource;
+    private final Map<String, AbstractEntityPersister> persisters = new ConcurrentHashMap<>();
+
+    public StatelessWriter(@Qualifier("postgresEntityManagerFactory") EntityManagerFactory postgresEntityManagerFactory,
+                           @Qualifier("postgresDataSource") DataSource postgresDataSource) {
+        this.sessionFactory = postgresEntityManagerFactory.unwrap(SessionFactory.class);
+        this.postgresDataSource = postgresDataSource;
+    }
+
+    /**
+     * Inserts new entities, one statement per entity.
+     *
+     * @param entities the entities to insert.
+     * @return the number of inserted entities.
+     */
+    public int insert(List<?> entities) {
+        if (entities.isEmpty()) {
+            return 0;
+        }
+        return execute(session -> {
+            entities.forEach(session::insert);
+            log.debug("########### inserted {} entities without persistence context", entities.size());
+            return entities.size();
+        });
+    }
+
+    /**
+     * Updates existing entities, identified by their id, one statement per entity.
+     *
+     * @param entities the entities to update.
+     * @return the number of updated entities.
+     */
+    public int update(List<?> entities) {
+        if (entities.isEmpty()) {
+            return 0;
+        }
+        return execute(session -> {
+            entities.forEach(session::update);
+            log.debug("########### updated {} entities without persistence context", entities.size());
+            return entities.size();
+        });
+    }
+
+    /**
+     * Enriches the entities mapped to a target table with one page of source rows: the entities matching the keys
+     * of the page are loaded with one query, changed and {@link #update updated}; the rows matching none are
+     * {@link #insert inserted} as new entities when the spec asks for it.
+     *
+     * @param spec    the enrichment definition; its columns must be mapped by the entity of its table.
+     * @param rows    the source rows: the natural key followed by one value per set column. When a key appears
+     *                more than once, the last row wins.
+     * @param version the migration version written on every touched entity.
+     * @return the matched and unmatched counts of the page.
+     */
+    public EnrichWriter.EnrichResult enrich(EnrichSpec spec, List<Object[]> rows, String version) {
+        if (rows.isEmpty()) {
+            return new EnrichWriter.EnrichResult(0, 0);
+        }
+        var persister = persisters.computeIfAbsent(spec.table(), this::persister);
+        var keyProperty = property(persister, spec.keyColumn());
+        var setProperties = spec.setColumns().stream().map(column -> property(persister, column)).toList();
+        var versionProperty = property(persister, "version");
+        var byKey = new LinkedHashMap<Object, Object[]>();
+        for (var row : rows) {
+            byKey.put(row[0], row);
+        }
+
+        var matched = execute(session -> {
+            var found = new HashMap<Object, List<Object>>();
+            session.createQuery("SELECT e FROM " + persister.getEntityName() + " e WHERE e." + keyProperty + " IN :keys",
+                            persister.getMappedClass())
+                    .setParameterList("keys", byKey.keySet())
+                    .getResultList()
+                    .forEach(entity -> found.computeIfAbsent(persister.getPropertyValue(entity, keyProperty),
+                            key -> new ArrayList<>()).add(entity));
+            var updated = new ArrayList<>();
+            var inserted = new ArrayList<>();
+            for (var row : byKey.values()) {
+                var entities = found.get(row[0]);
+                if (entities == null && !spec.insertUnmatched()) {
+                    continue;
+                }
+                for (var entity : entities == null ? List.of(newEntity(persister)) : entities) {
+                    for (int i = 0; i < setProperties.size(); i++) {
+                        persister.setPropertyValue(entity, setProperties.get(i), row[i + 1]);
+                    }
+                    persister.setPropertyValue(entity, versionProperty, version);
+                    (entities == null ? inserted : updated).add(entity);
+                }
+            }
+            updated.forEach(session::update);
+            inserted.forEach(session::insert);
+            return found.size();
+        });
+        var result = new EnrichWriter.EnrichResult(matched, byKey.size() - matched);
+        log.info("########### enriched {} without persistence context: {} matched, {} unmatched",
+                spec.table(), result.matched(), result.unmatched());
+        return result;
+    }
+
+    private <R> R execute(Function<StatelessSession, R> work) {
+        var connection = DataSourceUtils.getConnection(postgresDataSource);
+        try (var session = sessionFactory.openStatelessSession(connection)) {
+            return work.apply(session);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, postgresDataSource);
+        }
+    }
+
+    private AbstractEntityPersister persister(String table) {
+        var matches = new ArrayList<AbstractEntityPersister>();
+        sessionFactory.unwrap(SessionFactoryImplementor.class).getMappingMetamodel().forEachEntityDescriptor(descriptor -> {
+            if (descriptor instanceof AbstractEntityPersister persister
+                    && persister.getRootTableName().equalsIgnoreCase(table)) {
+                matches.add(persister);
+            }
+        });
+        if (matches.size() != 1) {
+            throw new IllegalStateException("No single entity of the postgres persistence unit is mapped to " + table);
+        }
+        return matches.getFirst();
+    }
+
+    private static String property(AbstractEntityPersister persister, String column) {
+        for (var property : persister.getPropertyNames()) {
+            var columns = persister.getPropertyColumnNames(property);
+            if (columns.length == 1 && columns[0].equalsIgnoreCase(column)) {
+                return property;
+            }
+        }
+        throw new IllegalStateException(persister.getEntityName() + " maps no property to column " + column);
+    }
+
+    private static Object newEntity(AbstractEntityPersister persister) {
+        try {
+            return persister.getMappedClass().getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot instantiate " + persister.getEntityName(), e);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.demo.app.migration.writer;
+
+import com.example.demo.app.config.MigratorProperties;
+import com.example.demo.app.migration.declarative.SqlJob;
+import com.example.demo.app.migration.declarative.SqlJobWriter;
+import com.example.demo.app.migration.executor.ExecutionDecorator;
+import com.example.demo.app.migration.executor.RegisteredJob;
+import com.example.demo.app.migration.rollback.RollbackJob;
+import com.example.demo.app.migration.rollback.RollbackStep;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * With the {@code UPSERT} write mode, creates the unique indexes the upserts of the pending jobs conflict on before
+ * any of them runs, see {@link UpsertWriter#prepare}.
+ *
+ * <p>Under {@code SEQUENTIAL}, where db-migrator runs the jobs, the {@code PageMigrator} prepares a job before its
+ * first page instead; the delta sync prepares the incremental jobs on startup.
+ */
+@Component
+@RequiredArgsConstructor
+public class UpsertIndexDecorator implements ExecutionDecorator {
+    private final MigratorProperties migratorProperties;
+    private final UpsertWriter upsertWriter;
+    private final SqlJobWriter sqlJobWriter;
+
+    @Override
+    public void prepare(List<RegisteredJob> pending) {
+        if (migratorProperties.getWriteMode() != MigratorProperties.WriteMode.UPSERT) {
+            return;
+        }
+        pending.forEach(job -> prepare(job.job(), job.version()));
+    }
+
+    /**
+     * Creates the unique indexes the upserts of a job conflict on: the natural key of a {@link SqlJob} insert mapping,
+     * or else the source id column of the tables the job's rollback deletes from, which are the tables it inserts into.
+     *
+     * @param job     the job.
+     * @param version the migration version.
+     */
+    public void prepare(Object job, String version) {
+        if (job instanceof SqlJob sqlJob) {
+            sqlJobWriter.prepareUpsert(sqlJob.mapping());
+        } else if (job instanceof RollbackJob rollbackJob) {
+            rollbackJob.rollbackSteps(version).stream()
+                    .filter(RollbackStep::isDelete)
+                    .forEach(step -> upsertWriter.prepare(step.table(), migratorProperties.getSourceIdColumn()));
+        }
+    }
+}
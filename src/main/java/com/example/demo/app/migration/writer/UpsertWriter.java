@@ -0,0 +1,117 @@
+package com.example.demo.app.migration.writer;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Writes a page of entities with {@code INSERT ... ON CONFLICT (natural key) DO UPDATE} as a single JDBC batch, so a
+ * retried page or a re-run version updates the rows it already wrote instead of duplicating them.
+ *
+ * <p>The conflict target needs a unique index on the {@link EntityTable#naturalKey() natural key}, normally the
+ * source id column. It is created before the run, see {@link UpsertIndexDecorator}, never from a page: the build
+ * would hold a connection and block writes to the table for the whole page. A page holding a null or repeated key
+ * is refused: the key would not identify the row, and writing it would either duplicate rows across runs or silently
+ * drop some of them.
+ */
+@Slf4j
+@Component
+public class UpsertWriter {
+    private final JdbcTemplate postgresJdbcTemplate;
+    private final TransactionTemplate outsideTransaction;
+    private final Set<String> indexedTables = ConcurrentHashMap.newKeySet();
+
+    public UpsertWriter(@Qualifier("postgresJdbcTemplate") JdbcTemplate postgresJdbcTemplate,
+                        @Qualifier("postgresTransactionManager") PlatformTransactionManager postgresTransactionManager) {
+        this.postgresJdbcTemplate = postgresJdbcTemplate;
+        this.outsideTransaction = new TransactionTemplate(postgresTransactionManager);
+        this.outsideTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_NOT_SUPPORTED);
+    }
+
+    /**
+     * Upserts the given entities in one batch.
+     *
+     * @param table    the target table definition, with a natural key.
+     * @param entities the entities of the page.
+     * @param <T>      the entity type.
+     * @return the number of written rows.
+     */
+    public <T> int upsert(EntityTable<T> table, List<T> entities) {
+        if (entities.isEmpty()) {
+            return 0;
+        }
+        var sql = table.upsertSql();
+        var keyIndex = table.columns().indexOf(table.naturalKey());
+        var rows = new ArrayList<Object[]>(entities.size());
+        var keys = new HashSet<>();
+        for (var entity : entities) {
+            var values = table.values().apply(entity);
+            var key = values[keyIndex];
+            if (key == null || !keys.add(key)) {
+                throw new IllegalStateException("Cannot upsert into " + table.table() + ": "
+                        + (key == null ? "null" : "duplicate " + key) + " " + table.naturalKey() + " in the page");
+            }
+            rows.add(values);
+        }
+        postgresJdbcTemplate.batchUpdate(sql, rows);
+        log.debug("########### upserted {} rows into {}", rows.size(), table.table());
+        return rows.size();
+    }
+
+    /**
+     * Creates the unique index upserts into a table conflict on, unless the table already has one. The index is
+     * built {@code CONCURRENTLY}, outside any transaction, so writers are not blocked meanwhile.
+     *
+     * @param table  the target table.
+     * @param column its natural key column.
+     * @throws IllegalStateException if the index cannot be built, typically because the table holds duplicates.
+     */
+    public void prepare(String table, String column) {
+        if (indexedTables.contains(table)) {
+            return;
+        }
+        outsideTransaction.executeWithoutResult(status -> createUniqueIndex(table, column));
+        indexedTables.add(table);
+    }
+
+    private void createUniqueIndex(String table, String column) {
+        var existing = postgresJdbcTemplate.queryForObject("""
+                SELECT count(*) FROM pg_index i
+                JOIN pg_attribute a ON a.attrelid = i.indrelid AND a.attnum = i.indkey[0]
+                WHERE i.indrelid = to_regclass(?) AND i.indisunique AND i.indisvalid AND i.indnatts = 1
+                AND i.indpred IS NULL AND a.attname = ?
+                """, Long.class, table, column);
+        if (existing != null && existing > 0) {
+            return;
+        }
+        var index = table + "_" + column + "_key";
+        var valid = postgresJdbcTemplate.queryForList(
+                "SELECT indisvalid FROM pg_index WHERE indexrelid = to_regclass(?)", Boolean.class, index);
+        if (!valid.isEmpty() && !valid.getFirst()) {
+            // an interrupted CREATE INDEX CONCURRENTLY leaves an invalid index that IF NOT EXISTS would keep
+            log.warn("########### {} is invalid, rebuilding it", index);
+            postgresJdbcTemplate.execute("DROP INDEX CONCURRENTLY IF EXISTS " + index);
+        }
+        log.info("########### creating unique index {} on {} ({}) for upserts", index, table, column);
+        try {
+            postgresJdbcTemplate.execute("CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS " + index + " ON " + table
+                    + " (" + column + ")");
+        } catch (DataAccessException e) {
+            // a failed concurrent build leaves the index behind, invalid
+            postgresJdbcTemplate.execute("DROP INDEX CONCURRENTLY IF EXISTS " + index);
+            throw new IllegalStateException("Cannot upsert into " + table + ": no unique index on " + column
+                    + " and creating one failed, the table may already hold duplicates", e);
+        }
+    }
+}
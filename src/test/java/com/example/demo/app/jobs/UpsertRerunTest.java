@@ -0,0 +1,86 @@
+package com.example.demo.app.jobs;
+
+import com.example.demo.app.config.MigratorProperties;
+import com.example.demo.app.domain.postgres.Users;
+import com.example.demo.app.migration.checkpoint.CheckpointStore;
+import com.example.demo.app.migration.staging.StagingTableManager;
+import com.example.demo.app.migration.writer.BatchInsertWriter;
+import com.example.demo.app.migration.writer.CopyWriter;
+import com.example.demo.app.migration.writer.EnrichWriter;
+import com.example.demo.app.migration.writer.PageWriter;
+import com.example.demo.app.migration.writer.StatelessWriter;
+import com.example.demo.app.migration.writer.UpsertWriter;
+import com.example.demo.app.support.TestDatabases;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+
+import javax.sql.DataSource;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class UpsertRerunTest {
+    private final DataSource dataSource = TestDatabases.target();
+    private final JdbcTemplate target = new JdbcTemplate(dataSource);
+    private com.example.demo.app.jobs.v1_0_0.UserJob userJob;
+    private com.example.demo.app.jobs.v1_1_0.UserJob phoneNumberJob;
+
+    @BeforeEach
+    void createTarget() {
+        target.execute("DROP TABLE IF EXISTS users");
+        target.execute("""
+                CREATE TABLE users (id SERIAL PRIMARY KEY, version VARCHAR(20), birth_date DATE, phone_number VARCHAR(50),
+                first_name VARCHAR(100), last_name VARCHAR(100), city VARCHAR(100), job VARCHAR(100), email VARCHAR(100),
+                source_id INT)
+                """);
+
+        var properties = new MigratorProperties();
+        properties.setWriteMode(MigratorProperties.WriteMode.UPSERT);
+        properties.setSourceIdColumn("source_id");
+        var transactionManager = new DataSourceTransactionManager(dataSource);
+        var upsertWriter = new UpsertWriter(target, transactionManager);
+        upsertWriter.prepare("users", "source_id");
+        var pageWriter = new PageWriter(properties, new BatchInsertWriter(target), new CopyWriter(dataSource),
+                mock(StatelessWriter.class), upsertWriter, new EnrichWriter(target, transactionManager),
+                new StagingTableManager(target, transactionManager, mock(CheckpointStore.class)));
+        userJob = new com.example.demo.app.jobs.v1_0_0.UserJob(null, null, null, pageWriter);
+        phoneNumberJob = new com.example.demo.app.jobs.v1_1_0.UserJob(null, null, null, pageWriter);
+    }
+
+    @Test
+    void rerunOfTheFirstVersionKeepsWhatLaterVersionsWrote() {
+        runUserJob(user(1, "Ada", "ada@x"), user(2, "Alan", "alan@x"));
+        phoneNumberJob.write(List.<Object[]>of(new Object[]{"ada@x", "+33 1"}, new Object[]{"alan@x", "+44 2"}), "1.1.0");
+
+        // Ada moved and was renamed in the source since the first run
+        var moved = user(1, "Ada L.", "ada@x");
+        moved.setCity("London");
+        runUserJob(moved, user(2, "Alan", "alan@x"));
+
+        assertThat(target.query("SELECT source_id, first_name, city, phone_number, version FROM users ORDER BY source_id",
+                (resultSet, rowNum) -> Arrays.asList(resultSet.getInt(1), resultSet.getString(2), resultSet.getString(3),
+                        resultSet.getString(4), resultSet.getString(5))))
+                .containsExactly(
+                        Arrays.asList(1, "Ada L.", "London", "+33 1", "1.1.0"),
+                        Arrays.asList(2, "Alan", "Paris", "+44 2", "1.1.0"));
+    }
+
+    private void runUserJob(Users... users) {
+        userJob.write(Arrays.stream(users).map(user -> userJob.transform(user, "1.0.0")).toList(), "1.0.0");
+    }
+
+    private static Users user(int sourceId, String firstName, String email) {
+        var user = new Users();
+        user.setSourceId(sourceId);
+        user.setFirstName(firstName);
+        user.setLastName("Lovelace");
+        user.setCity("Paris");
+        user.setJob("Engineer");
+        user.setEmail(email);
+        return user;
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.demo.app.migration.checkpoint;
+
+import com.example.demo.app.migration.reader.KeyRange;
+import com.example.demo.app.support.TestDatabases;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class CheckpointStoreTest {
+    private static final String JOB = "CheckpointJob";
+    private static final String VERSION = "1.0.0";
+
+    private final DataSource dataSource = TestDatabases.target();
+    private final TransactionTemplate transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    private CheckpointStore checkpointStore;
+
+    @BeforeEach
+    void createStore() {
+        // the history database is the target, so checkpoints commit with the page they describe
+        var environment = new MockEnvironment()
+                .withProperty("migration.datasource.url", "jdbc:postgresql://embedded/postgres")
+                .withProperty("spring.datasource.postgres.url", "jdbc:postgresql://embedded/postgres");
+        var jdbcTemplate = new JdbcTemplate(dataSource);
+        checkpointStore = new CheckpointStore(environment, jdbcTemplate, jdbcTemplate);
+        checkpointStore.clear(JOB, VERSION);
+    }
+
+    @Test
+    void resumesEveryRangeFromItsLastCommittedKey() {
+        checkpointStore.rangesPlanned(JOB, VERSION, List.of(
+                new KeyRange(null, new Object[]{100}),
+                new KeyRange(new Object[]{100}, new Object[]{200}),
+                new KeyRange(new Object[]{200}, null)));
+        commitRange(0, 40);
+        commitRange(1, 150);
+        commitRange(1, 180);
+
+        assertThat(checkpointStore.plannedRanges(JOB, VERSION))
+                .extracting(range -> keyText(range.from()), range -> keyText(range.to()))
+                .containsExactly(
+                        tuple(null, "100"),
+                        tuple("100", "200"),
+                        tuple("200", null));
+        var positions = checkpointStore.rangePositions(JOB, VERSION);
+        assertThat(positions).containsOnlyKeys(0, 1);
+        assertThat(positions.get(0)).containsExactly(40);
+        assertThat(positions.get(1)).containsExactly(180);
+    }
+
+    @Test
+    void keepsTheTypeOfEveryKeyComponent() {
+        var position = new Object[]{Timestamp.valueOf("2024-01-31 10:15:30.123456"), LocalDateTime.of(2024, 2, 1, 8, 0),
+                LocalDate.of(2024, 2, 2), null, 42L, new BigDecimal("1.50"), "a:b", new byte[]{1, 2}};
+
+        transactionTemplate.executeWithoutResult(status -> checkpointStore.watermarkAdvanced(JOB, VERSION, position));
+
+        assertThat(checkpointStore.watermark(JOB, VERSION)).hasValueSatisfying(watermark ->
+                assertThat(watermark).containsExactly(position));
+    }
+
+    @Test
+    void forgetsThePositionOfARolledBackPage() {
+        commitRange(0, 40);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            checkpointStore.rangeCommitted(JOB, VERSION, 0, new Object[]{90}, 50);
+            status.setRollbackOnly();
+        });
+
+        assertThat(checkpointStore.rangePositions(JOB, VERSION).get(0)).containsExactly(40);
+    }
+
+    @Test
+    void completionDropsPositionsAndIsRecordedOnce() {
+        checkpointStore.rangesPlanned(JOB, VERSION, List.of(new KeyRange(null, null)));
+        commitRange(0, 40);
+
+        checkpointStore.completed(JOB, VERSION);
+        checkpointStore.completed(JOB, VERSION);
+
+        assertThat(checkpointStore.isCompleted(JOB, VERSION)).isTrue();
+        assertThat(checkpointStore.plannedRanges(JOB, VERSION)).isEmpty();
+        assertThat(checkpointStore.rangePositions(JOB, VERSION)).isEmpty();
+        assertThat(new JdbcTemplate(dataSource).queryForObject("SELECT rows_written FROM migrator_job WHERE job = ?",
+                Long.class, JOB)).isEqualTo(10L);
+
+        checkpointStore.clear(JOB, VERSION);
+
+        assertThat(checkpointStore.isCompleted(JOB, VERSION)).isFalse();
+    }
+
+    @Test
+    void completionInsideARolledBackTransactionIsNotRecorded() {
+        transactionTemplate.executeWithoutResult(status -> {
+            checkpointStore.completed(JOB, VERSION);
+            status.setRollbackOnly();
+        });
+
+        assertThat(checkpointStore.isCompleted(JOB, VERSION)).isFalse();
+    }
+
+    private void commitRange(int range, int lastKey) {
+        transactionTemplate.executeWithoutResult(status ->
+                checkpointStore.rangeCommitted(JOB, VERSION, range, new Object[]{lastKey}, 10));
+    }
+
+    private static String keyText(Object[] key) {
+        return key == null ? null : String.join(",", Arrays.stream(key).map(String::valueOf).toList());
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.demo.app.migration.executor;
+
+import com.avx.migration.jobs.spec.Job;
+import com.example.demo.app.config.MigratorProperties;
+import com.example.demo.app.migration.rollback.RollbackJob;
+import com.example.demo.app.migration.rollback.RollbackStep;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+class JobSchedulerTest {
+
+    @Test
+    @Timeout(10)
+    void rethrowsTheFailureThatHappenedFirst() {
+        var properties = new MigratorProperties();
+        properties.getDag().setMaxConcurrency(3);
+        var parallelPageExecutor = mock(ParallelPageExecutor.class);
+        when(parallelPageExecutor.concurrency()).thenReturn(3);
+        var scheduler = new JobScheduler(properties, parallelPageExecutor);
+        var ran = Collections.synchronizedList(new ArrayList<String>());
+        var zuluFailed = new CountDownLatch(1);
+
+        // independent jobs: alpha, first by name, fails only once zulu has failed; users waits for zulu
+        var jobs = List.of(job("alpha", "course"), job("zulu", "users"), job("users", "users"));
+        assertThatThrownBy(() -> scheduler.run("1.0.0", jobs, job -> {
+            ran.add(job.name());
+            switch (job.name()) {
+                case "zulu" -> {
+                    zuluFailed.countDown();
+                    throw new IllegalStateException("zulu failed");
+                }
+                case "alpha" -> {
+                    await(zuluFailed);
+                    // leaves the scheduler time to record the failure of zulu
+                    sleep(200);
+                    throw new IllegalStateException("alpha failed");
+                }
+                default -> {
+                }
+            }
+        })).hasMessage("zulu failed");
+        assertThat(ran).containsExactlyInAnyOrder("alpha", "zulu");
+    }
+
+    private static RegisteredJob job(String name, String table) {
+        var job = mock(Job.class, withSettings().extraInterfaces(RollbackJob.class));
+        when(((RollbackJob) job).rollbackSteps("1.0.0")).thenReturn(List.of(RollbackStep.delete(table)));
+        return new RegisteredJob(name, "1.0.0", 0, job);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
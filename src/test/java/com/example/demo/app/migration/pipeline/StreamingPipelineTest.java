@@ -0,0 +1,156 @@
+package com.example.demo.app.migration.pipeline;
+
+import com.example.demo.app.config.MigratorProperties;
+import com.example.demo.app.migration.checkpoint.CheckpointStore;
+import com.example.demo.app.migration.metrics.MigrationMetrics;
+import com.example.demo.app.migration.reader.KeysetPageReader;
+import com.example.demo.app.migration.reader.SourceMapping;
+import com.example.demo.app.migration.reader.SourceSizeEstimator;
+import com.example.demo.app.migration.reader.SourceThrottle;
+import com.example.demo.app.support.TestDatabases;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class StreamingPipelineTest {
+    private static final int ROWS = 2_000;
+    private static final SourceMapping<Integer[]> SOURCE = SourceMapping.of("streaming_source", () -> new Integer[1])
+            .integer("amount", (row, amount) -> row[0] = amount)
+            .build();
+    private static final SourceMapping<Integer[]> KEYLESS_SOURCE = SourceMapping.of("streaming_keyless", () -> new Integer[1])
+            .integer("amount", (row, amount) -> row[0] = amount)
+            .build();
+
+    private final CheckpointStore checkpointStore = mock(CheckpointStore.class);
+
+    @BeforeAll
+    static void createSource() {
+        var source = new JdbcTemplate(TestDatabases.source());
+        source.execute("DROP TABLE IF EXISTS streaming_source");
+        source.execute("CREATE TABLE streaming_source (id INT PRIMARY KEY, amount INT NOT NULL)");
+        source.batchUpdate("INSERT INTO streaming_source (id, amount) VALUES (?, ?)",
+                IntStream.rangeClosed(1, ROWS).mapToObj(id -> new Object[]{id, id * 10}).toList());
+        source.execute("DROP TABLE IF EXISTS streaming_keyless");
+        source.execute("CREATE TABLE streaming_keyless (amount INT NOT NULL)");
+        source.batchUpdate("INSERT INTO streaming_keyless (amount) VALUES (?)",
+                IntStream.rangeClosed(1, 250).mapToObj(amount -> new Object[]{amount}).toList());
+    }
+
+    @Test
+    @Timeout(60)
+    void streamsAllRowsInKeyOrderAndCheckpointsChunks() {
+        var written = Collections.synchronizedList(new ArrayList<Integer>());
+        var pipeline = pipeline(100, 1_000);
+
+        var rows = pipeline.run(job(row -> row, written::addAll), "StreamingJob", "1.0.0");
+
+        assertThat(rows).isEqualTo(ROWS);
+        assertThat(written).containsExactlyElementsOf(IntStream.rangeClosed(1, ROWS).mapToObj(id -> id * 10).toList());
+        verify(checkpointStore).chunkCommitted(eq("StreamingJob"), eq("1.0.0"), eq(19), any(), eq(100L));
+    }
+
+    @Test
+    @Timeout(60)
+    void writerFailureWithFullQueuesStopsEveryStage() {
+        // one-row chunks and a chunk queue of 4: the transformer blocks on its 6th row, the one after the queue is full
+        var queueFull = new CountDownLatch(1);
+        var transformed = new AtomicInteger();
+        var pipeline = pipeline(1, 4);
+
+        var job = job(row -> {
+            if (transformed.incrementAndGet() == 6) {
+                queueFull.countDown();
+            }
+            return row;
+        }, chunk -> {
+            try {
+                queueFull.await();
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            throw new IllegalStateException("write failed");
+        });
+
+        assertThatThrownBy(() -> pipeline.run(job, "FailingJob", "1.0.0")).hasMessage("write failed");
+        verify(checkpointStore, never()).chunkCommitted(any(), any(), anyInt(), any(), anyLong());
+    }
+
+    @Test
+    @Timeout(60)
+    void recordsChunksOfATableWithoutPrimaryKeyAndRefusesToResumeIt() {
+        var written = Collections.synchronizedList(new ArrayList<Integer>());
+        var pipeline = pipeline(100, 1_000);
+
+        assertThat(pipeline.run(job(KEYLESS_SOURCE, row -> row, written::addAll), "KeylessJob", "1.0.0")).isEqualTo(250);
+        verify(checkpointStore).pageCommitted("KeylessJob", "1.0.0", 2, 50L);
+
+        when(checkpointStore.committedPages("KeylessJob", "1.0.0")).thenReturn(Set.of(0, 1));
+        assertThatThrownBy(() -> pipeline.run(job(KEYLESS_SOURCE, row -> row, written::addAll), "KeylessJob", "1.0.0"))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("no primary key");
+        assertThat(written).hasSize(250);
+    }
+
+    private StreamingPipeline pipeline(int chunkSize, int queueCapacity) {
+        var properties = new MigratorProperties();
+        properties.getStreaming().setChunkSize(chunkSize);
+        properties.getStreaming().setQueueCapacity(queueCapacity);
+        var meterRegistry = new SimpleMeterRegistry();
+        var source = new JdbcTemplate(TestDatabases.source());
+        var keysetPageReader = new KeysetPageReader(source, new SourceThrottle(properties, source, meterRegistry));
+        return new StreamingPipeline(properties, TestDatabases.source(), mock(PlatformTransactionManager.class),
+                keysetPageReader, checkpointStore, mock(SourceSizeEstimator.class),
+                new MigrationMetrics(meterRegistry, ObservationRegistry.NOOP));
+    }
+
+    private static PipelineJob<Integer[], Integer> job(Function<Integer, Integer> transform,
+                                                       Consumer<List<Integer>> write) {
+        return job(SOURCE, transform, write);
+    }
+
+    private static PipelineJob<Integer[], Integer> job(SourceMapping<Integer[]> source, Function<Integer, Integer> transform,
+                                                       Consumer<List<Integer>> write) {
+        return new PipelineJob<>() {
+            @Override
+            public SourceMapping<Integer[]> source() {
+                return source;
+            }
+
+            @Override
+            public Integer transform(Integer[] source, String version) {
+                return transform.apply(source[0]);
+            }
+
+            @Override
+            public void write(List<Integer> chunk, String version) {
+                write.accept(chunk);
+            }
+        };
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.demo.app.migration.reader;
+
+import com.example.demo.app.config.MigratorProperties;
+import com.example.demo.app.support.TestDatabases;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class KeysetPageReaderTest {
+    private static final int ROWS = 1_000;
+    private static final SourceMapping<Integer[]> NUMERIC = SourceMapping.of("keyset_numeric", () -> new Integer[1])
+            .integer("amount", (row, amount) -> row[0] = amount)
+            .build();
+    private static final SourceMapping<Integer[]> COMPOSITE = SourceMapping.of("keyset_composite", () -> new Integer[1])
+            .integer("amount", (row, amount) -> row[0] = amount)
+            .build();
+
+    @BeforeAll
+    static void createSource() {
+        var source = new JdbcTemplate(TestDatabases.source());
+        // sparse ids, so that pages and ranges cannot be derived from the key values
+        source.execute("DROP TABLE IF EXISTS keyset_numeric");
+        source.execute("CREATE TABLE keyset_numeric (id INT PRIMARY KEY, amount INT NOT NULL)");
+        source.batchUpdate("INSERT INTO keyset_numeric (id, amount) VALUES (?, ?)",
+                IntStream.range(0, ROWS).mapToObj(i -> new Object[]{i * 7 + (i % 3), i}).toList());
+        source.execute("DROP TABLE IF EXISTS keyset_composite");
+        source.execute("CREATE TABLE keyset_composite (tenant VARCHAR(10), id INT, amount INT NOT NULL, PRIMARY KEY (tenant, id))");
+        source.batchUpdate("INSERT INTO keyset_composite (tenant, id, amount) VALUES (?, ?, ?)",
+                IntStream.range(0, ROWS).mapToObj(i -> new Object[]{"t" + (i % 4), i / 4, (i % 4) * ROWS + i / 4}).toList());
+    }
+
+    @Test
+    void seeksPagesInKeyOrderWithoutGapsOrDuplicates() {
+        var reader = reader();
+        var amounts = new ArrayList<Integer>();
+        for (var page = 0; ; page++) {
+            var rows = reader.read("NumericJob", NUMERIC, page, 64);
+            rows.forEach(row -> amounts.add(row[0]));
+            if (rows.size() < 64) {
+                break;
+            }
+        }
+
+        assertThat(amounts).containsExactlyElementsOf(IntStream.range(0, ROWS).boxed().toList());
+    }
+
+    @Test
+    void pageReadOutOfSequenceMatchesTheSequentialOne() {
+        var sequential = reader();
+        List<Integer[]> expected = List.of();
+        for (var page = 0; page <= 5; page++) {
+            expected = sequential.read("SequentialJob", NUMERIC, page, 100);
+        }
+
+        var resumed = reader().read("ResumedJob", NUMERIC, 5, 100);
+
+        assertThat(resumed).extracting(row -> row[0]).containsExactlyElementsOf(expected.stream().map(row -> row[0]).toList());
+        assertThat(reader().read("ResumedJob", NUMERIC, 10, 100)).isEmpty();
+    }
+
+    @Test
+    void numericRangesCoverEveryRowOnce() {
+        var reader = reader();
+
+        var ranges = reader.ranges("keyset_numeric", 4, ROWS);
+
+        assertThat(ranges).hasSize(4);
+        assertThat(readAll(reader, NUMERIC, ranges)).containsExactlyElementsOf(IntStream.range(0, ROWS).boxed().toList());
+    }
+
+    @Test
+    void compositeKeyRangesCoverEveryRowOnce() {
+        var reader = reader();
+
+        var ranges = reader.ranges("keyset_composite", 3, ROWS);
+
+        assertThat(ranges).hasSize(3);
+        assertThat(ranges.getFirst().from()).isNull();
+        assertThat(ranges.getLast().to()).isNull();
+        assertThat(readAll(reader, COMPOSITE, ranges)).containsExactlyElementsOf(IntStream.range(0, ROWS)
+                .mapToObj(i -> (i / (ROWS / 4)) * ROWS + i % (ROWS / 4)).toList());
+    }
+
+    private static List<Integer> readAll(KeysetPageReader reader, SourceMapping<Integer[]> source, List<KeyRange> ranges) {
+        var amounts = new ArrayList<Integer>();
+        for (var range : ranges) {
+            Object[] afterKey = null;
+            while (true) {
+                var page = reader.read(source, range, afterKey, 50);
+                page.rows().forEach(row -> amounts.add(row[0]));
+                if (page.rows().size() < 50) {
+                    break;
+                }
+                afterKey = page.lastKey();
+            }
+        }
+        return amounts;
+    }
+
+    private static KeysetPageReader reader() {
+        var source = new JdbcTemplate(TestDatabases.source());
+        return new KeysetPageReader(source, new SourceThrottle(new MigratorProperties(), source, new SimpleMeterRegistry()));
+    }
+}
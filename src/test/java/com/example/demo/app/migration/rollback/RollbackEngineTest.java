@@ -0,0 +1,105 @@
+package com.example.demo.app.migration.rollback;
+
+import com.example.demo.app.config.MigratorProperties;
+import com.example.demo.app.migration.checkpoint.CheckpointStore;
+import com.example.demo.app.migration.executor.JobRegistry;
+import com.example.demo.app.migration.metrics.MigrationMetrics;
+import com.example.demo.app.support.TestDatabases;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class RollbackEngineTest {
+    private static final String INDEX = "rollback_target_version_id_idx";
+
+    private final DataSource dataSource = TestDatabases.target();
+    private final JdbcTemplate target = new JdbcTemplate(dataSource);
+    private final CheckpointStore checkpointStore = mock(CheckpointStore.class);
+    private final AtomicInteger commits = new AtomicInteger();
+    private RollbackEngine rollbackEngine;
+
+    @BeforeEach
+    void createTarget() {
+        target.execute("DROP TABLE IF EXISTS rollback_target");
+        target.execute("CREATE TABLE rollback_target (id SERIAL PRIMARY KEY, version VARCHAR(20), phone VARCHAR(50))");
+        target.update("INSERT INTO rollback_target (version, phone) SELECT '2.0.0', 'p' || n FROM generate_series(1, 2500) n");
+        target.update("INSERT INTO rollback_target (version, phone) SELECT '1.0.0', NULL FROM generate_series(1, 500) n");
+
+        var properties = new MigratorProperties();
+        properties.getRollback().setChunkSize(1_000);
+        var transactionManager = new DataSourceTransactionManager(dataSource) {
+            @Override
+            protected void doCommit(DefaultTransactionStatus status) {
+                commits.incrementAndGet();
+                super.doCommit(status);
+            }
+        };
+        rollbackEngine = new RollbackEngine(properties, target, new HikariDataSource(), transactionManager,
+                checkpointStore, mock(JobRegistry.class), new MigrationMetrics(new SimpleMeterRegistry(), ObservationRegistry.NOOP));
+    }
+
+    @Test
+    void deletesTheVersionInChunksAndThenClearsCheckpoints() {
+        var rows = rollbackEngine.rollback("RollbackJob", job(RollbackStep.delete("rollback_target")), "2.0.0");
+
+        assertThat(rows).isEqualTo(2_500);
+        // three chunks of at most 1000 rows, and the empty one ending the walk
+        assertThat(commits).hasValue(4);
+        assertThat(target.queryForList("SELECT DISTINCT version FROM rollback_target", String.class)).containsExactly("1.0.0");
+        assertThat(target.queryForObject("SELECT count(*) FROM rollback_target", Long.class)).isEqualTo(500L);
+        verify(checkpointStore).clear("RollbackJob", "2.0.0");
+    }
+
+    @Test
+    void resetsTheVersionInChunks() {
+        var step = RollbackStep.update("rollback_target").setNull("phone").set("version", "1.0.0");
+
+        var rows = rollbackEngine.rollback("RollbackJob", job(step), "2.0.0");
+
+        assertThat(rows).isEqualTo(2_500);
+        assertThat(commits).hasValue(4);
+        assertThat(target.queryForObject("SELECT count(*) FROM rollback_target WHERE version = '1.0.0' AND phone IS NULL",
+                Long.class)).isEqualTo(3_000L);
+    }
+
+    @Test
+    void keepsCheckpointsWhenAStepFails() {
+        var job = job(RollbackStep.delete("rollback_target"), RollbackStep.delete("rollback_missing"));
+
+        assertThatThrownBy(() -> rollbackEngine.rollback("RollbackJob", job, "2.0.0")).isInstanceOf(RuntimeException.class);
+
+        verify(checkpointStore, never()).clear(any(), any());
+    }
+
+    @Test
+    void rebuildsAnInvalidVersionIndex() {
+        target.execute("CREATE INDEX " + INDEX + " ON rollback_target (version, id)");
+        // what an interrupted CREATE INDEX CONCURRENTLY leaves behind
+        target.update("UPDATE pg_index SET indisvalid = false WHERE indexrelid = to_regclass(?)", INDEX);
+
+        rollbackEngine.rollback("RollbackJob", job(RollbackStep.delete("rollback_target")), "2.0.0");
+
+        assertThat(target.queryForObject("SELECT indisvalid FROM pg_index WHERE indexrelid = to_regclass(?)",
+                Boolean.class, INDEX)).isTrue();
+    }
+
+    private static RollbackJob job(RollbackStep... steps) {
+        return version -> List.of(steps);
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.demo.app.migration.staging;
+
+import com.example.demo.app.migration.checkpoint.CheckpointStore;
+import com.example.demo.app.support.TestDatabases;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+
+import javax.sql.DataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class StagingTableManagerTest {
+    private final DataSource dataSource = TestDatabases.target();
+    private final JdbcTemplate target = new JdbcTemplate(dataSource);
+    private final CheckpointStore checkpointStore = mock(CheckpointStore.class);
+    private final StagingTableManager stagingTableManager =
+            new StagingTableManager(target, new DataSourceTransactionManager(dataSource), checkpointStore);
+
+    @BeforeEach
+    void createTarget() {
+        target.execute("DROP TABLE IF EXISTS staged, staged_staging");
+        target.execute("CREATE TABLE staged (id SERIAL PRIMARY KEY, email VARCHAR(100) UNIQUE, name VARCHAR(100))");
+        target.execute("CREATE INDEX staged_name_idx ON staged (name)");
+    }
+
+    @Test
+    void swapsTheLoadedCopyInWithTheTargetsIndexesAndMarksTheJobCompleted() {
+        assertThat(stagingTableManager.canStage("staged")).isTrue();
+
+        stagingTableManager.load("staged", "StagedJob", "1.0.0", () -> {
+            var table = stagingTableManager.resolve("staged");
+            assertThat(table).isEqualTo("staged_staging");
+            target.update("INSERT INTO " + table + " (email, name) SELECT 'u' || n || '@x', 'name ' || n FROM generate_series(1, 1000) n");
+        });
+
+        assertThat(stagingTableManager.resolve("staged")).isEqualTo("staged");
+        assertThat(target.queryForObject("SELECT count(*) FROM staged", Long.class)).isEqualTo(1_000L);
+        assertThat(target.queryForObject("SELECT relpersistence FROM pg_class WHERE oid = 'staged'::regclass", String.class))
+                .isEqualTo("p");
+        assertThat(target.queryForList("SELECT indexname FROM pg_indexes WHERE tablename = 'staged' ORDER BY indexname", String.class))
+                .containsExactly("staged_email_key", "staged_name_idx", "staged_pkey");
+        assertThat(target.queryForObject("SELECT to_regclass('staged_staging') IS NULL", Boolean.class)).isTrue();
+        // the sequence moved with the table and keeps counting
+        target.update("INSERT INTO staged (email, name) VALUES ('new@x', 'new')");
+        assertThat(target.queryForObject("SELECT id FROM staged WHERE email = 'new@x'", Integer.class)).isEqualTo(1_001);
+        verify(checkpointStore).completed("StagedJob", "1.0.0");
+    }
+
+    @Test
+    void failedLoadDropsTheCopyAndForgetsCheckpoints() {
+        assertThatThrownBy(() -> stagingTableManager.load("staged", "StagedJob", "1.0.0", () -> {
+            target.update("INSERT INTO staged_staging (email, name) VALUES ('a@x', 'a')");
+            throw new IllegalStateException("load failed");
+        })).hasMessage("load failed");
+
+        assertThat(target.queryForObject("SELECT to_regclass('staged_staging') IS NULL", Boolean.class)).isTrue();
+        assertThat(target.queryForObject("SELECT count(*) FROM staged", Long.class)).isZero();
+        assertThat(stagingTableManager.resolve("staged")).isEqualTo("staged");
+        // once before the load, once after it failed
+        verify(checkpointStore, times(2)).clear("StagedJob", "1.0.0");
+        verify(checkpointStore, never()).completed("StagedJob", "1.0.0");
+    }
+
+    @Test
+    void failedSwapKeepsTheTargetAndDropsTheCopy() {
+        // duplicate emails cannot get the target's unique index
+        assertThatThrownBy(() -> stagingTableManager.load("staged", "StagedJob", "1.0.0", () ->
+                target.update("INSERT INTO staged_staging (email, name) VALUES ('a@x', 'a'), ('a@x', 'b')")));
+
+        assertThat(target.queryForObject("SELECT to_regclass('staged_staging') IS NULL", Boolean.class)).isTrue();
+        assertThat(target.queryForObject("SELECT to_regclass('staged') IS NOT NULL", Boolean.class)).isTrue();
+        verify(checkpointStore, times(2)).clear("StagedJob", "1.0.0");
+        verify(checkpointStore, never()).completed("StagedJob", "1.0.0");
+    }
+
+    @Test
+    void dropsStagingTablesLeftByACrashedRun() {
+        target.execute("CREATE UNLOGGED TABLE staged_staging (LIKE staged)");
+
+        var orphans = stagingTableManager.dropOrphans();
+
+        assertThat(orphans).contains("staged");
+        assertThat(target.queryForObject("SELECT to_regclass('staged_staging') IS NULL", Boolean.class)).isTrue();
+        assertThat(target.queryForObject("SELECT to_regclass('staged') IS NOT NULL", Boolean.class)).isTrue();
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.demo.app.migration.writer;
+
+import com.example.demo.app.support.TestDatabases;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CopyWriterTest {
+    private static final List<String> COLUMNS = List.of("name", "amount", "total", "small", "flag", "ratio", "day",
+            "at_time", "at");
+
+    private final JdbcTemplate target = new JdbcTemplate(TestDatabases.target());
+    private final CopyWriter copyWriter = new CopyWriter(TestDatabases.target());
+
+    @BeforeEach
+    void createTarget() {
+        target.execute("DROP TABLE IF EXISTS copy_target");
+        target.execute("""
+                CREATE TABLE copy_target (id SERIAL PRIMARY KEY, name VARCHAR(100), amount INT, total BIGINT,
+                small SMALLINT, flag BOOLEAN, ratio DOUBLE PRECISION, day DATE, at_time TIME, at TIMESTAMP)
+                """);
+    }
+
+    @Test
+    void encodesEverySupportedTypeAsPostgresReadsIt() {
+        Object[] row = {"Zoë 東京", 42, 9_000_000_000L, (short) 7, true, 0.25, LocalDate.of(1999, 12, 31),
+                LocalTime.of(23, 59, 58, 123_456_000), LocalDateTime.of(2024, 2, 29, 12, 30, 15, 500_000)};
+
+        var copied = copyWriter.copyRows("copy_target", COLUMNS, List.<Object[]>of(row));
+
+        assertThat(copied).isEqualTo(1);
+        var read = target.queryForMap("SELECT * FROM copy_target");
+        assertThat(read.get("name")).isEqualTo("Zoë 東京");
+        assertThat(read.get("amount")).isEqualTo(42);
+        assertThat(read.get("total")).isEqualTo(9_000_000_000L);
+        assertThat(((Number) read.get("small")).shortValue()).isEqualTo((short) 7);
+        assertThat(read.get("flag")).isEqualTo(true);
+        assertThat(read.get("ratio")).isEqualTo(0.25);
+        assertThat(((java.sql.Date) read.get("day")).toLocalDate()).isEqualTo(LocalDate.of(1999, 12, 31));
+        assertThat(target.queryForObject("SELECT at_time::text FROM copy_target", String.class)).isEqualTo("23:59:58.123456");
+        assertThat(((Timestamp) read.get("at")).toLocalDateTime()).isEqualTo(LocalDateTime.of(2024, 2, 29, 12, 30, 15, 500_000));
+    }
+
+    @Test
+    void writesNullsAndDatesBeforeThePostgresEpoch() {
+        Object[] row = {null, null, null, null, null, null, LocalDate.of(1970, 1, 1), null,
+                LocalDateTime.of(1999, 12, 31, 23, 59, 59)};
+
+        copyWriter.copyRows("copy_target", COLUMNS, List.<Object[]>of(row));
+
+        var read = target.queryForMap("SELECT name, amount, flag, day, at FROM copy_target");
+        assertThat(read.get("name")).isNull();
+        assertThat(read.get("amount")).isNull();
+        assertThat(read.get("flag")).isNull();
+        assertThat(((java.sql.Date) read.get("day")).toLocalDate()).isEqualTo(LocalDate.of(1970, 1, 1));
+        assertThat(((Timestamp) read.get("at")).toLocalDateTime()).isEqualTo(LocalDateTime.of(1999, 12, 31, 23, 59, 59));
+    }
+
+    @Test
+    void copiesEveryRowOfALargePage() {
+        var rows = new ArrayList<Object[]>();
+        IntStream.range(0, 20_000).forEach(i -> rows.add(new Object[]{"row " + i, i, null, null, null, null, null, null, null}));
+
+        var copied = copyWriter.copyRows("copy_target", COLUMNS, rows);
+
+        assertThat(copied).isEqualTo(20_000);
+        List<Long> totals = target.queryForObject("SELECT count(*), sum(amount) FROM copy_target",
+                (resultSet, rowNum) -> List.of(resultSet.getLong(1), resultSet.getLong(2)));
+        assertThat(totals).containsExactly(20_000L, 199_990_000L);
+    }
+}
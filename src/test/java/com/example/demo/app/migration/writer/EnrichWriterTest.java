@@ -0,0 +1,95 @@
+package com.example.demo.app.migration.writer;
+
+import com.example.demo.app.support.TestDatabases;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EnrichWriterTest {
+    private static final String INDEX = "enrich_target_email_idx";
+    private static final EnrichSpec SPEC = new EnrichSpec("enrich_target", "email", List.of("city"), true);
+
+    private final DataSource dataSource = TestDatabases.target();
+    private final JdbcTemplate target = new JdbcTemplate(dataSource);
+    private final DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+    private final EnrichWriter enrichWriter = new EnrichWriter(target, transactionManager);
+
+    @BeforeEach
+    void createTarget() {
+        target.execute("DROP TABLE IF EXISTS enrich_target");
+        target.execute("CREATE TABLE enrich_target (id SERIAL PRIMARY KEY, email VARCHAR(100), city VARCHAR(100), version VARCHAR(20))");
+        target.update("INSERT INTO enrich_target (email, city, version) VALUES ('a@x', 'Nantes', '1.0.0'), ('c@x', 'Lille', '1.0.0')");
+    }
+
+    @Test
+    void updatesMatchedRowsAndInsertsUnmatchedOnesInOneStatement() {
+        var result = enrichWriter.enrich(SPEC, List.of(
+                new Object[]{"a@x", "Paris"},
+                new Object[]{"b@x", "Rome"},
+                new Object[]{"a@x", "Lyon"}), "2.0.0");
+
+        assertThat(result).isEqualTo(new EnrichWriter.EnrichResult(1, 1));
+        assertThat(rows()).containsExactly(
+                List.of("a@x", "Lyon", "2.0.0"),
+                List.of("c@x", "Lille", "1.0.0"),
+                Arrays.asList(null, "Rome", "2.0.0"));
+    }
+
+    @Test
+    void leavesUnmatchedRowsOutWhenAsked() {
+        var spec = new EnrichSpec("enrich_target", "email", List.of("city"), false);
+
+        var result = enrichWriter.enrich(spec, List.<Object[]>of(new Object[]{"b@x", "Rome"}, new Object[]{"c@x", "Metz"}), "2.0.0");
+
+        assertThat(result).isEqualTo(new EnrichWriter.EnrichResult(1, 1));
+        assertThat(rows()).containsExactly(
+                List.of("a@x", "Nantes", "1.0.0"),
+                List.of("c@x", "Metz", "2.0.0"));
+    }
+
+    @Test
+    void enrichesSeveralPagesWithinOneTransaction() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            enrichWriter.enrich(SPEC, List.<Object[]>of(new Object[]{"a@x", "Paris"}), "2.0.0");
+            enrichWriter.enrich(SPEC, List.<Object[]>of(new Object[]{"c@x", "Metz"}), "2.0.0");
+        });
+
+        assertThat(rows()).containsExactly(
+                List.of("a@x", "Paris", "2.0.0"),
+                List.of("c@x", "Metz", "2.0.0"));
+        assertThat(target.queryForObject("SELECT to_regclass('enrich_enrich_target') IS NULL", Boolean.class)).isTrue();
+    }
+
+    @Test
+    void buildsAValidKeyIndexBeforeTheRun() {
+        enrichWriter.prepare(SPEC);
+
+        assertThat(target.queryForObject("SELECT indisvalid FROM pg_index WHERE indexrelid = to_regclass(?)",
+                Boolean.class, INDEX)).isTrue();
+    }
+
+    @Test
+    void rebuildsAnInvalidKeyIndex() {
+        target.execute("CREATE INDEX " + INDEX + " ON enrich_target (email)");
+        // what an interrupted CREATE INDEX CONCURRENTLY leaves behind
+        target.update("UPDATE pg_index SET indisvalid = false WHERE indexrelid = to_regclass(?)", INDEX);
+
+        enrichWriter.prepare(SPEC);
+
+        assertThat(target.queryForObject("SELECT indisvalid FROM pg_index WHERE indexrelid = to_regclass(?)",
+                Boolean.class, INDEX)).isTrue();
+    }
+
+    private List<List<Object>> rows() {
+        return target.query("SELECT email, city, version FROM enrich_target ORDER BY id",
+                (resultSet, rowNum) -> Arrays.asList(resultSet.getString(1), resultSet.getString(2), resultSet.getString(3)));
+    }
+}
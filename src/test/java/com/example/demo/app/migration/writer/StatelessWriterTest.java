@@ -0,0 +1,91 @@
+package com.example.demo.app.migration.writer;
+
+import com.example.demo.app.domain.postgres.Users;
+import com.example.demo.app.support.TestDatabases;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StatelessWriterTest {
+    private final DataSource dataSource = TestDatabases.target();
+    private final JdbcTemplate target = new JdbcTemplate(dataSource);
+    private final TransactionTemplate transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    private EntityManagerFactory entityManagerFactory;
+    private StatelessWriter statelessWriter;
+
+    @BeforeEach
+    void createTarget() {
+        target.execute("DROP TABLE IF EXISTS users");
+        target.execute("""
+                CREATE TABLE users (id SERIAL PRIMARY KEY, version VARCHAR(20), birth_date DATE, phone_number VARCHAR(50),
+                first_name VARCHAR(100), last_name VARCHAR(100), city VARCHAR(100), job VARCHAR(100), email VARCHAR(100))
+                """);
+        target.update("INSERT INTO users (email, first_name, version) VALUES ('a@x', 'Ada', '1.0.0'), ('c@x', 'Carl', '1.0.0')");
+
+        var factory = new LocalContainerEntityManagerFactoryBean();
+        factory.setDataSource(dataSource);
+        factory.setPackagesToScan(Users.class.getPackageName());
+        factory.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        factory.afterPropertiesSet();
+        entityManagerFactory = factory.getObject();
+        statelessWriter = new StatelessWriter(entityManagerFactory, dataSource);
+    }
+
+    @AfterEach
+    void close() {
+        entityManagerFactory.close();
+    }
+
+    @Test
+    void updatesTheMatchingEntitiesAndInsertsUnmatchedOnes() {
+        var spec = new EnrichSpec("users", "email", List.of("phone_number"), true);
+
+        var result = transactionTemplate.execute(status -> statelessWriter.enrich(spec, List.of(
+                new Object[]{"a@x", "+33 1"},
+                new Object[]{"b@x", "+39 2"},
+                new Object[]{"a@x", "+33 3"}), "1.1.0"));
+
+        assertThat(result).isEqualTo(new EnrichWriter.EnrichResult(1, 1));
+        assertThat(rows()).containsExactly(
+                List.of("a@x", "Ada", "+33 3", "1.1.0"),
+                Arrays.asList("c@x", "Carl", null, "1.0.0"),
+                Arrays.asList(null, null, "+39 2", "1.1.0"));
+    }
+
+    @Test
+    void updatesEntitiesByIdAndRollsBackWithTheTransaction() {
+        var ada = new Users();
+        ada.setId(target.queryForObject("SELECT id FROM users WHERE email = 'a@x'", Integer.class));
+        ada.setEmail("a@x");
+        ada.setFirstName("Ada L.");
+        ada.setVersion("1.0.0");
+
+        Integer updated = transactionTemplate.execute(status -> statelessWriter.update(List.of(ada)));
+        assertThat(updated).isOne();
+        transactionTemplate.executeWithoutResult(status -> {
+            ada.setFirstName("Rolled back");
+            statelessWriter.update(List.of(ada));
+            status.setRollbackOnly();
+        });
+
+        assertThat(target.queryForObject("SELECT first_name FROM users WHERE email = 'a@x'", String.class)).isEqualTo("Ada L.");
+    }
+
+    private List<List<Object>> rows() {
+        return target.query("SELECT email, first_name, phone_number, version FROM users ORDER BY id",
+                (resultSet, rowNum) -> Arrays.asList(resultSet.getString(1), resultSet.getString(2),
+                        resultSet.getString(3), resultSet.getString(4)));
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.demo.app.migration.writer;
+
+import com.example.demo.app.support.TestDatabases;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class UpsertWriterTest {
+    private static final String INDEX = "upsert_target_source_id_key";
+    private static final EntityTable<Object[]> TABLE = new EntityTable<>("upsert_target", List.of("name", "source_id"),
+            row -> row, "source_id");
+
+    private final DataSource dataSource = TestDatabases.target();
+    private final JdbcTemplate target = new JdbcTemplate(dataSource);
+    private final UpsertWriter upsertWriter = new UpsertWriter(target, new DataSourceTransactionManager(dataSource));
+
+    @BeforeEach
+    void createTarget() {
+        target.execute("DROP TABLE IF EXISTS upsert_target");
+        target.execute("CREATE TABLE upsert_target (id SERIAL PRIMARY KEY, name VARCHAR(100), source_id INT)");
+    }
+
+    @Test
+    void upsertsOnTheIndexCreatedBeforeTheRun() {
+        upsertWriter.prepare("upsert_target", "source_id");
+
+        upsertWriter.upsert(TABLE, List.<Object[]>of(new Object[]{"a", 1}, new Object[]{"b", 2}));
+        upsertWriter.upsert(TABLE, List.<Object[]>of(new Object[]{"a2", 1}));
+
+        assertThat(target.queryForList("SELECT name FROM upsert_target ORDER BY source_id", String.class))
+                .containsExactly("a2", "b");
+    }
+
+    @Test
+    void rebuildsAnInvalidIndex() {
+        target.execute("CREATE UNIQUE INDEX " + INDEX + " ON upsert_target (source_id)");
+        // what an interrupted CREATE INDEX CONCURRENTLY leaves behind
+        target.update("UPDATE pg_index SET indisvalid = false WHERE indexrelid = to_regclass(?)", INDEX);
+
+        upsertWriter.prepare("upsert_target", "source_id");
+
+        assertThat(target.queryForObject("SELECT indisvalid FROM pg_index WHERE indexrelid = to_regclass(?)",
+                Boolean.class, INDEX)).isTrue();
+    }
+
+    @Test
+    void leavesNoInvalidIndexWhenTheTableHoldsDuplicates() {
+        target.update("INSERT INTO upsert_target (name, source_id) VALUES ('a', 1), ('b', 1)");
+
+        assertThatThrownBy(() -> upsertWriter.prepare("upsert_target", "source_id"))
+                .isInstanceOf(IllegalStateException.class);
+
+        assertThat(target.queryForObject("SELECT to_regclass(?) IS NULL", Boolean.class, INDEX)).isTrue();
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.demo.app.support;
+
+import ch.vorburger.mariadb4j.DB;
+import ch.vorburger.mariadb4j.DBConfigurationBuilder;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+
+/**
+ * An embedded MariaDB standing in for the MySQL source and an embedded PostgreSQL for the target, each started on
+ * first use from the binaries bundled in their artifacts and shared by all tests of the JVM.
+ *
+ * <p>Tests share the databases, so each one works on tables of its own and recreates them before use.
+ */
+public final class TestDatabases {
+    private static final String SOURCE_PARAMETERS =
+            "?allowPublicKeyRetrieval=true&useSSL=false&useCursorFetch=true&rewriteBatchedStatements=true"
+            // created by the driver, not the mariadb client, which needs libraries the host may not have
+            + "&createDatabaseIfNotExist=true";
+
+    private static DB mariaDb;
+    private static EmbeddedPostgres postgres;
+
+    private TestDatabases() {
+    }
+
+    /**
+     * @return the source database, {@code migration} on the embedded MariaDB.
+     */
+    public static DataSource source() {
+        return new DriverManagerDataSource(sourceUrl(), "root", "");
+    }
+
+    /**
+     * @return the JDBC URL of the source database, with the parameters the application uses.
+     */
+    public static synchronized String sourceUrl() {
+        if (mariaDb == null) {
+            try {
+                var configuration = DBConfigurationBuilder.newBuilder();
+                configuration.setPort(0);
+                var db = DB.newEmbeddedDB(configuration.build());
+                db.start();
+                mariaDb = db;
+            } catch (Exception e) {
+                throw new IllegalStateException("Could not start the embedded MariaDB", e);
+            }
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    mariaDb.stop();
+                } catch (Exception ignored) {
+                    // the JVM is exiting anyway
+                }
+            }));
+        }
+        return "jdbc:mysql://localhost:" + mariaDb.getConfiguration().getPort() + "/migration" + SOURCE_PARAMETERS;
+    }
+
+    /**
+     * @return the target database, {@code postgres} on the embedded PostgreSQL.
+     */
+    public static synchronized DataSource target() {
+        if (postgres == null) {
+            try {
+                postgres = EmbeddedPostgres.builder().start();
+            } catch (Exception e) {
+                throw new IllegalStateException("Could not start the embedded PostgreSQL", e);
+            }
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    postgres.close();
+                } catch (Exception ignored) {
+                    // the JVM is exiting anyway
+                }
+            }));
+        }
+        return postgres.getPostgresDatabase();
+    }
+}